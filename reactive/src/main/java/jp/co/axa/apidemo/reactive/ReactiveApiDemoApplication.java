@@ -0,0 +1,16 @@
+package jp.co.axa.apidemo.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Non-blocking variant of the employee API, served by WebFlux over R2DBC.
+ * Tokens issued by the servlet application are accepted, so clients can use either stack.
+ */
+@SpringBootApplication
+public class ReactiveApiDemoApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveApiDemoApplication.class, args);
+    }
+}
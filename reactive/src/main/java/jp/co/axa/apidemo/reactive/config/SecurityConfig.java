@@ -0,0 +1,39 @@
+package jp.co.axa.apidemo.reactive.config;
+
+import jp.co.axa.apidemo.reactive.filters.JwtAuthenticationWebFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+@Configuration
+@EnableWebFluxSecurity
+public class SecurityConfig {
+
+    /**
+     * Stateless security: every request is authenticated from its bearer token alone, nothing is kept in a session.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         JwtAuthenticationWebFilter jwtAuthenticationWebFilter) {
+        return http
+                .csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .logout().disable()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED))
+                .and()
+                .authorizeExchange()
+                .anyExchange().authenticated()
+                .and()
+                .addFilterAt(jwtAuthenticationWebFilter, SecurityWebFiltersOrder.AUTHENTICATION)
+                .build();
+    }
+}
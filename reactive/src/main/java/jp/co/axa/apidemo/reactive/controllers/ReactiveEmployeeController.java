@@ -0,0 +1,252 @@
+package jp.co.axa.apidemo.reactive.controllers;
+
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+import jp.co.axa.apidemo.exceptions.PreconditionFailedException;
+import jp.co.axa.apidemo.exceptions.ResourceNotFoundException;
+import jp.co.axa.apidemo.reactive.repositories.ReactiveEmployeeRepository;
+import jp.co.axa.apidemo.util.ETags;
+import jp.co.axa.apidemo.util.EmployeeCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking controller for managing employees, serving the same contract as the servlet application's
+ * EmployeeController for listing, exporting, reading, creating, replacing and deleting employees.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class ReactiveEmployeeController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeController.class);
+
+    private static final String DEFAULT_PAGE_SIZE = "20";
+
+    /**
+     * The largest page returned, whatever limit the client asks for.
+     */
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ReactiveEmployeeRepository employeeRepository;
+
+    private final int exportChunkSize;
+
+    /**
+     * @param employeeRepository the repository employees are read from and written to
+     * @param exportChunkSize    the number of employees read per query when exporting
+     */
+    public ReactiveEmployeeController(ReactiveEmployeeRepository employeeRepository,
+                                      @Value("${employees.export.chunk-size:500}") int exportChunkSize) {
+        this.employeeRepository = employeeRepository;
+        this.exportChunkSize = exportChunkSize;
+    }
+
+    /**
+     * Retrieves a page of employees in id order, optionally filtered.
+     *
+     * @param after      the opaque cursor returned as nextCursor by the previous page, absent for the first page
+     * @param limit      the maximum number of employees to return, capped server-side
+     * @param department only return employees of this department
+     * @param minSalary  only return employees earning at least this salary
+     * @param maxSalary  only return employees earning at most this salary
+     * @param namePrefix only return employees whose name starts with this prefix
+     * @return the page of employees and the cursor of the next page
+     * @throws InvalidRequestException if the cursor is malformed, the limit is not positive or the salary range is empty
+     */
+    @GetMapping("/employees")
+    public Mono<EmployeePage> getEmployees(@RequestParam(name = "after", required = false) String after,
+                                           @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+                                           @RequestParam(name = "department", required = false) String department,
+                                           @RequestParam(name = "minSalary", required = false) Integer minSalary,
+                                           @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+                                           @RequestParam(name = "namePrefix", required = false) String namePrefix) {
+        LOG.info("Retrieving employees after cursor: {}", after);
+        if (limit < 1) {
+            throw new InvalidRequestException("Limit must be positive");
+        }
+        if (minSalary != null && maxSalary != null && minSalary > maxSalary) {
+            throw new InvalidRequestException("minSalary must not be greater than maxSalary");
+        }
+        Long afterId = EmployeeCursor.decode(after);
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        EmployeeFilter filter = new EmployeeFilter(department, minSalary, maxSalary, namePrefix);
+        return employeeRepository.findPage(filter, afterId, pageSize + 1)
+                .collectList()
+                .map(employees -> page(employees, pageSize));
+    }
+
+    /**
+     * Exports all employees as newline-delimited JSON, one employee per line.
+     * Employees are read in chunks as the client consumes them, so a slow client slows down reading
+     * instead of making the server buffer the table.
+     *
+     * @return every employee in id order
+     */
+    @GetMapping(value = "/employees/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Employee> exportEmployees() {
+        LOG.info("Exporting all employees");
+        return employeeRepository.streamAll(exportChunkSize)
+                .doOnComplete(() -> LOG.info("Employees Exported Successfully"));
+    }
+
+    /**
+     * Retrieves an employee by their ID.
+     *
+     * @param employeeId  the ID of the employee to retrieve
+     * @param ifNoneMatch the ETag of the version of the employee the client already has
+     * @return the employee with the specified ID, or 304 Not Modified without a body if the client already
+     * has its current version
+     * @throws ResourceNotFoundException if the employee with the given ID is not found
+     */
+    @GetMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<Employee>> getEmployee(@PathVariable(name = "employeeId") Long employeeId,
+                                                      @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LOG.info("Retrieving employee with ID: {}", employeeId);
+        return employeeRepository.findById(employeeId)
+                .switchIfEmpty(notFound(employeeId))
+                .map(employee -> ETags.matches(ifNoneMatch, ETags.of(employee.getVersion()))
+                        ? versioned(ResponseEntity.status(HttpStatus.NOT_MODIFIED), employee).<Employee>build()
+                        : versioned(ResponseEntity.ok(), employee).body(employee));
+    }
+
+    /**
+     * Saves an employee.
+     *
+     * @param employee the employee to be saved
+     * @param uriBuilder the builder of the URI of the request
+     * @return the saved employee object
+     */
+    @PostMapping("/employees")
+    public Mono<ResponseEntity<Employee>> saveEmployee(@Valid @RequestBody Employee employee,
+                                                       UriComponentsBuilder uriBuilder) {
+        LOG.info("Saving new employee");
+        return employeeRepository.insert(employee)
+                .map(savedEmployee -> {
+                    LOG.info("Employee Saved Successfully");
+                    URI location = uriBuilder.path("/api/v1/employees/{id}")
+                            .buildAndExpand(savedEmployee.getId())
+                            .toUri();
+                    return versioned(ResponseEntity.created(location), savedEmployee).body(savedEmployee);
+                });
+    }
+
+    /**
+     * Deletes an employee by their ID.
+     *
+     * @param employeeId the ID of the employee to delete
+     * @return status 200 (OK) and a success message in the body
+     * @throws ResourceNotFoundException if the employee with the given ID is not found
+     */
+    @DeleteMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<String>> deleteEmployee(@PathVariable(name = "employeeId") Long employeeId) {
+        LOG.info("Deleting employee with ID: {}", employeeId);
+        return employeeRepository.deleteById(employeeId)
+                .filter(deleted -> deleted > 0)
+                .switchIfEmpty(notFound(employeeId))
+                .map(deleted -> {
+                    LOG.info("Employee Deleted Successfully");
+                    return ResponseEntity.ok().body("Employee Deleted Successfully");
+                });
+    }
+
+    /**
+     * Updates an existing employee.
+     *
+     * @param employee   the employee object with updated details
+     * @param employeeId the ID of the employee to be updated
+     * @param ifMatch    the ETags of the versions of the employee the client accepts to overwrite, absent to
+     *                   overwrite any version
+     * @return the updated employee
+     * @throws InvalidRequestException if the provided employeeId does not match the ID of the employee object
+     * @throws ResourceNotFoundException if the employee with the given ID is not found
+     * @throws PreconditionFailedException if the employee no longer has a version listed in If-Match
+     */
+    @PutMapping("/employees/{employeeId}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@Valid @RequestBody Employee employee,
+                                                         @PathVariable(name = "employeeId") Long employeeId,
+                                                         @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LOG.info("Updating employee with ID: {}", employeeId);
+        if (!employeeId.equals(employee.getId())) {
+            LOG.error("Mismatched employee IDs in request. Path variable ID: {}, Employee object ID: {}", employeeId, employee.getId());
+            throw new InvalidRequestException("Mismatched employee IDs in request");
+        }
+        return expectedVersion(employeeId, ifMatch)
+                .flatMap(expected -> employeeRepository.update(employee, expected.orElse(null)))
+                .flatMap(updated -> updated > 0
+                        ? employeeRepository.findById(employeeId)
+                        : employeeRepository.findVersion(employeeId)
+                        .switchIfEmpty(notFound(employeeId))
+                        .flatMap(current -> Mono.<Employee>error(new PreconditionFailedException(
+                                "Employee with ID: " + employeeId + " does not match If-Match"))))
+                .switchIfEmpty(notFound(employeeId))
+                .map(updatedEmployee -> {
+                    LOG.info("Employee Updated Successfully");
+                    return versioned(ResponseEntity.ok(), updatedEmployee).body(updatedEmployee);
+                });
+    }
+
+    /**
+     * Resolves an If-Match header to the version the update must be applied over.
+     * When several versions are listed, the current one is looked up and used if it is among them.
+     *
+     * @return the expected version, or an empty optional if any version may be overwritten
+     */
+    private Mono<Optional<Long>> expectedVersion(Long employeeId, String ifMatch) {
+        if (ifMatch == null || ETags.isWildcard(ifMatch)) {
+            return Mono.just(Optional.empty());
+        }
+        List<Long> versions = ETags.strongVersions(ifMatch);
+        if (versions.size() == 1) {
+            return Mono.just(Optional.of(versions.get(0)));
+        }
+        Mono<Long> currentVersion = versions.isEmpty() ? Mono.empty() : employeeRepository.findVersion(employeeId);
+        return currentVersion
+                .filter(versions::contains)
+                .map(Optional::of)
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(
+                        "Employee with ID: " + employeeId + " does not match If-Match")));
+    }
+
+    private static <T> Mono<T> notFound(Long employeeId) {
+        return Mono.defer(() -> {
+            LOG.error("Employee not found with ID: {}", employeeId);
+            return Mono.error(new ResourceNotFoundException("Employee not found with ID: " + employeeId));
+        });
+    }
+
+    private static EmployeePage page(List<Employee> employees, int pageSize) {
+        if (employees.size() <= pageSize) {
+            return new EmployeePage(employees, null);
+        }
+        List<Employee> items = employees.subList(0, pageSize);
+        return new EmployeePage(items, EmployeeCursor.encode(items.get(pageSize - 1).getId()));
+    }
+
+    private static <B extends ResponseEntity.HeadersBuilder<B>> B versioned(B builder, Employee employee) {
+        if (employee.getVersion() != null) {
+            builder.eTag(ETags.of(employee.getVersion()));
+        }
+        Instant lastModified = employee.getLastModified();
+        if (lastModified != null) {
+            builder.lastModified(lastModified.toEpochMilli());
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,90 @@
+package jp.co.axa.apidemo.reactive.filters;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reactive counterpart of the servlet application's JwtRequestFilter.
+ * Access tokens are authenticated from the authorities they carry, as in its stateless-authorities mode, since
+ * looking the user up would take a blocking round trip to the user store on every request. Refresh tokens
+ * and tokens of other types are rejected.
+ */
+@Component
+public class JwtAuthenticationWebFilter implements WebFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String AUTHORITIES_CLAIM = "authorities";
+
+    private static final String TOKEN_TYPE_CLAIM = "typ";
+
+    private final String secret;
+
+    /**
+     * @param secret the Base64 secret the tokens are signed with, shared with the issuing application
+     */
+    public JwtAuthenticationWebFilter(@Value("${security.jwt.secret}") String secret) {
+        this.secret = secret;
+    }
+
+    /**
+     * Authenticates the request from its bearer token, if it has a valid one, and continues the chain either way;
+     * requests left unauthenticated are rejected by the authorization rules.
+     *
+     * @param exchange the current exchange
+     * @param chain    the chain to continue the request processing
+     * @return completion of the rest of the chain
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (header == null || !header.startsWith(BEARER_PREFIX)) {
+            return chain.filter(exchange);
+        }
+        UsernamePasswordAuthenticationToken authentication = authenticate(header.substring(BEARER_PREFIX.length()));
+        if (authentication == null) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String token) {
+        Claims claims;
+        try {
+            claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        if (claims.getSubject() == null || claims.getExpiration() == null || claims.get(TOKEN_TYPE_CLAIM) != null) {
+            return null;
+        }
+        return new UsernamePasswordAuthenticationToken(claims.getSubject(), null, authorities(claims));
+    }
+
+    private static List<GrantedAuthority> authorities(Claims claims) {
+        Object names = claims.get(AUTHORITIES_CLAIM);
+        if (!(names instanceof List)) {
+            return Collections.emptyList();
+        }
+        return ((List<?>) names).stream()
+                .map(name -> new SimpleGrantedAuthority(String.valueOf(name)))
+                .collect(Collectors.toList());
+    }
+}
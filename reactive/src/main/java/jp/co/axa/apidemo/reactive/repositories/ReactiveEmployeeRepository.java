@@ -0,0 +1,188 @@
+package jp.co.axa.apidemo.reactive.repositories;
+
+import io.r2dbc.spi.Row;
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking access to the EMPLOYEE table over R2DBC.
+ * Mirrors the servlet application's repository: keyset pagination in id order, optional filters, and a version
+ * column incremented on every write for optimistic locking.
+ */
+@Repository
+public class ReactiveEmployeeRepository {
+
+    private static final String COLUMNS = "ID, EMPLOYEE_NAME, EMPLOYEE_SALARY, DEPARTMENT, VERSION, LAST_MODIFIED";
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private final DatabaseClient client;
+
+    public ReactiveEmployeeRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Finds employees in id order, optionally filtered, starting after the given id.
+     *
+     * @param filter  the criteria employees must match
+     * @param afterId the id to seek after, or null to start from the first employee
+     * @param limit   the maximum number of employees to return
+     * @return the matching employees in id order
+     */
+    public Flux<Employee> findPage(EmployeeFilter filter, Long afterId, int limit) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        List<String> predicates = new ArrayList<>();
+        if (afterId != null) {
+            predicates.add("ID > :afterId");
+            parameters.put("afterId", afterId);
+        }
+        if (filter.getDepartment() != null) {
+            predicates.add("DEPARTMENT = :department");
+            parameters.put("department", filter.getDepartment());
+        }
+        if (filter.getMinSalary() != null) {
+            predicates.add("EMPLOYEE_SALARY >= :minSalary");
+            parameters.put("minSalary", filter.getMinSalary());
+        }
+        if (filter.getMaxSalary() != null) {
+            predicates.add("EMPLOYEE_SALARY <= :maxSalary");
+            parameters.put("maxSalary", filter.getMaxSalary());
+        }
+        if (filter.getNamePrefix() != null) {
+            predicates.add("EMPLOYEE_NAME LIKE :namePrefix ESCAPE '" + LIKE_ESCAPE + "'");
+            parameters.put("namePrefix", escapeLike(filter.getNamePrefix()) + "%");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM EMPLOYEE");
+        if (!predicates.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", predicates));
+        }
+        sql.append(" ORDER BY ID LIMIT :limit");
+        parameters.put("limit", limit);
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec.map((row, metadata) -> toEmployee(row)).all();
+    }
+
+    /**
+     * Streams every employee in id order, reading the table in chunks of the given size.
+     * A chunk is only queried once the subscriber has requested the employees of the previous one, so a slow
+     * subscriber holds at most one chunk in memory and never makes the whole table buffer.
+     *
+     * @param chunkSize the number of employees read per query
+     * @return every employee in id order
+     */
+    public Flux<Employee> streamAll(int chunkSize) {
+        EmployeeFilter all = new EmployeeFilter();
+        return findPage(all, null, chunkSize).collectList()
+                .expand(chunk -> chunk.size() < chunkSize
+                        ? Mono.empty()
+                        : findPage(all, chunk.get(chunk.size() - 1).getId(), chunkSize).collectList())
+                .concatMapIterable(chunk -> chunk, 1);
+    }
+
+    public Mono<Employee> findById(Long id) {
+        return client.sql("SELECT " + COLUMNS + " FROM EMPLOYEE WHERE ID = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toEmployee(row))
+                .one();
+    }
+
+    /**
+     * @param id the ID of the employee
+     * @return the current version of the employee, or empty if it does not exist
+     */
+    public Mono<Long> findVersion(Long id) {
+        return client.sql("SELECT VERSION FROM EMPLOYEE WHERE ID = :id")
+                .bind("id", id)
+                .map((row, metadata) -> row.get("VERSION", Long.class))
+                .one();
+    }
+
+    /**
+     * Inserts a new employee with an id taken from the employee sequence and the initial version.
+     *
+     * @param employee the employee to insert; its id and version are ignored
+     * @return the inserted employee
+     */
+    public Mono<Employee> insert(Employee employee) {
+        return client.sql("SELECT NEXT VALUE FOR EMPLOYEE_SEQ")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> {
+                    Instant now = Instant.now();
+                    return client.sql("INSERT INTO EMPLOYEE (" + COLUMNS + ") "
+                                    + "VALUES (:id, :name, :salary, :department, 0, :lastModified)")
+                            .bind("id", id)
+                            .bind("name", employee.getName())
+                            .bind("salary", employee.getSalary())
+                            .bind("department", employee.getDepartment())
+                            .bind("lastModified", now)
+                            .fetch()
+                            .rowsUpdated()
+                            .then(findById(id));
+                });
+    }
+
+    /**
+     * Overwrites an employee and increments its version.
+     *
+     * @param employee        the new state of the employee, identified by its id
+     * @param expectedVersion the version the employee must still have, or null to overwrite any version
+     * @return the number of rows updated, 0 if the employee does not exist or no longer has the expected version
+     */
+    public Mono<Long> update(Employee employee, Long expectedVersion) {
+        String sql = "UPDATE EMPLOYEE SET EMPLOYEE_NAME = :name, EMPLOYEE_SALARY = :salary, DEPARTMENT = :department, "
+                + "VERSION = VERSION + 1, LAST_MODIFIED = :lastModified WHERE ID = :id"
+                + (expectedVersion == null ? "" : " AND VERSION = :version");
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("name", employee.getName())
+                .bind("salary", employee.getSalary())
+                .bind("department", employee.getDepartment())
+                .bind("lastModified", Instant.now())
+                .bind("id", employee.getId());
+        if (expectedVersion != null) {
+            spec = spec.bind("version", expectedVersion);
+        }
+        return spec.fetch().rowsUpdated().map(Number::longValue);
+    }
+
+    /**
+     * @param id the ID of the employee
+     * @return the number of rows deleted, 0 if the employee does not exist
+     */
+    public Mono<Long> deleteById(Long id) {
+        return client.sql("DELETE FROM EMPLOYEE WHERE ID = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(Number::longValue);
+    }
+
+    private static Employee toEmployee(Row row) {
+        Employee employee = new Employee();
+        employee.setId(row.get("ID", Long.class));
+        employee.setName(row.get("EMPLOYEE_NAME", String.class));
+        employee.setSalary(row.get("EMPLOYEE_SALARY", Integer.class));
+        employee.setDepartment(row.get("DEPARTMENT", String.class));
+        employee.setVersion(row.get("VERSION", Long.class));
+        employee.setLastModified(row.get("LAST_MODIFIED", Instant.class));
+        return employee;
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
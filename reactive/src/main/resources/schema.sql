@@ -0,0 +1,14 @@
+CREATE SEQUENCE IF NOT EXISTS EMPLOYEE_SEQ START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE IF NOT EXISTS EMPLOYEE (
+    ID BIGINT PRIMARY KEY,
+    EMPLOYEE_NAME VARCHAR(255),
+    EMPLOYEE_SALARY INTEGER,
+    DEPARTMENT VARCHAR(255),
+    VERSION BIGINT NOT NULL,
+    LAST_MODIFIED TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_DEPARTMENT ON EMPLOYEE (DEPARTMENT, ID);
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_SALARY ON EMPLOYEE (EMPLOYEE_SALARY);
+CREATE INDEX IF NOT EXISTS IDX_EMPLOYEE_NAME ON EMPLOYEE (EMPLOYEE_NAME);
@@ -0,0 +1,164 @@
+package jp.co.axa.apidemo.reactive.controllers;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "employees.export.chunk-size=2")
+@AutoConfigureWebTestClient
+public class ReactiveEmployeeTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    public void rejectsRequestsWithoutValidAccessToken() {
+        webTestClient.get().uri("/api/v1/employees")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        webTestClient.get().uri("/api/v1/employees")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer not-a-token")
+                .exchange()
+                .expectStatus().isUnauthorized();
+        String refreshToken = Jwts.builder()
+                .setSubject("user")
+                .claim("typ", "refresh")
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)))
+                .signWith(SignatureAlgorithm.HS256, "secret")
+                .compact();
+        webTestClient.get().uri("/api/v1/employees")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + refreshToken)
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    public void managesEmployees() {
+        Employee saved = authorized(webTestClient.post().uri("/api/v1/employees"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee(null, "Jane Doe", 1000, "Sales"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().value(HttpHeaders.LOCATION, containsString("/api/v1/employees/"))
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+        Long employeeId = saved.getId();
+
+        authorized(webTestClient.get().uri("/api/v1/employees/" + employeeId))
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        authorized(webTestClient.put().uri("/api/v1/employees/" + employeeId))
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(employee(employeeId, "Jane Doe", 1100, "Sales"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody().jsonPath("$.salary").isEqualTo(1100);
+        authorized(webTestClient.put().uri("/api/v1/employees/" + employeeId))
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .bodyValue(employee(employeeId, "Jane Doe", 1200, "Sales"))
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        authorized(webTestClient.get().uri(uri -> uri.path("/api/v1/employees").queryParam("namePrefix", "Jane").build()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.items[0].salary").isEqualTo(1100);
+        authorized(webTestClient.delete().uri("/api/v1/employees/" + employeeId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).isEqualTo("Employee Deleted Successfully");
+        authorized(webTestClient.get().uri("/api/v1/employees/" + employeeId))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void appliesEmployeeValidationRules() {
+        authorized(webTestClient.post().uri("/api/v1/employees"))
+                .bodyValue(employee(null, "R2D2", 1000, "Robotics"))
+                .exchange()
+                .expectStatus().isBadRequest();
+        authorized(webTestClient.post().uri("/api/v1/employees"))
+                .bodyValue(employee(null, "Jane Doe", -1, "Sales"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void pagesAndExportsEmployees() {
+        for (int i = 0; i < 5; i++) {
+            authorized(webTestClient.post().uri("/api/v1/employees"))
+                    .bodyValue(employee(null, "Exported", 2000 + i, "Export"))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        EmployeePage firstPage = authorized(webTestClient.get().uri("/api/v1/employees?department=Export&limit=3"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(EmployeePage.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(3, firstPage.getItems().size());
+        String cursor = firstPage.getNextCursor();
+        authorized(webTestClient.get().uri("/api/v1/employees?department=Export&limit=3&after=" + cursor))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.items.length()").isEqualTo(2)
+                .jsonPath("$.nextCursor").doesNotExist();
+
+        Flux<Employee> exported = authorized(webTestClient.get().uri("/api/v1/employees/export"))
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Employee.class)
+                .getResponseBody()
+                .filter(employee -> "Export".equals(employee.getDepartment()));
+        StepVerifier.create(exported, 1)
+                .expectNextMatches(employee -> employee.getSalary() == 2000)
+                .thenRequest(4)
+                .expectNextCount(4)
+                .verifyComplete();
+    }
+
+    private static <S extends WebTestClient.RequestHeadersSpec<?>> S authorized(S request) {
+        String token = Jwts.builder()
+                .setSubject("user")
+                .claim("authorities", Collections.singletonList("ROLE_USER"))
+                .setExpiration(new Date(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5)))
+                .signWith(SignatureAlgorithm.HS256, "secret")
+                .compact();
+        request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+
+    private static Employee employee(Long id, String name, Integer salary, String department) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        employee.setName(name);
+        employee.setSalary(salary);
+        employee.setDepartment(department);
+        return employee;
+    }
+}
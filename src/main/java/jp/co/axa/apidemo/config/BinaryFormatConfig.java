@@ -0,0 +1,34 @@
+package jp.co.axa.apidemo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary alternatives to JSON for Java clients, negotiated through the Accept and Content-Type headers.
+ * CBOR and Smile encode the same Jackson model as JSON, so every endpoint that reads or writes JSON bodies
+ * through message converters supports them too. JSON stays the default when the client expresses no preference.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+    }
+
+    /**
+     * Smile back-references repeated field names and short string values, so pages of employees shrink further
+     * than with CBOR.
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        return new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build());
+    }
+}
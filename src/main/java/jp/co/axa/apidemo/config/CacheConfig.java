@@ -0,0 +1,18 @@
+package jp.co.axa.apidemo.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the Caffeine-backed caches declared in application.properties.
+ * Hit, miss and eviction counters are published by actuator under the cache.* metrics.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /**
+     * Read-through cache of employees by id, used by the employee service.
+     */
+    public static final String EMPLOYEE_CACHE = "employees";
+}
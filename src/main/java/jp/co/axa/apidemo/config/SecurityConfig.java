@@ -1,10 +1,12 @@
 package jp.co.axa.apidemo.config;
 
 import jp.co.axa.apidemo.filters.JwtRequestFilter;
+import jp.co.axa.apidemo.filters.RateLimitFilter;
 import jp.co.axa.apidemo.services.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -13,6 +15,7 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 @Configuration
@@ -22,6 +25,9 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
 
@@ -49,6 +55,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
     /**
      * Configures the HttpSecurity for request authorization and session management.
+     * Requests without a valid access token are answered with 401 Unauthorized.
      *
      * @param http The HttpSecurity to configure.
      * @throws Exception if an error occurs during the configuration.
@@ -56,10 +63,12 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
-                .exceptionHandling().and()
+                .exceptionHandling()
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED))
+                .and()
                 .csrf().disable()
                 .authorizeRequests()
-                .antMatchers("/authenticate").permitAll()
+                .antMatchers("/authenticate", "/authenticate/refresh", "/authenticate/revoke").permitAll()
                 .antMatchers(
                         "/v2/api-docs",
                         "/configuration/ui",
@@ -73,7 +82,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 .and()
-                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtRequestFilter.class);
     }
 
     /**
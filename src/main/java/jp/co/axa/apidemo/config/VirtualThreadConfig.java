@@ -0,0 +1,67 @@
+package jp.co.axa.apidemo.config;
+
+import jp.co.axa.apidemo.util.VirtualThreads;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Opt-in mode for JDK 21 and later where Tomcat serves every request on a new virtual thread instead of its
+ * bounded worker pool, so blocking repository calls park cheaply instead of holding a platform thread.
+ * Streamed responses and other async request processing run on virtual threads as well, since the virtual
+ * thread executor replaces the application task executor Spring MVC uses. Database concurrency stays bounded by the
+ * connection pool. Enabled with spring.threads.virtual.enabled, the property Spring Boot 3.2 uses for the
+ * same purpose; startup fails on older JDKs.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    private static final Logger LOGGER = LogManager.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Replaces the worker pool of every Tomcat connector with the virtual thread executor.
+     *
+     * @return the customizer of the Tomcat web server factory
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            ProtocolHandler protocolHandler = connector.getProtocolHandler();
+            if (protocolHandler instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) protocolHandler).setExecutor(executor);
+                LOGGER.info("Serving requests of " + protocolHandler.getClass().getSimpleName() + " on virtual threads");
+            }
+        });
+    }
+
+    /**
+     * Replaces the application task executor, so Spring MVC runs async requests and the employee export
+     * writes on virtual threads.
+     *
+     * @return the virtual thread executor as a task executor
+     */
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
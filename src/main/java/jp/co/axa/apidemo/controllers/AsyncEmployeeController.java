@@ -0,0 +1,352 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.config.BinaryFormatConfig;
+import jp.co.axa.apidemo.dto.EmployeeBatchResponse;
+import jp.co.axa.apidemo.dto.EmployeeIdsRequest;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.SparseEmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.SparseEmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exceptions.PayloadTooLargeException;
+import jp.co.axa.apidemo.exceptions.PersistenceQueueFullException;
+import jp.co.axa.apidemo.exceptions.ServiceUnavailableException;
+import jp.co.axa.apidemo.exceptions.UploadTooLargeException;
+import jp.co.axa.apidemo.services.EmployeeBatchService;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
+import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.services.PersistenceExecutor;
+import jp.co.axa.apidemo.util.TempFiles;
+import jp.co.axa.apidemo.validators.EmployeePatchValidator;
+import jp.co.axa.apidemo.validators.ValidEmployeeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Asynchronous variant of {@link EmployeeController}, serving the same endpoints when employees.async.enabled
+ * is set. Each request releases its container thread as soon as it is mapped; the database work runs on the
+ * {@link PersistenceExecutor} and the response is written once it completes. Requests are answered with 503
+ * when the executor is saturated or when their work does not complete within the timeout.
+ */
+@RestController
+@RequestMapping("/api/v1")
+@ConditionalOnProperty(name = "employees.async.enabled", havingValue = "true")
+public class AsyncEmployeeController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncEmployeeController.class);
+
+    private static final String DEFAULT_PAGE_SIZE = "20";
+
+    private final EmployeeController employeeController;
+
+    private final PersistenceExecutor persistenceExecutor;
+
+    private final long timeoutMillis;
+
+    private final long batchMaxBytes;
+
+    /**
+     * Constructs an AsyncEmployeeController running the endpoints of an {@link EmployeeController} on the
+     * given executor.
+     *
+     * @param employeeService        the service to be used for employee operations
+     * @param employeeBatchService   the service to be used for bulk employee operations
+     * @param objectMapper           the mapper used to read and write streamed bodies
+     * @param employeePatchValidator the validator used to read and check partial updates
+     * @param cborConverter          the converter whose mapper writes streamed CBOR bodies
+     * @param smileConverter         the converter whose mapper writes streamed Smile bodies
+     * @param employeeJsonCache      the cache of the JSON encoding of employees
+     * @param exportExecutor         the executor writing exports, the one Spring MVC runs async requests on
+     * @param persistenceExecutor    the executor running the database work
+     * @param timeoutMillis          the time after which a request is answered with 503
+     * @param batchMaxBytes          the maximum size of the body of a bulk save
+     */
+    public AsyncEmployeeController(EmployeeService employeeService,
+                                   EmployeeBatchService employeeBatchService,
+                                   ObjectMapper objectMapper,
+                                   EmployeePatchValidator employeePatchValidator,
+                                   MappingJackson2CborHttpMessageConverter cborConverter,
+                                   MappingJackson2SmileHttpMessageConverter smileConverter,
+                                   EmployeeJsonCache employeeJsonCache,
+                                   @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor exportExecutor,
+                                   PersistenceExecutor persistenceExecutor,
+                                   @Value("${employees.async.timeout-millis:10000}") long timeoutMillis,
+                                   @Value("${employees.async.batch-max-bytes:10485760}") long batchMaxBytes) {
+        this.employeeController = new EmployeeController(employeeService, employeeBatchService, objectMapper,
+                employeePatchValidator, cborConverter, smileConverter, employeeJsonCache, exportExecutor);
+        this.persistenceExecutor = persistenceExecutor;
+        this.timeoutMillis = timeoutMillis;
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    /**
+     * @see EmployeeController#getEmployees
+     */
+    @GetMapping("/employees")
+    public DeferredResult<ResponseEntity<EmployeePage>> getEmployees(@RequestParam(name = "after", required = false) String after,
+                                                                     @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+                                                                     @RequestParam(name = "department", required = false) String department,
+                                                                     @RequestParam(name = "minSalary", required = false) Integer minSalary,
+                                                                     @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+                                                                     @RequestParam(name = "namePrefix", required = false) String namePrefix,
+                                                                     @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return submit(() -> employeeController.getEmployees(after, limit, department, minSalary, maxSalary, namePrefix,
+                ifNoneMatch));
+    }
+
+    /**
+     * @see EmployeeController#getSparseEmployees
+     */
+    @GetMapping(value = "/employees", params = "fields")
+    public DeferredResult<ResponseEntity<SparseEmployeePage>> getSparseEmployees(@RequestParam(name = "after", required = false) String after,
+                                                                                 @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+                                                                                 @RequestParam(name = "department", required = false) String department,
+                                                                                 @RequestParam(name = "minSalary", required = false) Integer minSalary,
+                                                                                 @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+                                                                                 @RequestParam(name = "namePrefix", required = false) String namePrefix,
+                                                                                 @RequestParam(name = "fields") String fields,
+                                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return submit(() -> employeeController.getSparseEmployees(after, limit, department, minSalary, maxSalary,
+                namePrefix, fields, ifNoneMatch));
+    }
+
+    /**
+     * @see EmployeeController#getEmployeesByIds
+     */
+    @GetMapping(value = "/employees", params = "ids")
+    public DeferredResult<ResponseEntity<EmployeeLookupResponse>> getEmployeesByIds(@Valid EmployeeIdsRequest request) {
+        return submit(() -> employeeController.getEmployeesByIds(request));
+    }
+
+    /**
+     * @see EmployeeController#getSparseEmployeesByIds
+     */
+    @GetMapping(value = "/employees", params = {"ids", "fields"})
+    public DeferredResult<ResponseEntity<SparseEmployeeLookupResponse>> getSparseEmployeesByIds(@Valid EmployeeIdsRequest request,
+                                                                                                @RequestParam(name = "fields") String fields) {
+        return submit(() -> employeeController.getSparseEmployeesByIds(request, fields));
+    }
+
+    /**
+     * @see EmployeeController#lookupEmployees
+     */
+    @PostMapping("/employees/lookup")
+    public DeferredResult<ResponseEntity<EmployeeLookupResponse>> lookupEmployees(@Valid @RequestBody EmployeeIdsRequest request) {
+        return submit(() -> employeeController.lookupEmployees(request));
+    }
+
+    /**
+     * @see EmployeeController#lookupSparseEmployees
+     */
+    @PostMapping(value = "/employees/lookup", params = "fields")
+    public DeferredResult<ResponseEntity<SparseEmployeeLookupResponse>> lookupSparseEmployees(@Valid @RequestBody EmployeeIdsRequest request,
+                                                                                              @RequestParam(name = "fields") String fields) {
+        return submit(() -> employeeController.lookupSparseEmployees(request, fields));
+    }
+
+    /**
+     * Exports all employees as newline-delimited JSON, CBOR or Smile. The export is already streamed outside the
+     * container thread, so it is served as in {@link EmployeeController#exportEmployees}.
+     */
+    @GetMapping(value = "/employees/export", produces = {"application/x-ndjson",
+            BinaryFormatConfig.APPLICATION_CBOR_VALUE, BinaryFormatConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> exportEmployees(@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        return employeeController.exportEmployees(accept);
+    }
+
+    /**
+     * @see EmployeeController#getEmployee
+     */
+    @GetMapping("/employees/{employeeId}")
+    public DeferredResult<ResponseEntity<?>> getEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                         @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return submit(() -> employeeController.getEmployee(employeeId, accept, ifNoneMatch));
+    }
+
+    /**
+     * @see EmployeeController#getSparseEmployee
+     */
+    @GetMapping(value = "/employees/{employeeId}", params = "fields")
+    public DeferredResult<ResponseEntity<Map<String, Object>>> getSparseEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                                                 @RequestParam(name = "fields") String fields,
+                                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return submit(() -> employeeController.getSparseEmployee(employeeId, fields, ifNoneMatch));
+    }
+
+    /**
+     * @see EmployeeController#saveEmployee
+     */
+    @PostMapping("/employees")
+    public DeferredResult<ResponseEntity<Employee>> saveEmployee(@Valid @RequestBody Employee employee) {
+        return submit(() -> employeeController.saveEmployee(employee));
+    }
+
+    /**
+     * Saves a JSON array of new employees in bulk, as in {@link EmployeeController#saveEmployees}.
+     * The body is copied to a temporary file on the container thread first, so the persistence thread never
+     * waits on the network nor reads a request that has already been answered. Once the request has timed out,
+     * no further chunk is inserted, although the chunks already inserted stay.
+     *
+     * @param request the request whose body is the JSON array of employees
+     * @return the result completed with the outcome of each item
+     * @throws PayloadTooLargeException if the body is longer than employees.async.batch-max-bytes
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/employees/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<EmployeeBatchResponse>> saveEmployees(HttpServletRequest request) throws IOException {
+        Path body;
+        try {
+            body = TempFiles.spool(request.getInputStream(), "employee-batch-", ".json", batchMaxBytes);
+        } catch (UploadTooLargeException e) {
+            throw new PayloadTooLargeException(e.getMessage());
+        }
+        return submit(cancelled -> {
+            try (InputStream in = Files.newInputStream(body)) {
+                return employeeController.saveEmployees(in, cancelled);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, () -> delete(body));
+    }
+
+    /**
+     * @see EmployeeController#deleteEmployee
+     */
+    @DeleteMapping("/employees/{employeeId}")
+    public DeferredResult<ResponseEntity<String>> deleteEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
+        return submit(() -> employeeController.deleteEmployee(employeeId));
+    }
+
+    /**
+     * @see EmployeeController#updateEmployee
+     */
+    @PutMapping("/employees/{employeeId}")
+    public DeferredResult<ResponseEntity<Employee>> updateEmployee(@Valid @RequestBody Employee employee,
+                                                                   @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return submit(() -> employeeController.updateEmployee(employee, employeeId, ifMatch));
+    }
+
+    /**
+     * @see EmployeeController#patchEmployee
+     */
+    @PatchMapping(value = "/employees/{employeeId}",
+            consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE,
+                    BinaryFormatConfig.APPLICATION_CBOR_VALUE, BinaryFormatConfig.APPLICATION_SMILE_VALUE})
+    public DeferredResult<ResponseEntity<Void>> patchEmployee(@RequestBody JsonNode patch,
+                                                              @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return submit(() -> employeeController.patchEmployee(patch, employeeId, ifMatch));
+    }
+
+    /**
+     * Runs the work of a request on the persistence executor.
+     *
+     * @param work the work producing the response
+     * @return the result completed with the response, or with the exception thrown by the work
+     * @throws ServiceUnavailableException if the executor is saturated
+     * @see #submit(CancellableWork, Runnable)
+     */
+    private <T> DeferredResult<T> submit(Callable<T> work) {
+        return submit(cancelled -> work.call(), () -> { });
+    }
+
+    /**
+     * Runs the work of a request on the persistence executor.
+     * The attributes of the request are made available to the work, which builds URIs from the current request.
+     * Work still queued when the request times out is dropped; work already running is told it is cancelled
+     * and should stop early.
+     *
+     * @param work    the work producing the response
+     * @param release releases the resources of the work once it has run, or once it is dropped or rejected
+     * @return the result completed with the response, or with the exception thrown by the work
+     * @throws ServiceUnavailableException if the executor is saturated
+     */
+    private <T> DeferredResult<T> submit(CancellableWork<T> work, Runnable release) {
+        DeferredResult<T> result = new DeferredResult<>(timeoutMillis);
+        RequestAttributes requestAttributes = RequestContextHolder.currentRequestAttributes();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<?> future;
+        try {
+            future = persistenceExecutor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                RequestContextHolder.setRequestAttributes(requestAttributes);
+                try {
+                    result.setResult(work.call(result::isSetOrExpired));
+                } catch (Exception e) {
+                    result.setErrorResult(e instanceof UncheckedIOException ? e.getCause() : e);
+                } finally {
+                    RequestContextHolder.resetRequestAttributes();
+                    release.run();
+                }
+            });
+        } catch (PersistenceQueueFullException e) {
+            release.run();
+            LOG.error("Persistence executor is saturated, rejecting request");
+            throw new ServiceUnavailableException(e.getMessage());
+        }
+        result.onTimeout(() -> {
+            future.cancel(false);
+            if (claimed.compareAndSet(false, true)) {
+                release.run();
+            }
+            LOG.error("Request timed out after {} ms", timeoutMillis);
+            result.setErrorResult(new ServiceUnavailableException("Request timed out"));
+        });
+        return result;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOG.warn("Could not delete the temporary batch file: {}", file, e);
+        }
+    }
+
+    /**
+     * Work of a request that can stop early once the request has been answered.
+     */
+    @FunctionalInterface
+    private interface CancellableWork<T> {
+
+        /**
+         * @param cancelled returns true once the request has been answered, for instance after timing out
+         * @return the response
+         */
+        T call(BooleanSupplier cancelled) throws Exception;
+    }
+}
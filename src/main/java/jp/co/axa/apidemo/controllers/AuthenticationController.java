@@ -2,45 +2,82 @@ package jp.co.axa.apidemo.controllers;
 
 import jp.co.axa.apidemo.dto.AuthenticationRequest;
 import jp.co.axa.apidemo.dto.AuthenticationResponse;
-import jp.co.axa.apidemo.services.CustomUserDetailsService;
-import jp.co.axa.apidemo.util.JwtUtil;
+import jp.co.axa.apidemo.dto.RefreshTokenRequest;
+import jp.co.axa.apidemo.dto.RevokeTokenRequest;
+import jp.co.axa.apidemo.exceptions.AuthenticationQueueFullException;
+import jp.co.axa.apidemo.exceptions.InvalidTokenException;
+import jp.co.axa.apidemo.exceptions.ServiceUnavailableException;
+import jp.co.axa.apidemo.exceptions.UnauthorizedException;
+import jp.co.axa.apidemo.services.AuthenticationService;
+import jp.co.axa.apidemo.services.TokenService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 public class AuthenticationController {
 
     @Autowired
-    private AuthenticationManager authenticationManager;
-
-    @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private AuthenticationService authenticationService;
 
     @Autowired
-    private JwtUtil jwtUtil;
+    private TokenService tokenService;
 
     /**
-     * Creates an authentication token for the provided credentials.
+     * Creates an access token and a refresh token for the provided credentials.
+     * The credentials are checked on the authentication pool, which releases the request thread meanwhile.
      *
      * @param authenticationRequest The authentication request containing the username and password.
-     * @return ResponseEntity containing the authentication response with a JWT token.
-     * @throws Exception if an error occurs during the authentication process.
+     * @return A future of the ResponseEntity containing the authentication response with the tokens,
+     * completed with the authentication error if the credentials are incorrect.
+     * @throws ServiceUnavailableException if the authentication pool is saturated.
      */
     @RequestMapping(value = "/authenticate", method = RequestMethod.POST)
-    public ResponseEntity<?> createAuthenticationToken(@RequestBody AuthenticationRequest authenticationRequest) throws Exception {
+    public CompletableFuture<ResponseEntity<AuthenticationResponse>> createAuthenticationToken(
+            @RequestBody AuthenticationRequest authenticationRequest) {
+        try {
+            return authenticationService
+                    .authenticate(authenticationRequest.getUsername(), authenticationRequest.getPassword())
+                    .thenApply(userDetails -> ResponseEntity.ok(tokenService.issueTokens(userDetails)));
+        } catch (AuthenticationQueueFullException e) {
+            throw new ServiceUnavailableException(e.getMessage());
+        }
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and refresh token. A refresh token can be used once.
+     *
+     * @param refreshTokenRequest The request containing the refresh token.
+     * @return The ResponseEntity containing the authentication response with the new tokens.
+     * @throws UnauthorizedException if the refresh token is invalid, expired, revoked or already used.
+     */
+    @RequestMapping(value = "/authenticate/refresh", method = RequestMethod.POST)
+    public ResponseEntity<AuthenticationResponse> refreshAuthenticationToken(
+            @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        try {
+            return ResponseEntity.ok(tokenService.refresh(refreshTokenRequest.getRefreshToken()));
+        } catch (InvalidTokenException e) {
+            throw new UnauthorizedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Revokes an access token or a refresh token until it expires.
+     *
+     * @param revokeTokenRequest The request containing the token to revoke.
+     * @return An empty ResponseEntity with status 204.
+     * @throws UnauthorizedException if the token is invalid or expired.
+     */
+    @RequestMapping(value = "/authenticate/revoke", method = RequestMethod.POST)
+    public ResponseEntity<Void> revokeAuthenticationToken(@RequestBody RevokeTokenRequest revokeTokenRequest) {
         try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(authenticationRequest.getUsername(), authenticationRequest.getPassword())
-            );
-        } catch (Exception e) {
-            throw new Exception("Incorrect username or password", e);
+            tokenService.revoke(revokeTokenRequest.getToken());
+        } catch (InvalidTokenException e) {
+            throw new UnauthorizedException(e.getMessage());
         }
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(authenticationRequest.getUsername());
-        final String jwt = jwtUtil.generateToken(userDetails);
-        return ResponseEntity.ok(new AuthenticationResponse(jwt));
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
 }
@@ -0,0 +1,44 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.services.DepartmentStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Controller for department-level statistics.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class DepartmentController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DepartmentController.class);
+
+    private final DepartmentStatsService departmentStatsService;
+
+    /**
+     * Constructs a DepartmentController with the given DepartmentStatsService.
+     *
+     * @param departmentStatsService the service holding the department statistics
+     */
+    public DepartmentController(DepartmentStatsService departmentStatsService) {
+        this.departmentStatsService = departmentStatsService;
+    }
+
+    /**
+     * Retrieves the headcount and the total, minimum, maximum and average salary of every department.
+     *
+     * @return ResponseEntity containing the statistics of each department, ordered by department name
+     */
+    @GetMapping("/departments/stats")
+    public ResponseEntity<List<DepartmentStats>> getDepartmentStats() {
+        LOG.info("Retrieving department statistics");
+        return ResponseEntity.ok(departmentStatsService.getDepartmentStats());
+    }
+}
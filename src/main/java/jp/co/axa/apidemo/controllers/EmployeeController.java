@@ -2,65 +2,431 @@ package jp.co.axa.apidemo.controllers;
 
 import javax.validation.Valid;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jp.co.axa.apidemo.config.BinaryFormatConfig;
+import jp.co.axa.apidemo.dto.EmployeeBatchResponse;
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeeIdsRequest;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
+import jp.co.axa.apidemo.dto.SparseEmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.SparseEmployeePage;
 import jp.co.axa.apidemo.entities.Employee;
 import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.EmployeeVersionMismatchException;
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+import jp.co.axa.apidemo.exceptions.PreconditionFailedException;
+import jp.co.axa.apidemo.services.EmployeeBatchService;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
+import jp.co.axa.apidemo.services.EmployeeJsonCache.CachedEmployee;
 import jp.co.axa.apidemo.services.EmployeeService;
 import jp.co.axa.apidemo.exceptions.ResourceNotFoundException;
+import jp.co.axa.apidemo.util.ETags;
+import jp.co.axa.apidemo.util.EmployeeCursor;
+import jp.co.axa.apidemo.util.EmployeeFields;
+import jp.co.axa.apidemo.validators.EmployeePatchValidator;
 import jp.co.axa.apidemo.validators.ValidEmployeeId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 /**
- * Controller for managing employees.
+ * Controller for managing employees. Replaced by {@link AsyncEmployeeController} when employees.async.enabled is set.
+ * Bodies are read and written as JSON, CBOR or Smile, as negotiated with the client (see {@link BinaryFormatConfig}).
  */
 @RestController
 @RequestMapping("/api/v1")
+@ConditionalOnProperty(name = "employees.async.enabled", havingValue = "false", matchIfMissing = true)
 public class EmployeeController {
 
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeController.class);
 
+    private static final String DEFAULT_PAGE_SIZE = "20";
+
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * Timeout of the export, which streams for as long as it takes to write every employee.
+     */
+    private static final long NO_TIMEOUT = -1L;
+
+    /**
+     * Size of the chunks the export is sent to the client in.
+     */
+    private static final int EXPORT_CHUNK_SIZE = 64 * 1024;
+
+    private static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+
+    /**
+     * The formats a single employee is served in, JSON first as the default.
+     */
+    private static final List<MediaType> EMPLOYEE_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+            MediaType.parseMediaType(BinaryFormatConfig.APPLICATION_CBOR_VALUE),
+            MediaType.parseMediaType(BinaryFormatConfig.APPLICATION_SMILE_VALUE));
+
     private final EmployeeService employeeService;
 
+    private final EmployeeBatchService employeeBatchService;
+
+    private final ObjectMapper objectMapper;
+
+    private final EmployeePatchValidator employeePatchValidator;
+
+    private final EmployeeJsonCache employeeJsonCache;
+
+    /**
+     * The mappers writing each export format, newline-delimited JSON first as the default.
+     */
+    private final Map<MediaType, ObjectMapper> exportMappers = new LinkedHashMap<>();
+
+    private final TaskExecutor exportExecutor;
+
     /**
      * Constructs an EmployeeController with the given EmployeeService.
      *
-     * @param employeeService the service to be used for employee operations
+     * @param employeeService        the service to be used for employee operations
+     * @param employeeBatchService   the service to be used for bulk employee operations
+     * @param objectMapper           the mapper used to read and write streamed bodies
+     * @param employeePatchValidator the validator used to read and check partial updates
+     * @param cborConverter          the converter whose mapper writes streamed CBOR bodies
+     * @param smileConverter         the converter whose mapper writes streamed Smile bodies
+     * @param employeeJsonCache      the cache of the JSON encoding of employees
+     * @param exportExecutor         the executor writing exports, the one Spring MVC runs async requests on
      */
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService,
+                              EmployeeBatchService employeeBatchService,
+                              ObjectMapper objectMapper,
+                              EmployeePatchValidator employeePatchValidator,
+                              MappingJackson2CborHttpMessageConverter cborConverter,
+                              MappingJackson2SmileHttpMessageConverter smileConverter,
+                              EmployeeJsonCache employeeJsonCache,
+                              @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor exportExecutor) {
         this.employeeService = employeeService;
+        this.exportExecutor = exportExecutor;
+        this.employeeBatchService = employeeBatchService;
+        this.objectMapper = objectMapper;
+        this.employeePatchValidator = employeePatchValidator;
+        this.employeeJsonCache = employeeJsonCache;
+        this.exportMappers.put(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE), objectMapper);
+        this.exportMappers.put(MediaType.parseMediaType(BinaryFormatConfig.APPLICATION_CBOR_VALUE),
+                cborConverter.getObjectMapper());
+        this.exportMappers.put(MediaType.parseMediaType(BinaryFormatConfig.APPLICATION_SMILE_VALUE),
+                smileConverter.getObjectMapper());
     }
 
     /**
-     * Retrieves a list of all employees.
+     * Retrieves a page of employees in id order, optionally filtered.
      *
-     * @return ResponseEntity containing a list of all employees
+     * @param after      the opaque cursor returned as nextCursor by the previous page, absent for the first page
+     * @param limit      the maximum number of employees to return, capped server-side
+     * @param department only return employees of this department
+     * @param minSalary  only return employees earning at least this salary
+     * @param maxSalary  only return employees earning at most this salary
+     * @param namePrefix only return employees whose name starts with this prefix
+     * @param ifNoneMatch the collection ETag of a listing the client already has
+     * @return ResponseEntity containing the page of employees and the cursor of the next page,
+     * or 304 Not Modified without a body if no employee has been written since the client's listing
+     * @throws InvalidRequestException if the cursor is malformed, the limit is not positive or the salary range is empty
      */
     @GetMapping("/employees")
-    public ResponseEntity<List<Employee>> getEmployees() {
-        LOG.info("Retrieving all employees");
-        List<Employee> employees = employeeService.retrieveEmployees();
-        return ResponseEntity.ok(employees);
+    public ResponseEntity<EmployeePage> getEmployees(@RequestParam(name = "after", required = false) String after,
+                                                     @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+                                                     @RequestParam(name = "department", required = false) String department,
+                                                     @RequestParam(name = "minSalary", required = false) Integer minSalary,
+                                                     @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+                                                     @RequestParam(name = "namePrefix", required = false) String namePrefix,
+                                                     @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LOG.info("Retrieving employees after cursor: {}", after);
+        checkListing(limit, minSalary, maxSalary);
+        Long afterId = EmployeeCursor.decode(after);
+        String etag = ETags.of(employeeService.getCollectionVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        EmployeeFilter filter = new EmployeeFilter(department, minSalary, maxSalary, namePrefix);
+        EmployeePage page = employeeService.retrieveEmployees(filter, afterId, limit);
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(page);
+    }
+
+    /**
+     * Retrieves a page of employees in id order, optionally filtered, with only the requested fields,
+     * e.g. {@code ?fields=name}. Only the columns of those fields are read from the database.
+     *
+     * @param after       the opaque cursor returned as nextCursor by the previous page, absent for the first page
+     * @param limit       the maximum number of employees to return, capped server-side
+     * @param department  only return employees of this department
+     * @param minSalary   only return employees earning at least this salary
+     * @param maxSalary   only return employees earning at most this salary
+     * @param namePrefix  only return employees whose name starts with this prefix
+     * @param fields      the comma-separated fields to return; the id and the version are always returned
+     * @param ifNoneMatch the collection ETag of a listing the client already has
+     * @return ResponseEntity containing the page of employees and the cursor of the next page,
+     * or 304 Not Modified without a body if no employee has been written since the client's listing
+     * @throws InvalidRequestException if the cursor is malformed, the limit is not positive, the salary range is
+     *                                 empty or a field is unknown
+     */
+    @GetMapping(value = "/employees", params = "fields")
+    public ResponseEntity<SparseEmployeePage> getSparseEmployees(@RequestParam(name = "after", required = false) String after,
+                                                                 @RequestParam(name = "limit", defaultValue = DEFAULT_PAGE_SIZE) int limit,
+                                                                 @RequestParam(name = "department", required = false) String department,
+                                                                 @RequestParam(name = "minSalary", required = false) Integer minSalary,
+                                                                 @RequestParam(name = "maxSalary", required = false) Integer maxSalary,
+                                                                 @RequestParam(name = "namePrefix", required = false) String namePrefix,
+                                                                 @RequestParam(name = "fields") String fields,
+                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LOG.info("Retrieving fields {} of employees after cursor: {}", fields, after);
+        checkListing(limit, minSalary, maxSalary);
+        List<String> selected = EmployeeFields.parse(fields);
+        Long afterId = EmployeeCursor.decode(after);
+        String etag = ETags.of(employeeService.getCollectionVersion());
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        EmployeeFilter filter = new EmployeeFilter(department, minSalary, maxSalary, namePrefix);
+        SparseEmployeePage page = employeeService.retrieveEmployeeFields(filter, afterId, limit, selected);
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(page);
+    }
+
+    /**
+     * Retrieves many employees by their ids in one query, e.g. {@code ?ids=1,2,3}.
+     * Ids that do not exist are reported as missing rather than failing the request.
+     *
+     * @param request the ids of the employees, bound from the comma-separated ids parameter
+     * @return ResponseEntity containing the employees found and the ids that were not found
+     */
+    @GetMapping(value = "/employees", params = "ids")
+    public ResponseEntity<EmployeeLookupResponse> getEmployeesByIds(@Valid EmployeeIdsRequest request) {
+        return lookupEmployees(request);
+    }
+
+    /**
+     * Retrieves only the requested fields of many employees by their ids, e.g. {@code ?ids=1,2,3&fields=name}.
+     *
+     * @param request the ids of the employees, bound from the comma-separated ids parameter
+     * @param fields  the comma-separated fields to return; the id and the version are always returned
+     * @return ResponseEntity containing the employees found and the ids that were not found
+     * @throws InvalidRequestException if a field is unknown
+     */
+    @GetMapping(value = "/employees", params = {"ids", "fields"})
+    public ResponseEntity<SparseEmployeeLookupResponse> getSparseEmployeesByIds(@Valid EmployeeIdsRequest request,
+                                                                                @RequestParam(name = "fields") String fields) {
+        return lookupSparseEmployees(request, fields);
+    }
+
+    /**
+     * Retrieves many employees by their ids in one query, for lists of ids too long for a query string.
+     *
+     * @param request the ids of the employees
+     * @return ResponseEntity containing the employees found and the ids that were not found
+     */
+    @PostMapping("/employees/lookup")
+    public ResponseEntity<EmployeeLookupResponse> lookupEmployees(@Valid @RequestBody EmployeeIdsRequest request) {
+        LOG.info("Retrieving {} employees by ID", request.getIds().size());
+        return ResponseEntity.ok(employeeService.getEmployees(request.getIds()));
+    }
+
+    /**
+     * Retrieves only the requested fields of many employees by their ids, for lists of ids too long for a
+     * query string.
+     *
+     * @param request the ids of the employees
+     * @param fields  the comma-separated fields to return; the id and the version are always returned
+     * @return ResponseEntity containing the employees found and the ids that were not found
+     * @throws InvalidRequestException if a field is unknown
+     */
+    @PostMapping(value = "/employees/lookup", params = "fields")
+    public ResponseEntity<SparseEmployeeLookupResponse> lookupSparseEmployees(@Valid @RequestBody EmployeeIdsRequest request,
+                                                                              @RequestParam(name = "fields") String fields) {
+        LOG.info("Retrieving fields {} of {} employees by ID", fields, request.getIds().size());
+        List<String> selected = EmployeeFields.parse(fields);
+        return ResponseEntity.ok(employeeService.lookupEmployeeFields(request.getIds(), selected));
+    }
+
+    /**
+     * Exports all employees as newline-delimited JSON, one employee per line, or, when the client prefers a binary
+     * format, as a CBOR sequence (RFC 8742) or a stream of Smile root values.
+     * Rows are written to the response as they are read from the database, so memory use stays
+     * flat regardless of the number of employees. The export is exempt from the async request timeout,
+     * which still applies to every other request.
+     *
+     * @param accept the media types the client accepts, newline-delimited JSON if absent or a wildcard
+     * @return ResponseEntity streaming every employee in id order
+     */
+    @GetMapping(value = "/employees/export", produces = {APPLICATION_NDJSON_VALUE,
+            BinaryFormatConfig.APPLICATION_CBOR_VALUE, BinaryFormatConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> exportEmployees(@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType contentType = exportType(accept);
+        LOG.info("Exporting all employees as {}", contentType);
+        ObjectMapper mapper = exportMappers.get(contentType);
+        boolean json = mapper == objectMapper;
+        ObjectWriter writer = mapper.writerFor(Employee.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(NO_TIMEOUT);
+        exportExecutor.execute(() -> {
+            OutputStream outputStream = new BufferedOutputStream(new EmitterOutputStream(emitter), EXPORT_CHUNK_SIZE);
+            try (JsonGenerator generator = mapper.getFactory().createGenerator(outputStream)) {
+                if (json) {
+                    generator.setRootValueSeparator(null);
+                }
+                employeeService.exportEmployees(employee -> {
+                    try {
+                        writer.writeValue(generator, employee);
+                        if (json) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                LOG.error("Export of employees failed", e);
+                emitter.completeWithError(e);
+                return;
+            }
+            emitter.complete();
+            LOG.info("Employees Exported Successfully");
+        });
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(emitter);
     }
 
     /**
      * Retrieves an employee by their ID.
+     * JSON, which is also served when the client accepts any format, is kept encoded in the
+     * {@link EmployeeJsonCache} and written as is while the employee is unchanged, so hot employees are
+     * neither loaded nor serialized again. CBOR and Smile are encoded on every request.
      *
-     * @param employeeId the ID of the employee to retrieve
-     * @return ResponseEntity containing the employee with the specified ID
+     * @param employeeId  the ID of the employee to retrieve
+     * @param accept      the media types the client accepts
+     * @param ifNoneMatch the ETag of the version of the employee the client already has
+     * @return ResponseEntity containing the employee with the specified ID, or 304 Not Modified without
+     * a body if the client already has its current version
      * @throws ResourceNotFoundException if the employee with the given ID is not found
      */
     @GetMapping("/employees/{employeeId}")
-    public ResponseEntity<Employee> getEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
+    public ResponseEntity<?> getEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                         @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (MediaType.APPLICATION_JSON.equals(negotiate(accept, EMPLOYEE_TYPES))) {
+            return getEmployeeJson(employeeId, ifNoneMatch);
+        }
+        return readEmployee(employeeId, ifNoneMatch);
+    }
+
+    private ResponseEntity<byte[]> getEmployeeJson(Long employeeId, String ifNoneMatch) {
+        CachedEmployee cached = employeeJsonCache.get(employeeId);
+        if (cached != null) {
+            LOG.info("Retrieving cached employee with ID: {}", employeeId);
+            if (ifNoneMatch != null && ETags.matches(ifNoneMatch, ETags.of(cached.getVersion()))) {
+                return versioned(ResponseEntity.status(HttpStatus.NOT_MODIFIED), cached.getVersion(), cached.getLastModified())
+                        .build();
+            }
+            return versioned(ResponseEntity.ok(), cached.getVersion(), cached.getLastModified())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(cached.getJson());
+        }
+        long stamp = employeeJsonCache.stamp(employeeId);
+        ResponseEntity<Employee> response = readEmployee(employeeId, ifNoneMatch);
+        Employee employee = response.getBody();
+        if (employee == null) {
+            return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).build();
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(employee);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        employeeJsonCache.put(stamp, employeeId, employee.getVersion(), employee.getLastModified(), json);
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+
+    private ResponseEntity<Employee> readEmployee(Long employeeId, String ifNoneMatch) {
         LOG.info("Retrieving employee with ID: {}", employeeId);
         try {
+            if (ifNoneMatch != null) {
+                EmployeeVersion current = employeeService.getEmployeeVersion(employeeId);
+                if (ETags.matches(ifNoneMatch, ETags.of(current.getVersion()))) {
+                    return versioned(ResponseEntity.status(HttpStatus.NOT_MODIFIED), current.getVersion(), current.getLastModified())
+                            .build();
+                }
+            }
             Employee employee = employeeService.getEmployee(employeeId);
-            return ResponseEntity.ok(employee);
+            return versioned(ResponseEntity.ok(), employee.getVersion(), employee.getLastModified()).body(employee);
+        } catch (EmployeeNotFoundException e) {
+            LOG.error("Employee not found with ID: {}", employeeId);
+            throw new ResourceNotFoundException("Employee not found with ID: " + employeeId);
+        }
+    }
+
+    /**
+     * Retrieves only the requested fields of an employee by their ID, e.g. {@code ?fields=name}.
+     *
+     * @param employeeId  the ID of the employee to retrieve
+     * @param fields      the comma-separated fields to return; the id and the version are always returned
+     * @param ifNoneMatch the ETag of the version of the employee the client already has
+     * @return ResponseEntity containing the fields of the employee, or 304 Not Modified without a body if the
+     * client already has its current version
+     * @throws InvalidRequestException if a field is unknown
+     * @throws ResourceNotFoundException if the employee with the given ID is not found
+     */
+    @GetMapping(value = "/employees/{employeeId}", params = "fields")
+    public ResponseEntity<Map<String, Object>> getSparseEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                                 @RequestParam(name = "fields") String fields,
+                                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        LOG.info("Retrieving fields {} of employee with ID: {}", fields, employeeId);
+        List<String> selected = EmployeeFields.parse(fields);
+        try {
+            if (ifNoneMatch != null) {
+                EmployeeVersion current = employeeService.getEmployeeVersion(employeeId);
+                if (ETags.matches(ifNoneMatch, ETags.of(current.getVersion()))) {
+                    return versioned(ResponseEntity.status(HttpStatus.NOT_MODIFIED), current.getVersion(), current.getLastModified())
+                            .build();
+                }
+            }
+            Map<String, Object> employee = employeeService.getEmployeeFields(employeeId, selected);
+            return versioned(ResponseEntity.ok(), (Long) employee.get(EmployeeFields.VERSION), null).body(employee);
         } catch (EmployeeNotFoundException e) {
             LOG.error("Employee not found with ID: {}", employeeId);
             throw new ResourceNotFoundException("Employee not found with ID: " + employeeId);
@@ -84,7 +450,48 @@ public class EmployeeController {
                 .buildAndExpand(savedEmployee.getId())
                 .toUri();
 
-        return ResponseEntity.created(location).body(savedEmployee);
+        return versioned(ResponseEntity.created(location), savedEmployee.getVersion(), savedEmployee.getLastModified())
+                .body(savedEmployee);
+    }
+
+    /**
+     * Saves a JSON array of new employees in bulk.
+     * The array is parsed incrementally, each item is validated on its own and valid items are inserted
+     * in batched, chunked transactions.
+     *
+     * @param request the request whose body is the JSON array of employees
+     * @return ResponseEntity containing the outcome of each item
+     * @throws InvalidRequestException if the body is not a JSON array
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/employees/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<EmployeeBatchResponse> saveEmployees(HttpServletRequest request) throws IOException {
+        return saveEmployees(request.getInputStream(), () -> false);
+    }
+
+    /**
+     * Creates employees in bulk from a JSON array, stopping once cancelled.
+     *
+     * @param body      the JSON array of employees
+     * @param cancelled returns true once nobody waits for the response any more
+     * @return ResponseEntity containing the result of each item read
+     * @throws InvalidRequestException if the body is not a JSON array
+     * @throws IOException if the body cannot be read
+     */
+    ResponseEntity<EmployeeBatchResponse> saveEmployees(InputStream body, BooleanSupplier cancelled) throws IOException {
+        LOG.info("Saving employees in bulk");
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidRequestException("Request body must be a JSON array of employees");
+            }
+            parser.clearCurrentToken();
+            MappingIterator<Employee> employees = objectMapper.readerFor(Employee.class).readValues(parser);
+            EmployeeBatchResponse response = employeeBatchService.saveEmployees(employees, cancelled);
+            LOG.info("Bulk save finished: {} created, {} failed", response.getCreated(), response.getFailed());
+            return ResponseEntity.ok(response);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Request body must be a JSON array of employees");
+        }
     }
 
     /**
@@ -98,7 +505,6 @@ public class EmployeeController {
     public ResponseEntity<String> deleteEmployee(@PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
         LOG.info("Deleting employee with ID: {}", employeeId);
         try {
-            Employee employee = employeeService.getEmployee(employeeId);
             employeeService.deleteEmployee(employeeId);
             LOG.info("Employee Deleted Successfully");
             return ResponseEntity.ok().body("Employee Deleted Successfully");
@@ -113,13 +519,17 @@ public class EmployeeController {
      *
      * @param employee   the employee object with updated details
      * @param employeeId the ID of the employee to be updated
+     * @param ifMatch    the ETags of the versions of the employee the client accepts to overwrite, absent to
+     *                   overwrite any version
      * @return ResponseEntity containing the updated employee
      * @throws IllegalArgumentException if the provided employeeId does not match the ID of the employee object
      * @throws ResourceNotFoundException if the employee with the given ID is not found
+     * @throws PreconditionFailedException if the employee no longer has a version listed in If-Match
      */
     @PutMapping("/employees/{employeeId}")
     public ResponseEntity<Employee> updateEmployee(@Valid @RequestBody Employee employee,
-                                                   @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
+                                                   @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         LOG.info("Updating employee with ID: {}", employeeId);
         if (!employeeId.equals(employee.getId())) {
             LOG.error("Mismatched employee IDs in request. Path variable ID: {}, Employee object ID: {}", employeeId, employee.getId());
@@ -127,13 +537,137 @@ public class EmployeeController {
         }
 
         try {
-            employeeService.updateEmployee(employee);
-            Employee updatedEmployee = employeeService.getEmployee(employeeId);
+            Employee updatedEmployee = employeeService.updateEmployee(employee, expectedVersion(employeeId, ifMatch));
             LOG.info("Employee Updated Successfully");
-            return ResponseEntity.ok(updatedEmployee);
+            return versioned(ResponseEntity.ok(), updatedEmployee.getVersion(), updatedEmployee.getLastModified())
+                    .body(updatedEmployee);
+        } catch (EmployeeNotFoundException e) {
+            LOG.error("Employee not found with ID: {}", employeeId);
+            throw new ResourceNotFoundException("Employee not found with ID: " + employeeId);
+        } catch (EmployeeVersionMismatchException e) {
+            LOG.error("Employee with ID: {} was modified concurrently", employeeId);
+            throw new PreconditionFailedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Partially updates an existing employee with a JSON Merge Patch (RFC 7396), sent as JSON or in a binary format.
+     * Only the fields present in the patch are validated and written, in a single UPDATE statement.
+     *
+     * @param patch      the merge patch, an object holding the new values of the fields to change
+     * @param employeeId the ID of the employee to be updated
+     * @param ifMatch    the ETags of the versions of the employee the client accepts to overwrite, absent to
+     *                   overwrite any version
+     * @return ResponseEntity without a body, carrying the new ETag of the employee when it is known
+     * @throws InvalidRequestException if the patch is not an object, is empty, or holds an unknown or invalid field
+     * @throws ResourceNotFoundException if the employee with the given ID is not found
+     * @throws PreconditionFailedException if the employee no longer has a version listed in If-Match
+     */
+    @PatchMapping(value = "/employees/{employeeId}",
+            consumes = {APPLICATION_MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE,
+                    BinaryFormatConfig.APPLICATION_CBOR_VALUE, BinaryFormatConfig.APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Void> patchEmployee(@RequestBody JsonNode patch,
+                                              @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        LOG.info("Patching employee with ID: {}", employeeId);
+        Map<String, Object> changes = employeePatchValidator.read(patch, employeeId);
+        try {
+            Long version = employeeService.patchEmployee(employeeId, changes, expectedVersion(employeeId, ifMatch));
+            LOG.info("Employee Patched Successfully");
+            return versioned(ResponseEntity.status(HttpStatus.NO_CONTENT), version, null).build();
         } catch (EmployeeNotFoundException e) {
             LOG.error("Employee not found with ID: {}", employeeId);
             throw new ResourceNotFoundException("Employee not found with ID: " + employeeId);
+        } catch (EmployeeVersionMismatchException e) {
+            LOG.error("Employee with ID: {} was modified concurrently", employeeId);
+            throw new PreconditionFailedException(e.getMessage());
+        }
+    }
+
+    /**
+     * Picks the export format the client prefers most, newline-delimited JSON among equally preferred ones.
+     */
+    private MediaType exportType(String accept) {
+        return negotiate(accept, exportMappers.keySet());
+    }
+
+    /**
+     * @return the first of the types the client accepts, in order of preference, or the first type if it
+     * accepts none of them
+     */
+    private static MediaType negotiate(String accept, Collection<MediaType> types) {
+        List<MediaType> accepted = accept == null ? Collections.singletonList(MediaType.ALL) : MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType acceptedType : accepted) {
+            for (MediaType type : types) {
+                if (acceptedType.includes(type)) {
+                    return type;
+                }
+            }
+        }
+        return types.iterator().next();
+    }
+
+    private static void checkListing(int limit, Integer minSalary, Integer maxSalary) {
+        if (limit < 1) {
+            throw new InvalidRequestException("Limit must be positive");
+        }
+        if (minSalary != null && maxSalary != null && minSalary > maxSalary) {
+            throw new InvalidRequestException("minSalary must not be greater than maxSalary");
+        }
+    }
+
+    /**
+     * Resolves an If-Match header to the version the update must be applied over.
+     * When several versions are listed, the current one is looked up and used if it is among them.
+     *
+     * @return the expected version, or null if any version may be overwritten
+     */
+    private Long expectedVersion(Long employeeId, String ifMatch) {
+        if (ifMatch == null || ETags.isWildcard(ifMatch)) {
+            return null;
+        }
+        List<Long> versions = ETags.strongVersions(ifMatch);
+        if (versions.size() == 1) {
+            return versions.get(0);
+        }
+        Long currentVersion = versions.isEmpty() ? null : employeeService.getEmployeeVersion(employeeId).getVersion();
+        if (currentVersion == null || !versions.contains(currentVersion)) {
+            throw new PreconditionFailedException("Employee with ID: " + employeeId + " does not match If-Match");
+        }
+        return currentVersion;
+    }
+
+    private static <B extends ResponseEntity.HeadersBuilder<B>> B versioned(B builder, Long version, Instant lastModified) {
+        if (version != null) {
+            builder.eTag(ETags.of(version)).varyBy(HttpHeaders.ACCEPT);
+        }
+        if (lastModified != null) {
+            builder.lastModified(lastModified.toEpochMilli());
+        }
+        return builder;
+    }
+
+    /**
+     * Sends what is written to it to the client through an emitter, as raw bytes. Each write is sent and
+     * flushed on its own, so it is meant to be wrapped in a buffer.
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+
+        private final ResponseBodyEmitter emitter;
+
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            emitter.send(new byte[]{(byte) b}, MediaType.APPLICATION_OCTET_STREAM);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            emitter.send(Arrays.copyOfRange(b, off, off + len), MediaType.APPLICATION_OCTET_STREAM);
         }
     }
-}
\ No newline at end of file
+}
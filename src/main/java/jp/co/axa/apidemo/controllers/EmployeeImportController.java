@@ -0,0 +1,109 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.dto.EmployeeImportStatus;
+import jp.co.axa.apidemo.exceptions.ImportQueueFullException;
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+import jp.co.axa.apidemo.exceptions.PayloadTooLargeException;
+import jp.co.axa.apidemo.exceptions.ResourceNotFoundException;
+import jp.co.axa.apidemo.exceptions.ServiceUnavailableException;
+import jp.co.axa.apidemo.exceptions.UploadTooLargeException;
+import jp.co.axa.apidemo.services.EmployeeImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Controller for importing employees from CSV files and following the progress of the imports.
+ */
+@RestController
+@RequestMapping("/api/v1")
+public class EmployeeImportController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeImportController.class);
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final EmployeeImportService employeeImportService;
+
+    /**
+     * Constructs an EmployeeImportController with the given EmployeeImportService.
+     *
+     * @param employeeImportService the service importing the files
+     */
+    public EmployeeImportController(EmployeeImportService employeeImportService) {
+        this.employeeImportService = employeeImportService;
+    }
+
+    /**
+     * Starts importing the employees of a CSV file whose first line is a header naming the name, salary and
+     * department columns. The request returns once the file is uploaded and its header checked; the rows
+     * are imported in the background, and the progress can be followed at the returned location.
+     *
+     * @param request the request whose body is the CSV file
+     * @return ResponseEntity with status 202 containing the status of the running import job
+     * @throws InvalidRequestException if the header of the file is invalid
+     * @throws PayloadTooLargeException if the file is longer than employees.import.max-bytes
+     * @throws ServiceUnavailableException if too many imports are already waiting
+     * @throws IOException if the request body cannot be read
+     */
+    @PostMapping(value = "/employees/import", consumes = TEXT_CSV_VALUE)
+    public ResponseEntity<EmployeeImportStatus> importEmployees(HttpServletRequest request) throws IOException {
+        LOG.info("Importing employees from CSV");
+        EmployeeImportStatus status;
+        try {
+            status = employeeImportService.importEmployees(request.getInputStream());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException(e.getMessage());
+        } catch (UploadTooLargeException e) {
+            LOG.error("CSV import rejected: {}", e.getMessage());
+            throw new PayloadTooLargeException(e.getMessage());
+        } catch (ImportQueueFullException e) {
+            LOG.error("Import queue is full, rejecting CSV import");
+            throw new ServiceUnavailableException(e.getMessage());
+        }
+        LOG.info("Import job {} accepted", status.getJobId());
+
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(status.getJobId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+
+    /**
+     * Retrieves the status of every running or recent import job.
+     *
+     * @return ResponseEntity containing the status of each job, the most recent first
+     */
+    @GetMapping("/employees/import")
+    public ResponseEntity<List<EmployeeImportStatus>> getImportJobs() {
+        return ResponseEntity.ok(employeeImportService.getStatuses());
+    }
+
+    /**
+     * Retrieves the progress of an import job.
+     *
+     * @param jobId the id of the import job
+     * @return ResponseEntity containing the status of the job
+     * @throws ResourceNotFoundException if the job is unknown or no longer kept
+     */
+    @GetMapping("/employees/import/{jobId}")
+    public ResponseEntity<EmployeeImportStatus> getImportJob(@PathVariable(name = "jobId") String jobId) {
+        EmployeeImportStatus status = employeeImportService.getStatus(jobId);
+        if (status == null) {
+            throw new ResourceNotFoundException("Import job not found with ID: " + jobId);
+        }
+        return ResponseEntity.ok(status);
+    }
+}
@@ -0,0 +1,134 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jp.co.axa.apidemo.dto.WriteTicket;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+import jp.co.axa.apidemo.exceptions.TooManyRequestsException;
+import jp.co.axa.apidemo.exceptions.WriteQueueFullException;
+import jp.co.axa.apidemo.services.EmployeeWriteBehindService;
+import jp.co.axa.apidemo.validators.EmployeePatchValidator;
+import jp.co.axa.apidemo.validators.ValidEmployeeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controller for the write-behind ingestion mode, where employee updates are acknowledged once queued
+ * and written to the database shortly after. Only available when employees.write-behind.enabled is set.
+ */
+@RestController
+@RequestMapping("/api/v1/write-behind")
+@ConditionalOnProperty(name = "employees.write-behind.enabled", havingValue = "true")
+public class EmployeeWriteBehindController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeWriteBehindController.class);
+
+    private static final String DEFAULT_FLUSH_TIMEOUT_MILLIS = "5000";
+
+    private static final long MAX_FLUSH_TIMEOUT_MILLIS = 30_000;
+
+    private final EmployeeWriteBehindService writeBehindService;
+
+    private final EmployeePatchValidator employeePatchValidator;
+
+    /**
+     * Constructs an EmployeeWriteBehindController with the given EmployeeWriteBehindService.
+     *
+     * @param writeBehindService     the service queueing the updates
+     * @param employeePatchValidator the validator used to read and check partial updates
+     */
+    public EmployeeWriteBehindController(EmployeeWriteBehindService writeBehindService,
+                                         EmployeePatchValidator employeePatchValidator) {
+        this.writeBehindService = writeBehindService;
+        this.employeePatchValidator = employeePatchValidator;
+    }
+
+    /**
+     * Queues a JSON Merge Patch of an employee.
+     *
+     * @param patch      the merge patch, an object holding the new values of the fields to change
+     * @param employeeId the ID of the employee to be updated
+     * @return ResponseEntity with status 202 containing the ticket of the update
+     * @throws InvalidRequestException if the patch is invalid
+     * @throws TooManyRequestsException if the queue is full
+     */
+    @PatchMapping(value = "/employees/{employeeId}",
+            consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<WriteTicket> patchEmployee(@RequestBody JsonNode patch,
+                                                     @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
+        return submit(employeeId, employeePatchValidator.read(patch, employeeId));
+    }
+
+    /**
+     * Queues a full update of an employee.
+     * The existence of the employee is only checked when the update is written.
+     *
+     * @param employee   the employee object with updated details
+     * @param employeeId the ID of the employee to be updated
+     * @return ResponseEntity with status 202 containing the ticket of the update
+     * @throws IllegalArgumentException if the provided employeeId does not match the ID of the employee object
+     * @throws TooManyRequestsException if the queue is full
+     */
+    @PutMapping("/employees/{employeeId}")
+    public ResponseEntity<WriteTicket> updateEmployee(@Valid @RequestBody Employee employee,
+                                                      @PathVariable(name = "employeeId") @ValidEmployeeId Long employeeId) {
+        if (!employeeId.equals(employee.getId())) {
+            LOG.error("Mismatched employee IDs in request. Path variable ID: {}, Employee object ID: {}", employeeId, employee.getId());
+            throw new IllegalArgumentException("Mismatched employee IDs in request");
+        }
+        return submit(employeeId, EmployeePatchValidator.changesOf(employee));
+    }
+
+    /**
+     * Waits until an update, and every update queued before it, has been written or dropped.
+     *
+     * @param ticket        the ticket of the update, absent to wait for every update queued so far
+     * @param timeoutMillis the maximum time to wait, capped server-side
+     * @return ResponseEntity containing the ticket and whether it is durable or failed; neither means the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @PostMapping("/flush")
+    public ResponseEntity<WriteTicket> flush(@RequestParam(name = "ticket", required = false) Long ticket,
+                                             @RequestParam(name = "timeoutMillis", defaultValue = DEFAULT_FLUSH_TIMEOUT_MILLIS) long timeoutMillis)
+            throws InterruptedException {
+        long target = ticket != null ? ticket : writeBehindService.lastTicket();
+        long timeout = Math.max(0, Math.min(timeoutMillis, MAX_FLUSH_TIMEOUT_MILLIS));
+        writeBehindService.awaitSettled(target, timeout, TimeUnit.MILLISECONDS);
+        return ResponseEntity.ok(ticketOf(target));
+    }
+
+    /**
+     * Checks whether an update, and every update queued before it, has been written, without waiting.
+     *
+     * @param ticket the ticket of the update
+     * @return ResponseEntity containing the ticket and whether it is durable or failed
+     */
+    @GetMapping("/tickets/{ticket}")
+    public ResponseEntity<WriteTicket> getTicket(@PathVariable(name = "ticket") long ticket) {
+        return ResponseEntity.ok(ticketOf(ticket));
+    }
+
+    private WriteTicket ticketOf(long ticket) {
+        return new WriteTicket(ticket, writeBehindService.isDurable(ticket), writeBehindService.isFailed(ticket));
+    }
+
+    private ResponseEntity<WriteTicket> submit(Long employeeId, Map<String, Object> changes) {
+        LOG.info("Queueing update of employee with ID: {}", employeeId);
+        try {
+            long ticket = writeBehindService.submit(employeeId, changes);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(new WriteTicket(ticket, false, false));
+        } catch (WriteQueueFullException e) {
+            LOG.error("Write-behind queue is full, rejecting update of employee with ID: {}", employeeId);
+            throw new TooManyRequestsException(e.getMessage());
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package jp.co.axa.apidemo.dto;
 public class AuthenticationResponse {
     private String jwt;
+    private String refreshToken;
+    private long expiresIn;
 
     public AuthenticationResponse() {
     }
 
-    public AuthenticationResponse(String jwt) {
+    public AuthenticationResponse(String jwt, String refreshToken, long expiresIn) {
         this.jwt = jwt;
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
     }
 
     public String getJwt() {
@@ -16,4 +20,23 @@ public class AuthenticationResponse {
     public void setJwt(String jwt) {
         this.jwt = jwt;
     }
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    /**
+     * @return The lifetime of the access token in seconds.
+     */
+    public long getExpiresIn() {
+        return expiresIn;
+    }
+
+    public void setExpiresIn(long expiresIn) {
+        this.expiresIn = expiresIn;
+    }
 }
@@ -0,0 +1,13 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Projection of the number of employees of a department earning a given salary.
+ */
+public interface DepartmentSalaryCount {
+
+    String getDepartment();
+
+    Integer getSalary();
+
+    long getHeadcount();
+}
@@ -0,0 +1,73 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Headcount and salary statistics of a single department.
+ */
+public class DepartmentStats {
+    private String department;
+    private long headcount;
+    private long totalSalary;
+    private int minSalary;
+    private int maxSalary;
+    private double averageSalary;
+
+    public DepartmentStats() {
+    }
+
+    public DepartmentStats(String department, long headcount, long totalSalary, int minSalary, int maxSalary) {
+        this.department = department;
+        this.headcount = headcount;
+        this.totalSalary = totalSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.averageSalary = (double) totalSalary / headcount;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    public void setHeadcount(long headcount) {
+        this.headcount = headcount;
+    }
+
+    public long getTotalSalary() {
+        return totalSalary;
+    }
+
+    public void setTotalSalary(long totalSalary) {
+        this.totalSalary = totalSalary;
+    }
+
+    public int getMinSalary() {
+        return minSalary;
+    }
+
+    public void setMinSalary(int minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    public int getMaxSalary() {
+        return maxSalary;
+    }
+
+    public void setMaxSalary(int maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+
+    public double getAverageSalary() {
+        return averageSalary;
+    }
+
+    public void setAverageSalary(double averageSalary) {
+        this.averageSalary = averageSalary;
+    }
+}
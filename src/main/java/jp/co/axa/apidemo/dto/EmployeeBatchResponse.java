@@ -0,0 +1,52 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-item results of a bulk employee request.
+ */
+public class EmployeeBatchResponse {
+    private int created;
+    private int failed;
+    private List<EmployeeBatchResult> results = new ArrayList<>();
+    private String error;
+
+    public int getCreated() {
+        return created;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    /**
+     * @return the number of items that were not created, whether invalid or failed
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<EmployeeBatchResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<EmployeeBatchResult> results) {
+        this.results = results;
+    }
+
+    /**
+     * @return the reason the request stopped being processed before its end, or null if it was read entirely
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
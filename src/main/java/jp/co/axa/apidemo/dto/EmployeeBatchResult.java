@@ -0,0 +1,69 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a single item of a bulk employee request.
+ */
+public class EmployeeBatchResult {
+
+    public enum Status {
+        /** The employee was inserted. */
+        CREATED,
+        /** The item could not be read or failed validation, nothing was written. */
+        INVALID,
+        /** The item was valid but the transaction of its chunk failed. */
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private List<String> errors = Collections.emptyList();
+
+    public EmployeeBatchResult() {
+    }
+
+    public EmployeeBatchResult(int index) {
+        this.index = index;
+    }
+
+    /**
+     * @return the position of the item in the request, starting at 0
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * @return the id assigned to the employee, or null if it was not created
+     */
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+}
@@ -0,0 +1,75 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.Objects;
+
+/**
+ * Optional criteria restricting which employees are listed. Criteria left null are not applied.
+ */
+public class EmployeeFilter {
+    private String department;
+    private Integer minSalary;
+    private Integer maxSalary;
+    private String namePrefix;
+
+    public EmployeeFilter() {
+    }
+
+    public EmployeeFilter(String department, Integer minSalary, Integer maxSalary, String namePrefix) {
+        this.department = department;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.namePrefix = namePrefix;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public Integer getMinSalary() {
+        return minSalary;
+    }
+
+    public void setMinSalary(Integer minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    public Integer getMaxSalary() {
+        return maxSalary;
+    }
+
+    public void setMaxSalary(Integer maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public void setNamePrefix(String namePrefix) {
+        this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        EmployeeFilter that = (EmployeeFilter) o;
+        return Objects.equals(department, that.department)
+                && Objects.equals(minSalary, that.minSalary)
+                && Objects.equals(maxSalary, that.maxSalary)
+                && Objects.equals(namePrefix, that.namePrefix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(department, minSalary, maxSalary, namePrefix);
+    }
+}
@@ -0,0 +1,37 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.validators.ValidEmployeeId;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * The ids of the employees to fetch in a single lookup.
+ */
+public class EmployeeIdsRequest {
+
+    /**
+     * Upper bound on the number of ids in a single lookup.
+     */
+    public static final int MAX_IDS = 1000;
+
+    @NotEmpty(message = "Ids cannot be empty")
+    @Size(max = MAX_IDS, message = "At most " + MAX_IDS + " ids can be looked up at once")
+    private List<@ValidEmployeeId Long> ids;
+
+    public EmployeeIdsRequest() {
+    }
+
+    public EmployeeIdsRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,141 @@
+package jp.co.axa.apidemo.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress of a CSV employee import, as of the moment it was read.
+ */
+public class EmployeeImportStatus {
+
+    public enum State {
+        /** The import is waiting for its turn or its rows are still being read. */
+        RUNNING,
+        /** The file was read to its end. Rows may still have been rejected. */
+        COMPLETED,
+        /** Reading stopped before the end of the file. */
+        FAILED
+    }
+
+    private String jobId;
+    private State state;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsInvalid;
+    private long rowsFailed;
+    private double rowsPerSecond;
+    private List<String> errors = new ArrayList<>();
+    private String error;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    /**
+     * @return when the import stopped reading, or null while it is running
+     */
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    /**
+     * @return the number of data rows read so far, the header excluded
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public void setRowsRead(long rowsRead) {
+        this.rowsRead = rowsRead;
+    }
+
+    public long getRowsImported() {
+        return rowsImported;
+    }
+
+    public void setRowsImported(long rowsImported) {
+        this.rowsImported = rowsImported;
+    }
+
+    /**
+     * @return the number of rows that could not be read or failed validation
+     */
+    public long getRowsInvalid() {
+        return rowsInvalid;
+    }
+
+    public void setRowsInvalid(long rowsInvalid) {
+        this.rowsInvalid = rowsInvalid;
+    }
+
+    /**
+     * @return the number of valid rows whose chunk could not be saved
+     */
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public void setRowsFailed(long rowsFailed) {
+        this.rowsFailed = rowsFailed;
+    }
+
+    /**
+     * @return the average number of rows read per second since the import started
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * @return the first errors met, each prefixed by the number of its row; later errors are only counted
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    /**
+     * @return the reason the import stopped before the end of the file, or null
+     */
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,37 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.List;
+
+/**
+ * The employees found by a lookup, in the order their ids were requested, and the ids that were not found.
+ */
+public class EmployeeLookupResponse {
+    private List<Employee> items;
+    private List<Long> missingIds;
+
+    public EmployeeLookupResponse() {
+    }
+
+    public EmployeeLookupResponse(List<Employee> items, List<Long> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    public List<Employee> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Employee> items) {
+        this.items = items;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
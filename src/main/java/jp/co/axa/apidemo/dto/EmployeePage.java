@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.util.List;
+
+/**
+ * A single page of employees ordered by id, together with the opaque cursor of the next page.
+ */
+public class EmployeePage {
+    private List<Employee> items;
+    private String nextCursor;
+
+    public EmployeePage() {
+    }
+
+    public EmployeePage(List<Employee> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Employee> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Employee> items) {
+        this.items = items;
+    }
+
+    /**
+     * @return the cursor to pass as {@code after} to fetch the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
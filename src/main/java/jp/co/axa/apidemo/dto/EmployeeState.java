@@ -0,0 +1,14 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Projection of the employee columns read before overwriting an employee: the values the department
+ * statistics are computed from and the version that conditional updates are checked against.
+ */
+public interface EmployeeState {
+
+    String getDepartment();
+
+    Integer getSalary();
+
+    Long getVersion();
+}
@@ -0,0 +1,13 @@
+package jp.co.axa.apidemo.dto;
+
+import java.time.Instant;
+
+/**
+ * Projection of the employee columns needed to answer a conditional request without loading the employee.
+ */
+public interface EmployeeVersion {
+
+    Long getVersion();
+
+    Instant getLastModified();
+}
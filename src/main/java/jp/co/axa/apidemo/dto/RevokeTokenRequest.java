@@ -0,0 +1,20 @@
+package jp.co.axa.apidemo.dto;
+
+public class RevokeTokenRequest {
+    private String token;
+
+    public RevokeTokenRequest() {
+    }
+
+    public RevokeTokenRequest(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+}
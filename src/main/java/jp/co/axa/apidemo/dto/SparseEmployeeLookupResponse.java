@@ -0,0 +1,40 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The employees found by a lookup, reduced to the requested fields, in the order their ids were requested,
+ * and the ids that were not found.
+ */
+public class SparseEmployeeLookupResponse {
+    private List<Map<String, Object>> items;
+    private List<Long> missingIds;
+
+    public SparseEmployeeLookupResponse() {
+    }
+
+    public SparseEmployeeLookupResponse(List<Map<String, Object>> items, List<Long> missingIds) {
+        this.items = items;
+        this.missingIds = missingIds;
+    }
+
+    /**
+     * @return the employees found, each as its selected fields by name
+     */
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Map<String, Object>> items) {
+        this.items = items;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+}
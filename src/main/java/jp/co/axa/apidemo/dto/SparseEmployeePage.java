@@ -0,0 +1,43 @@
+package jp.co.axa.apidemo.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single page of employees ordered by id, reduced to the requested fields, together with the opaque cursor
+ * of the next page.
+ */
+public class SparseEmployeePage {
+    private List<Map<String, Object>> items;
+    private String nextCursor;
+
+    public SparseEmployeePage() {
+    }
+
+    public SparseEmployeePage(List<Map<String, Object>> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the employees, each as its selected fields by name
+     */
+    public List<Map<String, Object>> getItems() {
+        return items;
+    }
+
+    public void setItems(List<Map<String, Object>> items) {
+        this.items = items;
+    }
+
+    /**
+     * @return the cursor to pass as {@code after} to fetch the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
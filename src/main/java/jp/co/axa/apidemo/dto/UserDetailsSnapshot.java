@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.dto;
+
+import jp.co.axa.apidemo.entities.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable copy of a user and the names of their roles, detached from the persistence context so that it
+ * can be cached and shared between threads.
+ * It deliberately does not implement {@link org.springframework.security.core.CredentialsContainer}:
+ * erasing the credentials of an authenticated principal would otherwise erase the password of the
+ * cached copy every other login is checked against.
+ */
+public final class UserDetailsSnapshot implements UserDetails {
+
+    private final String username;
+
+    private final String password;
+
+    private final boolean enabled;
+
+    private final int tokenVersion;
+
+    private final List<GrantedAuthority> authorities;
+
+    public UserDetailsSnapshot(User user) {
+        this.username = user.getUsername();
+        this.password = user.getPassword();
+        this.enabled = user.isEnabled();
+        this.tokenVersion = user.getTokenVersion();
+        this.authorities = user.getAuthorities() == null
+                ? Collections.emptyList()
+                : Collections.unmodifiableList(user.getAuthorities().stream()
+                        .map(authority -> new SimpleGrantedAuthority(authority.getAuthority()))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the token version of the user when the snapshot was taken
+     */
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+}
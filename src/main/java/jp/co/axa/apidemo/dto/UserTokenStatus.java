@@ -0,0 +1,11 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Projection of the user columns needed to decide whether a token issued to the user is still accepted.
+ */
+public interface UserTokenStatus {
+
+    boolean isEnabled();
+
+    int getTokenVersion();
+}
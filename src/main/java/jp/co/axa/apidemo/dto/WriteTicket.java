@@ -0,0 +1,52 @@
+package jp.co.axa.apidemo.dto;
+
+/**
+ * Acknowledgement of a mutation accepted by the write-behind queue.
+ */
+public class WriteTicket {
+    private long ticket;
+    private boolean durable;
+    private boolean failed;
+
+    public WriteTicket() {
+    }
+
+    public WriteTicket(long ticket, boolean durable, boolean failed) {
+        this.ticket = ticket;
+        this.durable = durable;
+        this.failed = failed;
+    }
+
+    /**
+     * @return the sequence number of the mutation, to pass to the flush endpoint to wait for it
+     */
+    public long getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(long ticket) {
+        this.ticket = ticket;
+    }
+
+    /**
+     * @return true once the mutation has been written, and every mutation accepted before it written or dropped
+     */
+    public boolean isDurable() {
+        return durable;
+    }
+
+    public void setDurable(boolean durable) {
+        this.durable = durable;
+    }
+
+    /**
+     * @return true if the mutation could not be written and was dropped
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+}
@@ -1,5 +1,7 @@
 package jp.co.axa.apidemo.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -8,20 +10,31 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.Size;
 import javax.validation.constraints.Pattern;
+import java.time.Instant;
 
 @Entity
-@Table(name="EMPLOYEE")
+@Table(name="EMPLOYEE", indexes = {
+        @Index(name = "IDX_EMPLOYEE_DEPARTMENT", columnList = "DEPARTMENT, ID"),
+        @Index(name = "IDX_EMPLOYEE_SALARY", columnList = "EMPLOYEE_SALARY"),
+        @Index(name = "IDX_EMPLOYEE_NAME", columnList = "EMPLOYEE_NAME")
+})
 public class Employee {
 
     @Getter
     @Setter
     @Id
-    @GeneratedValue(strategy= GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employee_seq")
+    @SequenceGenerator(name = "employee_seq", sequenceName = "EMPLOYEE_SEQ", allocationSize = 50)
     private Long id;
 
     @Getter
@@ -47,4 +60,28 @@ public class Employee {
     @Column(name="DEPARTMENT")
     private String department;
 
-}
\ No newline at end of file
+    /**
+     * Incremented on every write; exposed to clients as the ETag of the employee.
+     */
+    @Getter
+    @Setter
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name="VERSION")
+    private Long version;
+
+    /**
+     * Time of the last write; exposed to clients as the Last-Modified header of the employee.
+     */
+    @Getter
+    @Setter
+    @JsonIgnore
+    @Column(name="LAST_MODIFIED")
+    private Instant lastModified;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
+}
@@ -7,6 +7,7 @@ import java.util.Collection;
 
 @Entity
 @Table(name = "ROLES")
+@EntityListeners(UserChangeListener.class)
 public class Role implements GrantedAuthority {
 
     @Id
@@ -6,7 +6,10 @@ import javax.persistence.*;
 import java.util.Collection;
 
 @Entity
-@Table(name = "USERS")
+@Table(name = "USERS", indexes = {
+        @Index(name = "IDX_USERS_USERNAME", columnList = "USERNAME", unique = true)
+})
+@EntityListeners(UserChangeListener.class)
 public class User implements UserDetails {
 
 
@@ -17,6 +20,14 @@ public class User implements UserDetails {
     private String username;
     private String password;
 
+    private boolean enabled = true;
+
+    /**
+     * Incremented to revoke every token issued to the user so far.
+     */
+    @Column(name = "token_version")
+    private int tokenVersion;
+
     @ManyToMany(fetch = FetchType.EAGER)
     @JoinTable(
             name = "user_roles",
@@ -59,6 +70,10 @@ public class User implements UserDetails {
 
     @Override
     public boolean isEnabled() {
-        return true;
+        return enabled;
+    }
+
+    public int getTokenVersion() {
+        return tokenVersion;
     }
 }
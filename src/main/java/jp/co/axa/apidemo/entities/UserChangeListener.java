@@ -0,0 +1,41 @@
+package jp.co.axa.apidemo.entities;
+
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import jp.co.axa.apidemo.util.TransactionCallbacks;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Drops the cached snapshots of users once a change to a user or role made through JPA has committed, and the
+ * cached token status of a changed user, so that disabling a user takes effect on their next request.
+ * Bulk updates bypass entity listeners and must invalidate the snapshots themselves.
+ */
+public class UserChangeListener {
+
+    /**
+     * Resolved lazily, since the user details service depends on the repositories this listener is created with.
+     */
+    @Autowired
+    private ObjectProvider<CustomUserDetailsService> userDetailsService;
+
+    @Autowired
+    private ObjectProvider<TokenVersionService> tokenVersionService;
+
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        if (entity instanceof User) {
+            String username = ((User) entity).getUsername();
+            TransactionCallbacks.afterCommit(() -> {
+                userDetailsService.getObject().invalidate(username);
+                tokenVersionService.getObject().invalidate(username);
+            });
+        } else if (entity instanceof Role) {
+            TransactionCallbacks.afterCommit(() -> userDetailsService.getObject().invalidateAll());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class AuthenticationQueueFullException extends RuntimeException {
+    public AuthenticationQueueFullException(String message) {
+        super(message);
+    }
+}
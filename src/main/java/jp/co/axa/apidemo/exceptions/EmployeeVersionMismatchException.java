@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class EmployeeVersionMismatchException extends RuntimeException {
+    public EmployeeVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class ImportQueueFullException extends RuntimeException {
+    public ImportQueueFullException(String message) {
+        super(message);
+    }
+}
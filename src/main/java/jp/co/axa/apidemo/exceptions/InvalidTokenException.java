@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class InvalidTokenException extends RuntimeException {
+    public InvalidTokenException(String message) {
+        super(message);
+    }
+}
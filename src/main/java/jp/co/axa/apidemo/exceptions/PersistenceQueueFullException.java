@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class PersistenceQueueFullException extends RuntimeException {
+    public PersistenceQueueFullException(String message) {
+        super(message);
+    }
+}
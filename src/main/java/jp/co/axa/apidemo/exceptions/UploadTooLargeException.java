@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class UploadTooLargeException extends RuntimeException {
+    public UploadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package jp.co.axa.apidemo.exceptions;
+
+public class WriteQueueFullException extends RuntimeException {
+    public WriteQueueFullException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,18 @@
 package jp.co.axa.apidemo.filters;
 
+import io.jsonwebtoken.JwtException;
+import jp.co.axa.apidemo.dto.UserDetailsSnapshot;
 import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenRevocationService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import jp.co.axa.apidemo.util.JwtClaims;
 import jp.co.axa.apidemo.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -15,6 +23,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
@@ -22,9 +31,22 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
     @Autowired
     private JwtUtil jwtUtil;
 
+    /**
+     * When enabled, tokens carrying their authorities are authenticated from their claims alone,
+     * without loading the user from the database.
+     */
+    @Value("${security.jwt.stateless-authorities:false}")
+    private boolean statelessAuthorities;
+
     /**
      * Filters incoming requests to validate and set the authentication context based on the JWT token.
      *
@@ -41,18 +63,22 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         if(!request.getRequestURI().equals("/authenticate")) {
             final String authorizationHeader = request.getHeader("Authorization");
 
-            String username = null;
-            String jwt = null;
+            JwtClaims claims = null;
 
             if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-                jwt = authorizationHeader.substring(7);
-                username = jwtUtil.extractUsername(jwt);
+                String jwt = authorizationHeader.substring(7);
+                try {
+                    claims = jwtUtil.extractAllClaims(jwt);
+                } catch (JwtException | IllegalArgumentException e) {
+                    // Expired, malformed or forged tokens leave the request unauthenticated, so it gets 401
+                }
             }
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+            if (claims != null && claims.getSubject() != null && isAccessToken(claims)
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = loadUserDetails(claims);
 
-                if (jwtUtil.validateToken(jwt, userDetails)) {
+                if (userDetails != null && jwtUtil.validateToken(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     usernamePasswordAuthenticationToken
@@ -63,4 +89,46 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         }
         chain.doFilter(request, response);
     }
+
+    /**
+     * Checks that a verified token may be used to access the API: refresh tokens may not, and neither may
+     * revoked tokens. Tokens issued without an id predate revocation and cannot have been revoked.
+     *
+     * @param claims The verified claims of the token.
+     * @return True if the token is an access token that has not been revoked.
+     */
+    private boolean isAccessToken(JwtClaims claims) {
+        return claims.getType() == null
+                && (claims.getId() == null || !tokenRevocationService.isRevoked(claims.getId()));
+    }
+
+    /**
+     * Resolves the user details of the subject of a verified token.
+     * In stateless mode, a token carrying its authorities and token version is resolved from its claims,
+     * provided its version is still current; other tokens fall back to loading the user, whose token
+     * version the token must then carry.
+     *
+     * @param claims The verified claims of the token.
+     * @return The user details, or null if the token has been revoked.
+     */
+    private UserDetails loadUserDetails(JwtClaims claims) {
+        if (statelessAuthorities) {
+            Collection<GrantedAuthority> authorities = jwtUtil.extractAuthorities(claims);
+            Integer tokenVersion = jwtUtil.extractTokenVersion(claims);
+            if (authorities != null && tokenVersion != null) {
+                if (!tokenVersionService.isTokenCurrent(claims.getSubject(), tokenVersion)) {
+                    return null;
+                }
+                return new User(claims.getSubject(), "", authorities);
+            }
+        }
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(claims.getSubject());
+        if (userDetails instanceof UserDetailsSnapshot) {
+            Integer tokenVersion = jwtUtil.extractTokenVersion(claims);
+            if (tokenVersion == null || tokenVersion != ((UserDetailsSnapshot) userDetails).getTokenVersion()) {
+                return null;
+            }
+        }
+        return userDetails;
+    }
 }
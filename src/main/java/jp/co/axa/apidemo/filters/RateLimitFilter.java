@@ -0,0 +1,107 @@
+package jp.co.axa.apidemo.filters;
+
+import jp.co.axa.apidemo.util.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles each client to a sustained rate with some burst, answering 429 with Retry-After beyond it.
+ * Runs after {@link JwtRequestFilter}, so authenticated requests are limited per token subject whatever
+ * address they come from. Logins and other unauthenticated requests are limited per client address,
+ * logins with their own, stricter limit.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String AUTHENTICATE_PATH = "/authenticate";
+
+    private static final byte[] REJECTED_BODY = ("{\"status\":429,\"error\":\"Too Many Requests\","
+            + "\"message\":\"Too many requests\"}").getBytes(StandardCharsets.UTF_8);
+
+    private final boolean enabled;
+
+    private final RateLimiter principalLimiter;
+
+    private final RateLimiter addressLimiter;
+
+    private final RateLimiter loginLimiter;
+
+    public RateLimitFilter(@Value("${security.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${security.rate-limit.requests-per-second:50}") double requestsPerSecond,
+                           @Value("${security.rate-limit.burst:100}") int burst,
+                           @Value("${security.rate-limit.login.requests-per-second:1}") double loginRequestsPerSecond,
+                           @Value("${security.rate-limit.login.burst:10}") int loginBurst,
+                           @Value("${security.rate-limit.max-clients:100000}") long maxClients) {
+        this.enabled = enabled;
+        this.principalLimiter = new RateLimiter(requestsPerSecond, burst, maxClients);
+        this.addressLimiter = new RateLimiter(requestsPerSecond, burst, maxClients);
+        this.loginLimiter = new RateLimiter(loginRequestsPerSecond, loginBurst, maxClients);
+    }
+
+    /**
+     * Takes a permit for the client of the request, and rejects the request if none is available.
+     *
+     * @param request  The incoming HttpServletRequest.
+     * @param response The outgoing HttpServletResponse.
+     * @param chain    The FilterChain to continue the request processing.
+     * @throws ServletException If an error occurs during the filter processing.
+     * @throws IOException      If an I/O error occurs during the filter processing.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long waitNanos = enabled ? acquire(request) : 0;
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private long acquire(HttpServletRequest request) {
+        if (request.getRequestURI().equals(AUTHENTICATE_PATH)) {
+            return loginLimiter.tryAcquire(request.getRemoteAddr());
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return principalLimiter.tryAcquire(authentication.getName());
+        }
+        return addressLimiter.tryAcquire(request.getRemoteAddr());
+    }
+
+    /**
+     * Writes the 429 response itself. sendError would forward the request to the error page, which runs
+     * the security filters again without the authentication of the request and answers 401 instead.
+     */
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(waitNanos)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(REJECTED_BODY.length);
+        response.getOutputStream().write(REJECTED_BODY);
+    }
+
+    /**
+     * Rounds the wait up to whole seconds, the unit of Retry-After.
+     */
+    private static long retryAfterSeconds(long waitNanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return (waitNanos + second - 1) / second;
+    }
+}
@@ -1,9 +1,93 @@
 package jp.co.axa.apidemo.repositories;
 
+import jp.co.axa.apidemo.dto.DepartmentSalaryCount;
+import jp.co.axa.apidemo.dto.EmployeeState;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
 import jp.co.axa.apidemo.entities.Employee;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee,Long> {
+public interface EmployeeRepository extends JpaRepository<Employee,Long>, EmployeeRepositoryCustom {
+
+    /**
+     * Streams every employee in id order over a forward-only cursor.
+     * Rows are fetched from the database in batches of the fetch size and loaded read-only, so no
+     * dirty-checking snapshot is kept. Must be consumed inside a transaction and closed afterwards.
+     *
+     * @return a stream of all employees
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")
+    })
+    @Query("select e from Employee e order by e.id")
+    Stream<Employee> streamAll();
+
+    /**
+     * Reads the version of an employee and the time it was last written, without loading the employee.
+     *
+     * @param employeeId the id of the employee
+     * @return the version and last modification time of the employee, or empty if no employee has this id
+     */
+    @Query("select e.version as version, e.lastModified as lastModified from Employee e where e.id = :employeeId")
+    Optional<EmployeeVersion> findVersionById(@Param("employeeId") Long employeeId);
+
+    /**
+     * Reads the department, salary and version of an employee and locks its row until the end of the
+     * transaction, so concurrent writes to the same employee see each other's values in commit order.
+     *
+     * @param employeeId the id of the employee
+     * @return the department, salary and version of the employee, or empty if no employee has this id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.department as department, e.salary as salary, e.version as version "
+            + "from Employee e where e.id = :employeeId")
+    Optional<EmployeeState> findStateForUpdateById(@Param("employeeId") Long employeeId);
+
+    /**
+     * Counts the employees of each department by salary, in a single GROUP BY.
+     *
+     * @return the number of employees of each department and salary
+     */
+    @Query("select e.department as department, e.salary as salary, count(e) as headcount "
+            + "from Employee e group by e.department, e.salary")
+    List<DepartmentSalaryCount> countByDepartmentAndSalary();
+
+    /**
+     * Overwrites the details of an existing employee in a single UPDATE statement, without loading it first.
+     * The version is incremented and the last modification time is taken from the given employee.
+     *
+     * @param employee the employee with updated details and the id of the row to update
+     * @return the number of rows updated, 0 if no employee has this id
+     */
+    @Modifying
+    @Query("update Employee e set e.name = :#{#employee.name}, e.salary = :#{#employee.salary}, "
+            + "e.department = :#{#employee.department}, e.version = e.version + 1, "
+            + "e.lastModified = :#{#employee.lastModified} where e.id = :#{#employee.id}")
+    int updateEmployee(@Param("employee") Employee employee);
+
+    /**
+     * Deletes an employee in a single DELETE statement, without loading it first.
+     *
+     * @param employeeId the id of the employee
+     * @return the number of rows deleted, 0 if no employee has this id
+     */
+    @Modifying
+    @Query("delete from Employee e where e.id = :employeeId")
+    int deleteEmployeeById(@Param("employeeId") Long employeeId);
 }
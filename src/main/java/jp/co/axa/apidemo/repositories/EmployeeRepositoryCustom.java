@@ -0,0 +1,59 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.entities.Employee;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Queries of {@link EmployeeRepository} built dynamically from the criteria they are given.
+ */
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Seeks to the first employees matching the filter with an id greater than the given one, in id order.
+     * Only the criteria set on the filter are added to the query, so each combination can use its index.
+     *
+     * @param filter  the criteria the employees must match
+     * @param afterId the id to seek after
+     * @param limit   the maximum number of employees to return
+     * @return the matching employees following the given id
+     */
+    List<Employee> findPage(EmployeeFilter filter, long afterId, int limit);
+
+    /**
+     * Same as {@link #findPage} but selects only the given columns, so no entity is built or attached to the
+     * persistence context.
+     *
+     * @param filter  the criteria the employees must match
+     * @param afterId the id to seek after
+     * @param limit   the maximum number of employees to return
+     * @param fields  the attributes to select, which must include the id
+     * @return the selected attributes of each matching employee by name, in id order
+     */
+    List<Map<String, Object>> findPageFields(EmployeeFilter filter, long afterId, int limit, List<String> fields);
+
+    /**
+     * Selects only the given columns of the employees with the given ids, in a single IN query.
+     *
+     * @param employeeIds the ids of the employees
+     * @param fields      the attributes to select, which must include the id
+     * @return the selected attributes of each employee found by name, in no particular order
+     */
+    List<Map<String, Object>> findFieldsByIds(Collection<Long> employeeIds, List<String> fields);
+
+    /**
+     * Overwrites some attributes of an employee in a single UPDATE statement that sets only those columns,
+     * increments the version and records the modification time.
+     *
+     * @param employeeId      the id of the employee
+     * @param changes         the new values, keyed by attribute name
+     * @param expectedVersion the version the row must have to be updated, or null to update any version
+     * @param lastModified    the modification time to record
+     * @return the number of rows updated, 0 if no employee has this id and version
+     */
+    int patchEmployee(Long employeeId, Map<String, Object> changes, Long expectedVersion, Instant lastModified);
+}
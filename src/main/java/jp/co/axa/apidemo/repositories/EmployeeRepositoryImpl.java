@@ -0,0 +1,124 @@
+package jp.co.axa.apidemo.repositories;
+
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.entities.Employee;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Criteria API implementation of {@link EmployeeRepositoryCustom}, picked up by Spring Data by its name.
+ */
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Employee> findPage(EmployeeFilter filter, long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Employee> query = cb.createQuery(Employee.class);
+        Root<Employee> employee = query.from(Employee.class);
+        query.select(employee)
+                .where(predicates(cb, employee, filter, afterId))
+                .orderBy(cb.asc(employee.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Map<String, Object>> findPageFields(EmployeeFilter filter, long afterId, int limit, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+        query.multiselect(selections(employee, fields))
+                .where(predicates(cb, employee, filter, afterId))
+                .orderBy(cb.asc(employee.get("id")));
+        return toMaps(entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList(), fields);
+    }
+
+    @Override
+    public List<Map<String, Object>> findFieldsByIds(Collection<Long> employeeIds, List<String> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Employee> employee = query.from(Employee.class);
+        query.multiselect(selections(employee, fields))
+                .where(employee.get("id").in(employeeIds));
+        return toMaps(entityManager.createQuery(query).getResultList(), fields);
+    }
+
+    @Override
+    public int patchEmployee(Long employeeId, Map<String, Object> changes, Long expectedVersion, Instant lastModified) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Employee> update = cb.createCriteriaUpdate(Employee.class);
+        Root<Employee> employee = update.from(Employee.class);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            update.set(change.getKey(), change.getValue());
+        }
+        update.set(employee.<Long>get("version"), cb.sum(employee.<Long>get("version"), 1L));
+        update.set("lastModified", lastModified);
+        Predicate byId = cb.equal(employee.get("id"), employeeId);
+        update.where(expectedVersion == null ? byId : cb.and(byId, cb.equal(employee.get("version"), expectedVersion)));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    private static List<Selection<?>> selections(Root<Employee> employee, List<String> fields) {
+        List<Selection<?>> selections = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            selections.add(employee.get(field).alias(field));
+        }
+        return selections;
+    }
+
+    private static List<Map<String, Object>> toMaps(List<Tuple> tuples, List<String> fields) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, tuple.get(field));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Predicate[] predicates(CriteriaBuilder cb, Root<Employee> employee, EmployeeFilter filter, long afterId) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.greaterThan(employee.get("id"), afterId));
+        if (filter.getDepartment() != null) {
+            predicates.add(cb.equal(employee.get("department"), filter.getDepartment()));
+        }
+        if (filter.getMinSalary() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(employee.get("salary"), filter.getMinSalary()));
+        }
+        if (filter.getMaxSalary() != null) {
+            predicates.add(cb.lessThanOrEqualTo(employee.get("salary"), filter.getMaxSalary()));
+        }
+        if (filter.getNamePrefix() != null) {
+            predicates.add(cb.like(employee.get("name"), escapeLike(filter.getNamePrefix()) + "%", LIKE_ESCAPE));
+        }
+        return predicates.toArray(new Predicate[0]);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -1,9 +1,41 @@
 package jp.co.axa.apidemo.repositories;
 
 
+import jp.co.axa.apidemo.dto.UserTokenStatus;
 import jp.co.axa.apidemo.entities.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
+    /**
+     * Loads a user together with their roles in a single query.
+     *
+     * @param username the username of the user
+     * @return the user, or null if the user does not exist
+     */
+    @EntityGraph(attributePaths = "authorities")
     User findByUsername(String username);
-}
\ No newline at end of file
+
+    /**
+     * Loads only the enabled flag and token version of a user, without joining their roles.
+     *
+     * @param username the username of the user
+     * @return the token status of the user, or empty if the user does not exist
+     */
+    Optional<UserTokenStatus> findTokenStatusByUsername(String username);
+
+    /**
+     * Increments the token version of a user, invalidating every token issued to them so far.
+     *
+     * @param username the username of the user
+     * @return the number of users updated
+     */
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.username = :username")
+    int incrementTokenVersion(@Param("username") String username);
+}
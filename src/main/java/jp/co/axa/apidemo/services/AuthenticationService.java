@@ -0,0 +1,65 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.exceptions.AuthenticationQueueFullException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks credentials on a small dedicated pool instead of the request threads.
+ * Password hashing is deliberately CPU bound, so the pool defaults to one thread per core and a bounded
+ * queue. Once the queue is full, further attempts are rejected straight away rather than queued, so a burst
+ * of logins costs at most the pool and its queue and never holds the request threads other endpoints need.
+ */
+@Service
+public class AuthenticationService {
+
+    private final AuthenticationManager authenticationManager;
+
+    private final ThreadPoolExecutor executor;
+
+    public AuthenticationService(AuthenticationManager authenticationManager,
+                                 @Value("${security.authentication.threads:0}") int threads,
+                                 @Value("${security.authentication.queue-capacity:64}") int queueCapacity) {
+        this.authenticationManager = authenticationManager;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("authentication-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the check of a username and password.
+     *
+     * @param username the username
+     * @param password the raw password
+     * @return a future completed with the authenticated user, or with the
+     * {@link org.springframework.security.core.AuthenticationException} that rejected the credentials
+     * @throws AuthenticationQueueFullException if too many checks are already waiting
+     */
+    public CompletableFuture<UserDetails> authenticate(String username, String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> (UserDetails) authenticationManager
+                    .authenticate(new UsernamePasswordAuthenticationToken(username, password))
+                    .getPrincipal(), executor);
+        } catch (RejectedExecutionException e) {
+            throw new AuthenticationQueueFullException("Too many authentication attempts in progress");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -1,32 +1,76 @@
 package jp.co.axa.apidemo.services;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jp.co.axa.apidemo.dto.UserDetailsSnapshot;
 import jp.co.axa.apidemo.entities.User;
 import jp.co.axa.apidemo.repositories.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads users for the login and the token filter from a cache of immutable snapshots, so neither path
+ * queries the user and their roles on every request.
+ * Snapshots expire after a short time and are dropped explicitly whenever a user or role changes.
+ * Unknown usernames are not cached.
+ */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    @Autowired
-    private UserRepository userRepository;
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    private final UserRepository userRepository;
+
+    private final LoadingCache<String, UserDetailsSnapshot> users;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    @Value("${security.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_USERS)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(this::loadSnapshot);
+    }
 
     /**
      * Loads a user by the provided username.
      *
      * @param username The username of the user to load.
-     * @return The UserDetails object representing the loaded user.
+     * @return The immutable snapshot of the loaded user.
      * @throws UsernameNotFoundException If the user with the provided username is not found.
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        UserDetailsSnapshot user = users.get(username);
         if (user == null) {
             throw new UsernameNotFoundException("User not found");
         }
         return user;
     }
+
+    /**
+     * Drops the cached snapshot of a user so the next load reads it from the database.
+     *
+     * @param username the username of the user
+     */
+    public void invalidate(String username) {
+        users.invalidate(username);
+    }
+
+    /**
+     * Drops every cached snapshot, for changes such as a renamed role that affect many users.
+     */
+    public void invalidateAll() {
+        users.invalidateAll();
+    }
+
+    private UserDetailsSnapshot loadSnapshot(String username) {
+        User user = userRepository.findByUsername(username);
+        return user == null ? null : new UserDetailsSnapshot(user);
+    }
 }
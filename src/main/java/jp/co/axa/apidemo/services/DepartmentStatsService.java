@@ -0,0 +1,162 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.dto.DepartmentSalaryCount;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.util.TransactionCallbacks;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps per-department headcount and salary statistics in memory, so reading them costs
+ * O(departments) rather than a scan of every employee.
+ * The table is rebuilt from the database on startup and then kept up to date with the changes
+ * recorded by the employee service, each applied once its transaction commits.
+ * Every change is applied as the removal of the old salary and the addition of the new one.
+ * These deltas commute, so the table converges to the database whatever order concurrent
+ * transactions commit their changes in.
+ */
+@Service
+public class DepartmentStatsService {
+
+    private static final Logger LOGGER = LogManager.getLogger(DepartmentStatsService.class);
+
+    private final EmployeeRepository employeeRepository;
+
+    private final ConcurrentMap<String, DepartmentAggregate> departments = new ConcurrentHashMap<>();
+
+    public DepartmentStatsService(EmployeeRepository employeeRepository) {
+        this.employeeRepository = employeeRepository;
+    }
+
+    /**
+     * Rebuilds the statistics of every department from the database.
+     * Runs once the context is refreshed, before the application accepts requests.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void rebuild() {
+        LOGGER.info("Rebuilding department statistics");
+        departments.clear();
+        for (DepartmentSalaryCount count : employeeRepository.countByDepartmentAndSalary()) {
+            apply(count.getDepartment(), count.getSalary(), count.getHeadcount());
+        }
+    }
+
+    /**
+     * Retrieve the statistics of every department that has employees, ordered by department name.
+     *
+     * @return the statistics of each department
+     */
+    public List<DepartmentStats> getDepartmentStats() {
+        List<DepartmentStats> stats = new ArrayList<>(departments.size());
+        for (Map.Entry<String, DepartmentAggregate> department : departments.entrySet()) {
+            DepartmentStats snapshot = department.getValue().snapshot(department.getKey());
+            if (snapshot != null) {
+                stats.add(snapshot);
+            }
+        }
+        stats.sort(Comparator.comparing(DepartmentStats::getDepartment));
+        return stats;
+    }
+
+    /**
+     * Records that an employee now earns the given salary in the given department.
+     *
+     * @param department the department of the employee
+     * @param salary     the salary of the employee
+     */
+    public void recordAdded(String department, Integer salary) {
+        TransactionCallbacks.afterCommit(() -> apply(department, salary, 1));
+    }
+
+    /**
+     * Records that an employee no longer earns the given salary in the given department.
+     *
+     * @param department the department of the employee
+     * @param salary     the salary of the employee
+     */
+    public void recordRemoved(String department, Integer salary) {
+        TransactionCallbacks.afterCommit(() -> apply(department, salary, -1));
+    }
+
+    private void apply(String department, Integer salary, long headcount) {
+        if (department == null || salary == null) {
+            return;
+        }
+        departments.compute(department, (name, aggregate) -> {
+            DepartmentAggregate updated = aggregate == null ? new DepartmentAggregate() : aggregate;
+            return updated.add(salary, headcount) ? updated : null;
+        });
+    }
+
+    /**
+     * Salary histogram of a department, from which its statistics are derived.
+     * Writers are serialized per department by the map, the lock only keeps readers consistent.
+     * A count can briefly go negative when a removal commits before the addition it undoes;
+     * such salaries are skipped until the addition arrives.
+     */
+    private static final class DepartmentAggregate {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final NavigableMap<Integer, Long> salaryCounts = new TreeMap<>();
+
+        private long headcount;
+
+        private long totalSalary;
+
+        /**
+         * @return false once the department has no salary left, so it can be dropped
+         */
+        boolean add(int salary, long count) {
+            lock.lock();
+            try {
+                salaryCounts.merge(salary, count, (current, delta) -> current + delta == 0 ? null : current + delta);
+                headcount += count;
+                totalSalary += salary * count;
+                return !salaryCounts.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        DepartmentStats snapshot(String department) {
+            lock.lock();
+            try {
+                if (headcount <= 0) {
+                    return null;
+                }
+                Integer minSalary = firstPositive(salaryCounts);
+                Integer maxSalary = firstPositive(salaryCounts.descendingMap());
+                if (minSalary == null) {
+                    return null;
+                }
+                return new DepartmentStats(department, headcount, totalSalary, minSalary, maxSalary);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static Integer firstPositive(NavigableMap<Integer, Long> counts) {
+            for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package jp.co.axa.apidemo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import jp.co.axa.apidemo.dto.EmployeeBatchResponse;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.entities.Employee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Inserts employees read from a stream in bulk.
+ * Items are read one at a time, validated individually and written in chunks, each chunk in its own
+ * transaction, so neither the request nor the persistence context ever holds more than one chunk.
+ */
+@Service
+public class EmployeeBatchService {
+
+    private static final Logger LOGGER = LogManager.getLogger(EmployeeBatchService.class);
+
+    private final EmployeeService employeeService;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    private final int maxItems;
+
+    public EmployeeBatchService(EmployeeService employeeService,
+                                Validator validator,
+                                @Value("${employees.batch.chunk-size:500}") int chunkSize,
+                                @Value("${employees.batch.max-items:10000}") int maxItems) {
+        this.employeeService = employeeService;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    /**
+     * Reads, validates and inserts every employee of the iterator.
+     * An item that cannot be mapped or fails validation is reported as invalid and skipped; reading stops
+     * at the first syntax error or once the maximum number of items is reached.
+     *
+     * @param employees the iterator reading employees from the request
+     * @return the result of each item read
+     * @throws IOException if the request cannot be read
+     */
+    public EmployeeBatchResponse saveEmployees(MappingIterator<Employee> employees) throws IOException {
+        return saveEmployees(employees, () -> false);
+    }
+
+    /**
+     * Reads, validates and inserts every employee of the iterator until cancelled.
+     * Once cancelled, no further item is read and the valid items not yet inserted are dropped; the chunks
+     * already inserted stay committed.
+     *
+     * @param employees the iterator reading employees from the request
+     * @param cancelled checked before each item, returns true once nobody waits for the response any more
+     * @return the result of each item read
+     * @throws IOException if the request cannot be read
+     */
+    public EmployeeBatchResponse saveEmployees(MappingIterator<Employee> employees, BooleanSupplier cancelled) throws IOException {
+        EmployeeBatchResponse response = new EmployeeBatchResponse();
+        List<Employee> chunk = new ArrayList<>(chunkSize);
+        List<EmployeeBatchResult> chunkResults = new ArrayList<>(chunkSize);
+        int index = 0;
+        try {
+            while (employees.hasNextValue()) {
+                if (cancelled.getAsBoolean()) {
+                    LOGGER.warn("Bulk save cancelled after " + index + " items, " + response.getCreated() + " created");
+                    response.setError("Batch cancelled after " + index + " items");
+                    return response;
+                }
+                if (index == maxItems) {
+                    response.setError("Batch exceeds the maximum of " + maxItems + " items");
+                    break;
+                }
+                EmployeeBatchResult result = new EmployeeBatchResult(index++);
+                response.getResults().add(result);
+
+                Employee employee;
+                try {
+                    employee = employees.nextValue();
+                } catch (JsonMappingException e) {
+                    reject(response, result, Collections.singletonList(e.getOriginalMessage()));
+                    continue;
+                }
+                Set<ConstraintViolation<Employee>> violations = validator.validate(employee);
+                if (!violations.isEmpty()) {
+                    reject(response, result, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.toList()));
+                    continue;
+                }
+
+                employee.setId(null);
+                chunk.add(employee);
+                chunkResults.add(result);
+                if (chunk.size() == chunkSize) {
+                    flush(response, chunk, chunkResults);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            response.setError("Malformed JSON after item " + index + ": " + e.getOriginalMessage());
+        }
+        flush(response, chunk, chunkResults);
+        return response;
+    }
+
+    /**
+     * Inserts a chunk of valid employees in one transaction and records the outcome of each.
+     */
+    private void flush(EmployeeBatchResponse response, List<Employee> chunk, List<EmployeeBatchResult> chunkResults) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            List<Employee> saved = employeeService.saveEmployees(chunk);
+            for (int i = 0; i < saved.size(); i++) {
+                chunkResults.get(i).setStatus(EmployeeBatchResult.Status.CREATED);
+                chunkResults.get(i).setId(saved.get(i).getId());
+            }
+            response.setCreated(response.getCreated() + saved.size());
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurred while saving a chunk of " + chunk.size() + " employees: ", e);
+            for (EmployeeBatchResult result : chunkResults) {
+                result.setStatus(EmployeeBatchResult.Status.FAILED);
+                result.setErrors(Collections.singletonList("Chunk could not be saved: " + e.getMessage()));
+            }
+            response.setFailed(response.getFailed() + chunk.size());
+        }
+        chunk.clear();
+        chunkResults.clear();
+    }
+
+    private static void reject(EmployeeBatchResponse response, EmployeeBatchResult result, List<String> errors) {
+        result.setStatus(EmployeeBatchResult.Status.INVALID);
+        result.setErrors(errors);
+        response.setFailed(response.getFailed() + 1);
+    }
+}
@@ -0,0 +1,100 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through cache of employees by id, in front of {@link EmployeeServiceImpl#getEmployee}.
+ * The employee service evicts an entry once a write to its employee commits, not when the writing method
+ * returns, so a reader running between the two cannot put the previous row back for the lifetime of the entry.
+ * <p>
+ * A reader may also load the previous row just before a write commits and store it just after the eviction.
+ * To keep that stale employee out, readers take a stamp before loading and the employee is only stored if
+ * no write to an employee of the same stripe has committed since.
+ */
+@Service
+public class EmployeeCache {
+
+    private static final int STRIPES = 64;
+
+    private final Cache cache;
+
+    /**
+     * The entries of the cache, updated atomically per employee so a put cannot interleave with an eviction.
+     */
+    private final ConcurrentMap<Object, Object> entries;
+
+    /**
+     * Number of writes committed to the employees of each stripe.
+     */
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    /**
+     * @param cacheManager the manager of the {@link CacheConfig#EMPLOYEE_CACHE} cache, backed by Caffeine or by a
+     *                     concurrent map
+     */
+    @SuppressWarnings("unchecked")
+    public EmployeeCache(CacheManager cacheManager) {
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE),
+                "Cache " + CacheConfig.EMPLOYEE_CACHE + " is not configured");
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache) {
+            this.entries = ((com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache).asMap();
+        } else if (nativeCache instanceof ConcurrentMap) {
+            this.entries = (ConcurrentMap<Object, Object>) nativeCache;
+        } else {
+            throw new IllegalStateException("Cache " + CacheConfig.EMPLOYEE_CACHE + " is not backed by a concurrent map");
+        }
+    }
+
+    /**
+     * @param employeeId the id of the employee
+     * @return the cached employee, or null if there is none
+     */
+    public Employee get(Long employeeId) {
+        return cache.get(employeeId, Employee.class);
+    }
+
+    /**
+     * Takes the stamp to pass to {@link #put} before loading an employee.
+     *
+     * @param employeeId the id of the employee about to be loaded
+     * @return the stamp of the employee
+     */
+    public long stamp(Long employeeId) {
+        return writes.get(stripe(employeeId));
+    }
+
+    /**
+     * Stores an employee unless a write to it may have committed since the stamp was taken.
+     *
+     * @param stamp    the stamp taken before the employee was loaded
+     * @param employee the loaded employee
+     */
+    public void put(long stamp, Employee employee) {
+        entries.compute(employee.getId(), (id, cached) -> writes.get(stripe((Long) id)) != stamp ? cached : employee);
+    }
+
+    /**
+     * Evicts an employee, and keeps employees loaded before now from being stored.
+     *
+     * @param employeeId the id of the written employee
+     */
+    public void evict(Long employeeId) {
+        entries.compute(employeeId, (id, cached) -> {
+            writes.incrementAndGet(stripe((Long) id));
+            return null;
+        });
+    }
+
+    private static int stripe(Long employeeId) {
+        return (Long.hashCode(employeeId) & Integer.MAX_VALUE) % STRIPES;
+    }
+}
@@ -0,0 +1,359 @@
+package jp.co.axa.apidemo.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jp.co.axa.apidemo.dto.EmployeeImportStatus;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exceptions.ImportQueueFullException;
+import jp.co.axa.apidemo.exceptions.UploadTooLargeException;
+import jp.co.axa.apidemo.util.TempFiles;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports employees from large CSV files.
+ * The upload is copied to a temporary file of bounded size and its header checked, then the import is queued as
+ * a job and runs on a dedicated pool while its progress can be read. The file is parsed row by row, each row is
+ * validated on its own and valid rows are inserted in chunks, each chunk in its own transaction, so memory
+ * holds at most one chunk and the first errors whatever the size of the file.
+ */
+@Service
+public class EmployeeImportService {
+
+    private static final Logger LOGGER = LogManager.getLogger(EmployeeImportService.class);
+
+    private static final List<String> REQUIRED_COLUMNS = Arrays.asList("name", "salary", "department");
+
+    /**
+     * Columns that may be present but are ignored, so exported files can be imported back.
+     */
+    private static final List<String> IGNORED_COLUMNS = Arrays.asList("id", "version");
+
+    private static final int MAX_ERRORS = 100;
+
+    private static final CsvSchema HEADER_SCHEMA = CsvSchema.emptySchema().withHeader();
+
+    private final EmployeeService employeeService;
+
+    private final Validator validator;
+
+    private final int chunkSize;
+
+    private final CsvMapper csvMapper = new CsvMapper();
+
+    private final long maxBytes;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Queued and running jobs by id, bounded by the size of the pool and its queue. They are never evicted,
+     * so their progress can be followed until they finish.
+     */
+    private final ConcurrentHashMap<String, ImportJob> activeJobs = new ConcurrentHashMap<>();
+
+    /**
+     * Finished jobs by id. Only the most recent jobs are kept.
+     */
+    private final Cache<String, ImportJob> finishedJobs;
+
+    public EmployeeImportService(EmployeeService employeeService,
+                                 Validator validator,
+                                 @Value("${employees.import.chunk-size:500}") int chunkSize,
+                                 @Value("${employees.import.max-jobs:100}") int maxJobs,
+                                 @Value("${employees.import.threads:1}") int threads,
+                                 @Value("${employees.import.queue-capacity:10}") int queueCapacity,
+                                 @Value("${employees.import.max-bytes:104857600}") long maxBytes) {
+        this.employeeService = employeeService;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+        this.maxBytes = maxBytes;
+        this.finishedJobs = Caffeine.newBuilder().maximumSize(maxJobs).build();
+        csvMapper.enable(CsvParser.Feature.TRIM_SPACES);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("employee-import-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the import of a CSV file whose header names the employee columns, once the file has been
+     * copied and its header checked. The job then reads, validates and inserts every row: a row that cannot
+     * be mapped or fails validation is counted as invalid and skipped, and reading stops at the first error
+     * from which the parser cannot recover.
+     *
+     * @param csv the CSV file, read once up to its end
+     * @return the status of the import job, which is still running
+     * @throws IllegalArgumentException if the header is missing a required column or names an unknown one
+     * @throws UploadTooLargeException if the file is longer than employees.import.max-bytes
+     * @throws ImportQueueFullException if too many imports are already waiting
+     * @throws IOException if the file cannot be read
+     */
+    public EmployeeImportStatus importEmployees(InputStream csv) throws IOException {
+        Path file = TempFiles.spool(csv, "employee-import-", ".csv", maxBytes);
+        CsvParser parser = null;
+        boolean queued = false;
+        try {
+            parser = csvMapper.getFactory().createParser(file.toFile());
+            parser.setSchema(HEADER_SCHEMA);
+            parser.nextToken();
+            checkColumns(parser.getSchema());
+
+            ImportJob job = new ImportJob(UUID.randomUUID().toString());
+            CsvParser header = parser;
+            activeJobs.put(job.id, job);
+            try {
+                executor.execute(() -> run(job, header, file));
+            } catch (RejectedExecutionException e) {
+                activeJobs.remove(job.id);
+                throw new ImportQueueFullException("Too many employee imports in progress");
+            }
+            queued = true;
+            LOGGER.info("Queued employee import job: " + job.id);
+            return job.snapshot();
+        } finally {
+            if (!queued) {
+                if (parser != null) {
+                    parser.close();
+                }
+                delete(file);
+            }
+        }
+    }
+
+    /**
+     * Retrieve the status of a running or recent import.
+     *
+     * @param jobId the id of the import job
+     * @return the status of the job, or null if it is unknown or no longer kept
+     */
+    public EmployeeImportStatus getStatus(String jobId) {
+        ImportJob job = activeJobs.get(jobId);
+        if (job == null) {
+            job = finishedJobs.getIfPresent(jobId);
+        }
+        return job == null ? null : job.snapshot();
+    }
+
+    /**
+     * Retrieve the status of every running or recent import, the most recent first.
+     *
+     * @return the status of each job
+     */
+    public List<EmployeeImportStatus> getStatuses() {
+        return Stream.concat(activeJobs.values().stream(), finishedJobs.asMap().values().stream())
+                .distinct()
+                .map(ImportJob::snapshot)
+                .sorted(Comparator.comparing(EmployeeImportStatus::getStartedAt).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Imports the rows following the header already read by the parser, then deletes the file and moves the
+     * job to the finished jobs. The job is kept in both maps for a moment so it can always be found.
+     */
+    private void run(ImportJob job, CsvParser header, Path file) {
+        LOGGER.info("Started employee import job: " + job.id);
+        try (CsvParser parser = header) {
+            MappingIterator<Employee> rows = csvMapper.readerFor(Employee.class).readValues(parser);
+            importRows(job, rows);
+            LOGGER.info("Finished employee import job: " + job.id + ", " + job.rowsImported + " rows imported");
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Employee import job " + job.id + " aborted: ", e);
+            job.finish(EmployeeImportStatus.State.FAILED, "Import aborted after row " + job.rowsRead + ": " + e.getMessage());
+        } finally {
+            delete(file);
+            finishedJobs.put(job.id, job);
+            activeJobs.remove(job.id);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the temporary import file: " + file, e);
+        }
+    }
+
+    private void importRows(ImportJob job, MappingIterator<Employee> rows) throws IOException {
+        List<Employee> chunk = new ArrayList<>(chunkSize);
+        try {
+            while (rows.hasNextValue()) {
+                long row = job.rowsRead.incrementAndGet();
+                Employee employee;
+                try {
+                    employee = rows.nextValue();
+                } catch (JsonMappingException e) {
+                    job.reject(row, e.getOriginalMessage());
+                    continue;
+                }
+                Set<ConstraintViolation<Employee>> violations = validator.validate(employee);
+                if (!violations.isEmpty()) {
+                    job.reject(row, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                    continue;
+                }
+
+                employee.setId(null);
+                chunk.add(employee);
+                if (chunk.size() == chunkSize) {
+                    flush(job, chunk);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            flush(job, chunk);
+            job.finish(EmployeeImportStatus.State.FAILED, "Malformed CSV after row " + job.rowsRead + ": " + e.getOriginalMessage());
+            return;
+        }
+        flush(job, chunk);
+        job.finish(EmployeeImportStatus.State.COMPLETED, null);
+    }
+
+    /**
+     * Inserts a chunk of valid employees in one transaction and counts the outcome.
+     */
+    private void flush(ImportJob job, List<Employee> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            job.rowsImported.addAndGet(employeeService.saveEmployees(chunk).size());
+        } catch (RuntimeException e) {
+            LOGGER.error("Error occurred while importing a chunk of " + chunk.size() + " employees: ", e);
+            job.rowsFailed.addAndGet(chunk.size());
+            job.addError("Chunk of " + chunk.size() + " rows ending at row " + job.rowsRead.get()
+                    + " could not be saved: " + e.getMessage());
+        }
+        chunk.clear();
+    }
+
+    private static void checkColumns(CsvSchema schema) {
+        Set<String> columns = new HashSet<>();
+        for (CsvSchema.Column column : schema) {
+            if (!REQUIRED_COLUMNS.contains(column.getName()) && !IGNORED_COLUMNS.contains(column.getName())) {
+                throw new IllegalArgumentException("Unknown column in CSV header: " + column.getName());
+            }
+            columns.add(column.getName());
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.contains(column)) {
+                throw new IllegalArgumentException("Missing column in CSV header: " + column);
+            }
+        }
+    }
+
+    /**
+     * Progress of one import. Only the thread importing the file updates it; other threads take snapshots.
+     * Valid rows are counted once their chunk is written, so a snapshot can show rows read but not yet
+     * accounted for.
+     */
+    private static final class ImportJob {
+
+        private final String id;
+
+        private final Instant startedAt = Instant.now();
+
+        private final long startNanos = System.nanoTime();
+
+        private final AtomicLong rowsRead = new AtomicLong();
+
+        private final AtomicLong rowsImported = new AtomicLong();
+
+        private final AtomicLong rowsInvalid = new AtomicLong();
+
+        private final AtomicLong rowsFailed = new AtomicLong();
+
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile EmployeeImportStatus.State state = EmployeeImportStatus.State.RUNNING;
+
+        private volatile Instant finishedAt;
+
+        private volatile long finishNanos;
+
+        private volatile String error;
+
+        ImportJob(String id) {
+            this.id = id;
+        }
+
+        void reject(long row, String message) {
+            rowsInvalid.incrementAndGet();
+            addError("Row " + row + ": " + message);
+        }
+
+        void addError(String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+
+        void finish(EmployeeImportStatus.State state, String error) {
+            this.finishNanos = System.nanoTime();
+            this.finishedAt = Instant.now();
+            this.error = error;
+            this.state = state;
+        }
+
+        EmployeeImportStatus snapshot() {
+            EmployeeImportStatus status = new EmployeeImportStatus();
+            EmployeeImportStatus.State currentState = state;
+            long endNanos = currentState == EmployeeImportStatus.State.RUNNING ? System.nanoTime() : finishNanos;
+            long read = rowsRead.get();
+            double seconds = (endNanos - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            status.setJobId(id);
+            status.setState(currentState);
+            status.setStartedAt(startedAt);
+            status.setFinishedAt(finishedAt);
+            status.setRowsRead(read);
+            status.setRowsImported(rowsImported.get());
+            status.setRowsInvalid(rowsInvalid.get());
+            status.setRowsFailed(rowsFailed.get());
+            status.setRowsPerSecond(seconds > 0 ? read / seconds : 0);
+            status.setErrors(new ArrayList<>(errors));
+            status.setError(error);
+            return status;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package jp.co.axa.apidemo.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of the JSON representation of employees, so that reads of hot employees are answered with
+ * bytes encoded once instead of serializing the same unchanged employee again and again.
+ * Each entry holds the version it was encoded from and is dropped once a write to its employee commits.
+ * The cache is capped by the total size of the encoded bytes and evicts with W-TinyLFU past that size.
+ * <p>
+ * A reader may load an employee just before a write commits and store its encoding just after the write
+ * dropped the entry. To keep that stale encoding out, readers take a stamp before loading and the encoding
+ * is only stored if no write to an employee of the same stripe has committed since.
+ */
+@Service
+public class EmployeeJsonCache {
+
+    public static final String CACHE_NAME = "employeeJson";
+
+    private static final int STRIPES = 64;
+
+    private final Cache<Long, CachedEmployee> cache;
+
+    /**
+     * Number of writes committed to the employees of each stripe.
+     */
+    private final AtomicLongArray writes = new AtomicLongArray(STRIPES);
+
+    private final Counter bytesSaved;
+
+    /**
+     * @param registry the registry the hit ratio, the bytes saved, the size and the Caffeine statistics are published to
+     * @param maxBytes the total size of the encodings kept, in bytes
+     */
+    public EmployeeJsonCache(MeterRegistry registry,
+                             @Value("${employees.json-cache.max-bytes:16777216}") long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Long employeeId, CachedEmployee employee) -> employee.getJson().length)
+                .recordStats()
+                .build();
+        this.bytesSaved = Counter.builder("employees.json-cache.bytes.saved")
+                .description("Bytes of employee JSON served from the cache instead of being serialized")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("employees.json-cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of employee reads answered with cached JSON")
+                .register(registry);
+        Gauge.builder("employees.json-cache.size", this, EmployeeJsonCache::weightedSize)
+                .description("Bytes of employee JSON held by the cache")
+                .baseUnit("bytes")
+                .register(registry);
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @param employeeId the id of the employee
+     * @return the cached encoding of the employee, or null if there is none
+     */
+    public CachedEmployee get(Long employeeId) {
+        CachedEmployee employee = cache.getIfPresent(employeeId);
+        if (employee != null) {
+            bytesSaved.increment(employee.getJson().length);
+        }
+        return employee;
+    }
+
+    /**
+     * Takes the stamp to pass to {@link #put} before loading an employee to encode.
+     *
+     * @param employeeId the id of the employee about to be loaded
+     * @return the stamp of the employee
+     */
+    public long stamp(Long employeeId) {
+        return writes.get(stripe(employeeId));
+    }
+
+    /**
+     * Stores the encoding of an employee unless a write to it may have committed since the stamp was taken.
+     *
+     * @param stamp        the stamp taken before the employee was loaded
+     * @param employeeId   the id of the employee
+     * @param version      the version the employee was encoded from
+     * @param lastModified the time the employee was last written
+     * @param json         the JSON encoding of the employee, which must not be modified afterwards
+     */
+    public void put(long stamp, Long employeeId, Long version, Instant lastModified, byte[] json) {
+        if (version == null) {
+            return;
+        }
+        CachedEmployee employee = new CachedEmployee(version, lastModified, json);
+        cache.asMap().compute(employeeId, (id, cached) -> {
+            if (writes.get(stripe(id)) != stamp) {
+                return cached;
+            }
+            return cached != null && cached.getVersion() >= version ? cached : employee;
+        });
+    }
+
+    /**
+     * Drops the encoding of an employee, and keeps encodings loaded before now from being stored.
+     *
+     * @param employeeId the id of the written employee
+     */
+    public void invalidate(Long employeeId) {
+        cache.asMap().compute(employeeId, (id, cached) -> {
+            writes.incrementAndGet(stripe(id));
+            return null;
+        });
+    }
+
+    /**
+     * @return the total size of the encodings currently kept, in bytes
+     */
+    public long weightedSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    private static int stripe(Long employeeId) {
+        return (Long.hashCode(employeeId) & Integer.MAX_VALUE) % STRIPES;
+    }
+
+    /**
+     * The JSON encoding of an employee at a given version.
+     */
+    public static final class CachedEmployee {
+
+        private final long version;
+
+        private final Instant lastModified;
+
+        private final byte[] json;
+
+        CachedEmployee(long version, Instant lastModified, byte[] json) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.json = json;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Instant getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * @return the encoded employee, shared by every reader and never to be modified
+         */
+        public byte[] getJson() {
+            return json;
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
+import jp.co.axa.apidemo.dto.SparseEmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.SparseEmployeePage;
 import jp.co.axa.apidemo.entities.Employee;
 import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.EmployeeVersionMismatchException;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service for managing employees.
@@ -11,11 +20,22 @@ import java.util.List;
 public interface EmployeeService {
 
     /**
-     * Retrieve all employees.
+     * Retrieve a page of the employees matching the filter in id order, seeking after the given id.
      *
-     * @return the list of all employees
+     * @param filter  the criteria the employees must match
+     * @param afterId the id of the last employee of the previous page, or null for the first page
+     * @param limit   the maximum number of employees to return, capped by the server-side maximum
+     * @return the page of employees and the cursor of the next page
      */
-    public List<Employee> retrieveEmployees();
+    public EmployeePage retrieveEmployees(EmployeeFilter filter, Long afterId, int limit);
+
+    /**
+     * Export all employees in id order, handing each one to the consumer as it is read.
+     * Employees are not accumulated, so memory use does not grow with the size of the table.
+     *
+     * @param consumer the consumer receiving each employee
+     */
+    public void exportEmployees(Consumer<Employee> consumer);
 
     /**
      * Retrieve an employee by their id.
@@ -26,6 +46,44 @@ public interface EmployeeService {
      */
     public Employee getEmployee(Long employeeId);
 
+    /**
+     * Retrieve many employees by their ids.
+     *
+     * @param employeeIds the ids of the employees
+     * @return the employees found, in the order of their ids, and the ids that were not found
+     */
+    public EmployeeLookupResponse getEmployees(List<Long> employeeIds);
+
+    /**
+     * Retrieve a page of the employees matching the filter in id order, reading only the given fields.
+     *
+     * @param filter  the criteria the employees must match
+     * @param afterId the id of the last employee of the previous page, or null for the first page
+     * @param limit   the maximum number of employees to return, capped by the server-side maximum
+     * @param fields  the fields to read, as parsed by {@link jp.co.axa.apidemo.util.EmployeeFields}
+     * @return the page of employees and the cursor of the next page
+     */
+    public SparseEmployeePage retrieveEmployeeFields(EmployeeFilter filter, Long afterId, int limit, List<String> fields);
+
+    /**
+     * Retrieve only the given fields of an employee.
+     *
+     * @param employeeId the id of the employee
+     * @param fields     the fields to read, as parsed by {@link jp.co.axa.apidemo.util.EmployeeFields}
+     * @return the fields of the employee by name
+     * @throws EmployeeNotFoundException if the employee does not exist
+     */
+    public Map<String, Object> getEmployeeFields(Long employeeId, List<String> fields);
+
+    /**
+     * Retrieve only the given fields of many employees by their ids.
+     *
+     * @param employeeIds the ids of the employees
+     * @param fields      the fields to read, as parsed by {@link jp.co.axa.apidemo.util.EmployeeFields}
+     * @return the employees found, in the order of their ids, and the ids that were not found
+     */
+    public SparseEmployeeLookupResponse lookupEmployeeFields(List<Long> employeeIds, List<String> fields);
+
     /**
      * Save an employee.
      *
@@ -34,17 +92,61 @@ public interface EmployeeService {
      */
     public Employee saveEmployee(Employee employee);
 
+    /**
+     * Save a chunk of new employees in one transaction, letting the inserts be batched.
+     *
+     * @param employees the employees to save, without ids
+     * @return the saved employees, in the same order
+     * @throws IllegalArgumentException if an employee has an id
+     */
+    public List<Employee> saveEmployees(List<Employee> employees);
+
     /**
      * Delete an employee by their id.
      *
      * @param employeeId the id of the employee
+     * @throws EmployeeNotFoundException if the employee does not exist
      */
     public void deleteEmployee(Long employeeId);
 
     /**
      * Update an existing employee.
      *
-     * @param employee the employee with updated details
+     * @param employee        the employee with updated details
+     * @param expectedVersion the version the employee must still have, or null to update it whatever its version
+     * @return the updated employee, with its new version
+     * @throws EmployeeNotFoundException        if the employee does not exist
+     * @throws EmployeeVersionMismatchException if the employee no longer has the expected version
+     */
+    public Employee updateEmployee(Employee employee, Long expectedVersion);
+
+    /**
+     * Overwrite only the given attributes of an existing employee, without loading it.
+     * The changes must already be validated.
+     *
+     * @param employeeId      the id of the employee
+     * @param changes         the new values, keyed by attribute name
+     * @param expectedVersion the version the employee must still have, or null to update it whatever its version
+     * @return the new version of the employee, or null if it is not known without reading the employee
+     * @throws EmployeeNotFoundException        if the employee does not exist
+     * @throws EmployeeVersionMismatchException if the employee no longer has the expected version
+     */
+    public Long patchEmployee(Long employeeId, Map<String, Object> changes, Long expectedVersion);
+
+    /**
+     * Retrieve the version of an employee and the time it was last modified, without loading the employee.
+     *
+     * @param employeeId the id of the employee
+     * @return the version and last modification time of the employee
+     * @throws EmployeeNotFoundException if the employee does not exist
+     */
+    public EmployeeVersion getEmployeeVersion(Long employeeId);
+
+    /**
+     * Retrieve the version of the employee collection, which changes whenever any employee is written.
+     * The value is unique across restarts, so it can be used as the ETag of employee listings.
+     *
+     * @return the current version of the employee collection
      */
-    public void updateEmployee(Employee employee);
+    public String getCollectionVersion();
 }
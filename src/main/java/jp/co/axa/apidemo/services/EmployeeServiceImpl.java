@@ -1,15 +1,37 @@
 package jp.co.axa.apidemo.services;
 
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeState;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
+import jp.co.axa.apidemo.dto.SparseEmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.SparseEmployeePage;
 import jp.co.axa.apidemo.entities.Employee;
 import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.EmployeeVersionMismatchException;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.util.EmployeeCursor;
+import jp.co.axa.apidemo.util.EmployeeFields;
+import jp.co.axa.apidemo.util.TransactionCallbacks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Implementation of the EmployeeService interface.
@@ -20,25 +42,94 @@ public class EmployeeServiceImpl implements EmployeeService {
 
     private static final Logger LOGGER = LogManager.getLogger(EmployeeServiceImpl.class);
 
+    /**
+     * Hard upper bound on the page size, whatever the client asks for.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Number of ids bound in a single IN clause, kept under the bind parameter limit of common databases.
+     */
+    public static final int IN_CLAUSE_CHUNK_SIZE = 500;
+
+    private static final String DEPARTMENT = "department";
+
+    private static final String SALARY = "salary";
+
     private final EmployeeRepository employeeRepository;
 
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    private final EntityManager entityManager;
+
+    private final DepartmentStatsService departmentStatsService;
+
+    private final EmployeeCache employeeCache;
+
+    private final EmployeeJsonCache employeeJsonCache;
+
+    /**
+     * Distinguishes collection versions of this run from those handed out before a restart.
+     */
+    private final long collectionEpoch = System.currentTimeMillis();
+
+    private final AtomicLong collectionVersion = new AtomicLong();
+
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EntityManager entityManager,
+                               DepartmentStatsService departmentStatsService, EmployeeCache employeeCache,
+                               EmployeeJsonCache employeeJsonCache) {
         this.employeeRepository = employeeRepository;
+        this.entityManager = entityManager;
+        this.departmentStatsService = departmentStatsService;
+        this.employeeCache = employeeCache;
+        this.employeeJsonCache = employeeJsonCache;
+    }
+
+    /**
+     * Retrieve a page of the employees matching the filter in id order, seeking after the given id.
+     * One extra row is fetched to find out whether a next page exists.
+     *
+     * @param filter  the criteria the employees must match
+     * @param afterId the id of the last employee of the previous page, or null for the first page
+     * @param limit   the maximum number of employees to return, capped at {@link #MAX_PAGE_SIZE}
+     * @return the page of employees and the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeePage retrieveEmployees(EmployeeFilter filter, Long afterId, int limit) {
+        Objects.requireNonNull(filter, "Filter must not be null");
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long seekId = afterId == null ? 0L : afterId;
+        LOGGER.info("Retrieving " + pageSize + " employees after id: " + seekId);
+        List<Employee> employees = employeeRepository.findPage(filter, seekId, pageSize + 1);
+        if (employees.size() <= pageSize) {
+            return new EmployeePage(employees, null);
+        }
+        List<Employee> page = employees.subList(0, pageSize);
+        return new EmployeePage(page, EmployeeCursor.encode(page.get(pageSize - 1).getId()));
     }
 
     /**
-     * Retrieve all employees.
+     * Export all employees in id order, handing each one to the consumer as it is read.
+     * Each employee is detached once consumed so the persistence context stays empty.
      *
-     * @return the list of all employees
+     * @param consumer the consumer receiving each employee
      */
     @Override
-    public List<Employee> retrieveEmployees() {
-        LOGGER.info("Retrieving all employees");
-        return employeeRepository.findAll();
+    @Transactional(readOnly = true)
+    public void exportEmployees(Consumer<Employee> consumer) {
+        Objects.requireNonNull(consumer, "Consumer must not be null");
+        LOGGER.info("Exporting all employees");
+        try (Stream<Employee> employees = employeeRepository.streamAll()) {
+            employees.forEach(employee -> {
+                consumer.accept(employee);
+                entityManager.detach(employee);
+            });
+        }
     }
 
     /**
      * Retrieve an employee by their id.
+     * Results are served from the employee cache when present. The stamp is taken before the employee is
+     * read, so a row read before a concurrent write commits is not cached after it.
      *
      * @param employeeId the id of the employee
      * @return the employee if found
@@ -47,13 +138,165 @@ public class EmployeeServiceImpl implements EmployeeService {
     @Override
     public Employee getEmployee(Long employeeId) {
         Objects.requireNonNull(employeeId, "Employee id must not be null");
+        Employee cached = employeeCache.get(employeeId);
+        if (cached != null) {
+            return cached;
+        }
         LOGGER.info("Retrieving employee with id: " + employeeId);
-        return employeeRepository.findById(employeeId)
+        long stamp = employeeCache.stamp(employeeId);
+        Employee employee = employeeRepository.findById(employeeId)
+                .orElseThrow(() -> new EmployeeNotFoundException("Employee with id " + employeeId + " was not found"));
+        employeeCache.put(stamp, employee);
+        return employee;
+    }
+
+    /**
+     * Retrieve many employees by their ids.
+     * Duplicate ids are ignored and the rest are fetched with one IN query per {@link #IN_CLAUSE_CHUNK_SIZE} ids.
+     *
+     * @param employeeIds the ids of the employees
+     * @return the employees found, in the order of their ids, and the ids that were not found
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeLookupResponse getEmployees(List<Long> employeeIds) {
+        Objects.requireNonNull(employeeIds, "Employee ids must not be null");
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(employeeIds));
+        LOGGER.info("Retrieving " + uniqueIds.size() + " employees by id");
+        Map<Long, Employee> employeesById = new HashMap<>();
+        for (int from = 0; from < uniqueIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = uniqueIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, uniqueIds.size()));
+            for (Employee employee : employeeRepository.findAllById(chunk)) {
+                employeesById.put(employee.getId(), employee);
+            }
+        }
+        List<Employee> employees = new ArrayList<>(employeesById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long employeeId : uniqueIds) {
+            Employee employee = employeesById.get(employeeId);
+            if (employee != null) {
+                employees.add(employee);
+            } else {
+                missingIds.add(employeeId);
+            }
+        }
+        return new EmployeeLookupResponse(employees, missingIds);
+    }
+
+    /**
+     * Retrieve a page of the employees matching the filter in id order, reading only the given fields.
+     * The columns are selected with a projection query, so no entity is built, snapshotted for dirty
+     * checking or attached to the persistence context.
+     *
+     * @param filter  the criteria the employees must match
+     * @param afterId the id of the last employee of the previous page, or null for the first page
+     * @param limit   the maximum number of employees to return, capped at {@link #MAX_PAGE_SIZE}
+     * @param fields  the fields to read, including the id
+     * @return the page of employees and the cursor of the next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SparseEmployeePage retrieveEmployeeFields(EmployeeFilter filter, Long afterId, int limit, List<String> fields) {
+        Objects.requireNonNull(filter, "Filter must not be null");
+        Objects.requireNonNull(fields, "Fields must not be null");
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        long seekId = afterId == null ? 0L : afterId;
+        LOGGER.info("Retrieving " + fields + " of " + pageSize + " employees after id: " + seekId);
+        List<Map<String, Object>> employees = employeeRepository.findPageFields(filter, seekId, pageSize + 1, fields);
+        if (employees.size() <= pageSize) {
+            return new SparseEmployeePage(employees, null);
+        }
+        List<Map<String, Object>> page = employees.subList(0, pageSize);
+        return new SparseEmployeePage(page, EmployeeCursor.encode((Long) page.get(pageSize - 1).get(EmployeeFields.ID)));
+    }
+
+    /**
+     * Retrieve only the given fields of an employee with a projection query, bypassing the employee cache.
+     *
+     * @param employeeId the id of the employee
+     * @param fields     the fields to read, including the id
+     * @return the fields of the employee by name
+     * @throws EmployeeNotFoundException if the employee does not exist
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getEmployeeFields(Long employeeId, List<String> fields) {
+        Objects.requireNonNull(employeeId, "Employee id must not be null");
+        Objects.requireNonNull(fields, "Fields must not be null");
+        LOGGER.info("Retrieving " + fields + " of employee with id: " + employeeId);
+        List<Map<String, Object>> employees = employeeRepository.findFieldsByIds(Collections.singletonList(employeeId), fields);
+        if (employees.isEmpty()) {
+            throw new EmployeeNotFoundException("Employee with id " + employeeId + " was not found");
+        }
+        return employees.get(0);
+    }
+
+    /**
+     * Retrieve only the given fields of many employees by their ids, with one projection query per
+     * {@link #IN_CLAUSE_CHUNK_SIZE} ids. Duplicate ids are ignored.
+     *
+     * @param employeeIds the ids of the employees
+     * @param fields      the fields to read, including the id
+     * @return the employees found, in the order of their ids, and the ids that were not found
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SparseEmployeeLookupResponse lookupEmployeeFields(List<Long> employeeIds, List<String> fields) {
+        Objects.requireNonNull(employeeIds, "Employee ids must not be null");
+        Objects.requireNonNull(fields, "Fields must not be null");
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(employeeIds));
+        LOGGER.info("Retrieving " + fields + " of " + uniqueIds.size() + " employees by id");
+        Map<Long, Map<String, Object>> employeesById = new HashMap<>();
+        for (int from = 0; from < uniqueIds.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Long> chunk = uniqueIds.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, uniqueIds.size()));
+            for (Map<String, Object> employee : employeeRepository.findFieldsByIds(chunk, fields)) {
+                employeesById.put((Long) employee.get(EmployeeFields.ID), employee);
+            }
+        }
+        List<Map<String, Object>> employees = new ArrayList<>(employeesById.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long employeeId : uniqueIds) {
+            Map<String, Object> employee = employeesById.get(employeeId);
+            if (employee != null) {
+                employees.add(employee);
+            } else {
+                missingIds.add(employeeId);
+            }
+        }
+        return new SparseEmployeeLookupResponse(employees, missingIds);
+    }
+
+    /**
+     * Retrieve the version of an employee and the time it was last modified, without loading the employee.
+     *
+     * @param employeeId the id of the employee
+     * @return the version and last modification time of the employee
+     * @throws EmployeeNotFoundException if the employee does not exist
+     */
+    @Override
+    public EmployeeVersion getEmployeeVersion(Long employeeId) {
+        Objects.requireNonNull(employeeId, "Employee id must not be null");
+        return employeeRepository.findVersionById(employeeId)
                 .orElseThrow(() -> new EmployeeNotFoundException("Employee with id " + employeeId + " was not found"));
     }
 
+    /**
+     * Retrieve the version of the employee collection.
+     * The counter is only incremented once a write has committed, so a listing read after this version
+     * was taken can never be older than the data it is labelled with.
+     *
+     * @return the current version of the employee collection
+     */
+    @Override
+    public String getCollectionVersion() {
+        return collectionEpoch + "-" + collectionVersion.get();
+    }
+
     /**
      * Saves an employee.
+     * When the employee already exists, its previous state is read under a row lock so the department
+     * statistics can be corrected and the write is applied over its current version.
+     * An id that matches no employee is cleared, so the employee is created with a generated id.
      *
      * @param employee the employee to be saved
      * @return the saved employee object
@@ -61,9 +304,21 @@ public class EmployeeServiceImpl implements EmployeeService {
     @Override
     @Transactional
     public Employee saveEmployee(Employee employee) {
+        Objects.requireNonNull(employee, "Employee must not be null");
         try {
             LOGGER.info("Saving employee: " + employee);
+            if (employee.getId() != null) {
+                Optional<EmployeeState> previous = employeeRepository.findStateForUpdateById(employee.getId());
+                if (previous.isPresent()) {
+                    employee.setVersion(previous.get().getVersion());
+                    departmentStatsService.recordRemoved(previous.get().getDepartment(), previous.get().getSalary());
+                } else {
+                    employee.setId(null);
+                }
+            }
             Employee savedEmployee = employeeRepository.save(employee);
+            departmentStatsService.recordAdded(savedEmployee.getDepartment(), savedEmployee.getSalary());
+            employeeChanged(savedEmployee.getId());
             return savedEmployee;
         } catch (Exception e) {
             LOGGER.error("Error occurred while saving employee: ", e);
@@ -71,8 +326,38 @@ public class EmployeeServiceImpl implements EmployeeService {
         }
     }
 
+    /**
+     * Save a chunk of new employees in one transaction.
+     * Ids come from a pooled sequence, so the inserts are sent in JDBC batches when the transaction flushes.
+     * Employees given with an id are rejected, as overwriting rows here would leave them cached and counted
+     * in the department statistics with their previous values; {@link #saveEmployee} handles those.
+     *
+     * @param employees the employees to save
+     * @return the saved employees, in the same order
+     * @throws IllegalArgumentException if an employee has an id
+     */
+    @Override
+    @Transactional
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        Objects.requireNonNull(employees, "Employees must not be null");
+        LOGGER.info("Saving " + employees.size() + " employees");
+        for (Employee employee : employees) {
+            if (employee.getId() != null) {
+                throw new IllegalArgumentException("New employees must not have an id, got: " + employee.getId());
+            }
+        }
+        List<Employee> savedEmployees = employeeRepository.saveAll(employees);
+        for (Employee savedEmployee : savedEmployees) {
+            departmentStatsService.recordAdded(savedEmployee.getDepartment(), savedEmployee.getSalary());
+        }
+        collectionChanged();
+        return savedEmployees;
+    }
+
     /**
      * Delete an employee by their id.
+     * The row is locked while its salary is read for the department statistics, then removed in a single
+     * DELETE statement.
      *
      * @param employeeId the id of the employee
      * @throws EmployeeNotFoundException if the employee does not exist
@@ -82,30 +367,112 @@ public class EmployeeServiceImpl implements EmployeeService {
     public void deleteEmployee(Long employeeId) {
         Objects.requireNonNull(employeeId, "Employee id must not be null");
         LOGGER.info("Deleting employee with id: " + employeeId);
-        if (employeeRepository.existsById(employeeId)) {
-            employeeRepository.deleteById(employeeId);
-        } else {
-            throw new EmployeeNotFoundException("Employee with id " + employeeId + " was not found");
-        }
+        EmployeeState previous = findStateForUpdate(employeeId);
+        employeeRepository.deleteEmployeeById(employeeId);
+        departmentStatsService.recordRemoved(previous.getDepartment(), previous.getSalary());
+        employeeChanged(employeeId);
     }
 
     /**
      * Update an existing employee.
+     * The row is locked while its previous state is read for the version check and the department
+     * statistics, then overwritten in a single UPDATE statement.
      *
-     * @param employee the employee with updated details
-     * @throws EmployeeNotFoundException if the employee does not exist
+     * @param employee        the employee with updated details
+     * @param expectedVersion the version the employee must still have, or null to update it whatever its version
+     * @return the updated employee, with its new version
+     * @throws EmployeeNotFoundException        if the employee does not exist
+     * @throws EmployeeVersionMismatchException if the employee no longer has the expected version
      */
     @Override
     @Transactional
-    public void updateEmployee(Employee employee) {
+    public Employee updateEmployee(Employee employee, Long expectedVersion) {
         Objects.requireNonNull(employee, "Employee must not be null");
         Objects.requireNonNull(employee.getId(), "Employee id must not be null");
         LOGGER.info("Updating employee: " + employee);
-        if (employeeRepository.existsById(employee.getId())) {
-            employeeRepository.save(employee);
-        } else {
+        EmployeeState previous = findStateForUpdate(employee.getId());
+        checkVersion(employee.getId(), previous.getVersion(), expectedVersion);
+        employee.setLastModified(Instant.now());
+        if (employeeRepository.updateEmployee(employee) != 1) {
             throw new EmployeeNotFoundException("Employee with id " + employee.getId() + " was not found");
         }
+        employee.setVersion(previous.getVersion() + 1);
+        departmentStatsService.recordRemoved(previous.getDepartment(), previous.getSalary());
+        departmentStatsService.recordAdded(employee.getDepartment(), employee.getSalary());
+        employeeChanged(employee.getId());
+        return employee;
+    }
+
+    /**
+     * Overwrite only the given attributes of an existing employee in a single UPDATE statement.
+     * The employee is not read first unless its department or salary changes, in which case its previous
+     * values are read under a row lock for the department statistics. Otherwise the version check is part
+     * of the UPDATE itself and the row is only looked up again to tell why nothing was updated.
+     * Both failures leave the row untouched, so they do not roll back a surrounding transaction.
+     *
+     * @param employeeId      the id of the employee
+     * @param changes         the new values, keyed by attribute name
+     * @param expectedVersion the version the employee must still have, or null to update it whatever its version
+     * @return the new version of the employee, or null if it is not known without reading the employee
+     * @throws EmployeeNotFoundException        if the employee does not exist
+     * @throws EmployeeVersionMismatchException if the employee no longer has the expected version
+     */
+    @Override
+    @Transactional(noRollbackFor = {EmployeeNotFoundException.class, EmployeeVersionMismatchException.class})
+    public Long patchEmployee(Long employeeId, Map<String, Object> changes, Long expectedVersion) {
+        Objects.requireNonNull(employeeId, "Employee id must not be null");
+        Objects.requireNonNull(changes, "Changes must not be null");
+        LOGGER.info("Patching employee with id: " + employeeId + " with: " + changes.keySet());
+        Instant now = Instant.now();
+        if (changes.containsKey(DEPARTMENT) || changes.containsKey(SALARY)) {
+            EmployeeState previous = findStateForUpdate(employeeId);
+            checkVersion(employeeId, previous.getVersion(), expectedVersion);
+            employeeRepository.patchEmployee(employeeId, changes, null, now);
+            departmentStatsService.recordRemoved(previous.getDepartment(), previous.getSalary());
+            departmentStatsService.recordAdded(
+                    (String) changes.getOrDefault(DEPARTMENT, previous.getDepartment()),
+                    (Integer) changes.getOrDefault(SALARY, previous.getSalary()));
+            employeeChanged(employeeId);
+            return previous.getVersion() + 1;
+        }
+        if (employeeRepository.patchEmployee(employeeId, changes, expectedVersion, now) == 0) {
+            EmployeeVersion current = getEmployeeVersion(employeeId);
+            throw versionMismatch(employeeId, current.getVersion(), expectedVersion);
+        }
+        employeeChanged(employeeId);
+        return expectedVersion == null ? null : expectedVersion + 1;
+    }
+
+    private static void checkVersion(Long employeeId, Long currentVersion, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(currentVersion)) {
+            throw versionMismatch(employeeId, currentVersion, expectedVersion);
+        }
+    }
+
+    private static EmployeeVersionMismatchException versionMismatch(Long employeeId, Long currentVersion, Long expectedVersion) {
+        return new EmployeeVersionMismatchException("Employee with id " + employeeId
+                + " is at version " + currentVersion + ", not " + expectedVersion);
+    }
+
+    private EmployeeState findStateForUpdate(Long employeeId) {
+        return employeeRepository.findStateForUpdateById(employeeId)
+                .orElseThrow(() -> new EmployeeNotFoundException("Employee with id " + employeeId + " was not found"));
+    }
+
+    /**
+     * Drops the cached employee and then its cached JSON once the write commits. The JSON is encoded from
+     * the cached employee, so in the other order a reader could encode the previous employee after the JSON
+     * was dropped and store it.
+     */
+    private void employeeChanged(Long employeeId) {
+        TransactionCallbacks.afterCommit(() -> {
+            employeeCache.evict(employeeId);
+            employeeJsonCache.invalidate(employeeId);
+        });
+        collectionChanged();
+    }
 
+    private void collectionChanged() {
+        TransactionCallbacks.afterCommit(collectionVersion::incrementAndGet);
     }
 }
\ No newline at end of file
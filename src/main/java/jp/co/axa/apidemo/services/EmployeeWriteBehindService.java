@@ -0,0 +1,347 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.WriteQueueFullException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Accepts employee mutations without waiting for the database and writes them behind on a dedicated thread.
+ * Mutations to the same employee that are still queued are coalesced into one, later values winning, so a
+ * burst of changes to an employee costs a single UPDATE. Queued employees are written in batches, each batch
+ * in one transaction. The queue is bounded by the number of distinct employees waiting to be written.
+ * Every accepted mutation gets an increasing ticket, which callers can wait on to know it is durable.
+ * Mutations that cannot be written, because their employee is missing or their write fails again when
+ * retried, are dropped and their tickets are reported as failed rather than durable.
+ */
+@Service
+@ConditionalOnProperty(name = "employees.write-behind.enabled", havingValue = "true")
+public class EmployeeWriteBehindService {
+
+    private static final Logger LOGGER = LogManager.getLogger(EmployeeWriteBehindService.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Number of tickets of dropped writes remembered as failed. Older ones are forgotten first.
+     */
+    private static final int MAX_FAILED_TICKETS = 10_000;
+
+    private final EmployeeService employeeService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    /**
+     * Coalesced changes waiting to be written, by employee id.
+     */
+    private final ConcurrentHashMap<Long, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Ids of the employees in {@link #pending}, in the order they were first queued.
+     */
+    private final ConcurrentLinkedQueue<Long> order = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong tickets = new AtomicLong();
+
+    /**
+     * First tickets of the writes that are queued or being written. A ticket is settled once no write
+     * with a ticket lower or equal to it is outstanding.
+     */
+    private final ConcurrentSkipListSet<Long> outstanding = new ConcurrentSkipListSet<>();
+
+    /**
+     * Tickets of the mutations coalesced into dropped writes. Only the writer thread adds and removes them.
+     */
+    private final ConcurrentSkipListSet<Long> failed = new ConcurrentSkipListSet<>();
+
+    /**
+     * Number of tickets in {@link #failed}, kept by the writer thread since the set does not count in constant time.
+     */
+    private int failedTickets;
+
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    private final ReentrantLock writtenLock = new ReentrantLock();
+
+    private final Condition written = writtenLock.newCondition();
+
+    private volatile boolean running;
+
+    private Thread writer;
+
+    public EmployeeWriteBehindService(EmployeeService employeeService,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${employees.write-behind.capacity:10000}") int capacity,
+                                      @Value("${employees.write-behind.batch-size:500}") int batchSize) {
+        this.employeeService = employeeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the writer thread.
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "employee-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stops the writer thread once everything queued so far has been written.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    /**
+     * Queues changes to an employee, merging them into the changes already queued for that employee.
+     *
+     * @param employeeId the id of the employee
+     * @param changes    the new values, keyed by attribute name, already validated
+     * @return the ticket of the mutation
+     * @throws WriteQueueFullException if the employee has no queued changes and the queue is full
+     */
+    public long submit(Long employeeId, Map<String, Object> changes) {
+        Objects.requireNonNull(employeeId, "Employee id must not be null");
+        Objects.requireNonNull(changes, "Changes must not be null");
+        long[] ticket = new long[1];
+        pending.compute(employeeId, (id, write) -> {
+            if (write == null) {
+                if (size.incrementAndGet() > capacity) {
+                    size.decrementAndGet();
+                    throw new WriteQueueFullException("Write-behind queue is full");
+                }
+                ticket[0] = tickets.incrementAndGet();
+                outstanding.add(ticket[0]);
+                order.add(id);
+                return new PendingWrite(ticket[0], changes);
+            }
+            ticket[0] = tickets.incrementAndGet();
+            write.tickets.add(ticket[0]);
+            write.changes.putAll(changes);
+            return write;
+        });
+        LockSupport.unpark(writer);
+        return ticket[0];
+    }
+
+    /**
+     * @return the ticket of the last mutation accepted so far
+     */
+    public long lastTicket() {
+        return tickets.get();
+    }
+
+    /**
+     * Checks whether a mutation, and every mutation accepted before it, has been written or dropped.
+     *
+     * @param ticket the ticket of the mutation
+     * @return true if the mutation is settled
+     */
+    public boolean isSettled(long ticket) {
+        return outstanding.headSet(ticket, true).isEmpty();
+    }
+
+    /**
+     * Checks whether a mutation has been dropped instead of written.
+     *
+     * @param ticket the ticket of the mutation
+     * @return true if the mutation has failed
+     */
+    public boolean isFailed(long ticket) {
+        return failed.contains(ticket);
+    }
+
+    /**
+     * Checks whether a mutation has been written, and every mutation accepted before it written or dropped.
+     *
+     * @param ticket the ticket of the mutation
+     * @return true if the mutation is durable
+     */
+    public boolean isDurable(long ticket) {
+        return isSettled(ticket) && !isFailed(ticket);
+    }
+
+    /**
+     * Waits until a mutation is settled.
+     *
+     * @param ticket  the ticket of the mutation
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the mutation is settled, false if the timeout elapsed first
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitSettled(long ticket, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        writtenLock.lock();
+        try {
+            while (!isSettled(ticket)) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = written.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of queued writes that could not be applied and were dropped
+     */
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            Map<Long, PendingWrite> batch = nextBatch();
+            if (!batch.isEmpty()) {
+                write(batch);
+            } else if (running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Map<Long, PendingWrite> nextBatch() {
+        Map<Long, PendingWrite> batch = new LinkedHashMap<>();
+        Long employeeId;
+        while (batch.size() < batchSize && (employeeId = order.poll()) != null) {
+            PendingWrite write = pending.remove(employeeId);
+            if (write != null) {
+                size.decrementAndGet();
+                batch.put(employeeId, write);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Writes a batch in one transaction. Should the transaction fail, each write is retried in its own
+     * transaction so a single bad row does not drop the rest of the batch.
+     * Dropped writes are recorded as failed before any write of the batch is settled.
+     */
+    private void write(Map<Long, PendingWrite> batch) {
+        List<PendingWrite> dropped = new ArrayList<>();
+        try {
+            transactionTemplate.execute(status -> {
+                dropped.clear();
+                batch.forEach((employeeId, write) -> {
+                    if (!apply(employeeId, write)) {
+                        dropped.add(write);
+                    }
+                });
+                return null;
+            });
+        } catch (RuntimeException e) {
+            LOGGER.error("Write-behind batch of " + batch.size() + " employees failed, retrying one by one", e);
+            dropped.clear();
+            batch.forEach((employeeId, write) -> {
+                try {
+                    if (!transactionTemplate.execute(status -> apply(employeeId, write))) {
+                        dropped.add(write);
+                    }
+                } catch (RuntimeException retryFailure) {
+                    dropped.add(write);
+                    LOGGER.error("Dropping write-behind changes of employee with id: " + employeeId, retryFailure);
+                }
+            });
+        }
+        for (PendingWrite write : dropped) {
+            failedWrites.incrementAndGet();
+            failed.addAll(write.tickets);
+            failedTickets += write.tickets.size();
+        }
+        while (failedTickets > MAX_FAILED_TICKETS) {
+            failed.pollFirst();
+            failedTickets--;
+        }
+        for (PendingWrite write : batch.values()) {
+            outstanding.remove(write.firstTicket);
+        }
+        writtenLock.lock();
+        try {
+            written.signalAll();
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the employee is missing and the changes were dropped
+     */
+    private boolean apply(Long employeeId, PendingWrite write) {
+        try {
+            employeeService.patchEmployee(employeeId, write.changes, null);
+            return true;
+        } catch (EmployeeNotFoundException e) {
+            LOGGER.warn("Dropping write-behind changes of missing employee with id: " + employeeId);
+            return false;
+        }
+    }
+
+    /**
+     * Changes queued for one employee. Only mutated inside {@link ConcurrentHashMap#compute} until the
+     * writer removes it from the map, after which only the writer reads it.
+     */
+    private static final class PendingWrite {
+
+        private final long firstTicket;
+
+        /**
+         * Tickets of every mutation coalesced into this write, which are not contiguous when other employees
+         * were queued in between.
+         */
+        private final List<Long> tickets = new ArrayList<>();
+
+        private final Map<String, Object> changes;
+
+        PendingWrite(long firstTicket, Map<String, Object> changes) {
+            this.firstTicket = firstTicket;
+            this.tickets.add(firstTicket);
+            this.changes = new LinkedHashMap<>(changes);
+        }
+    }
+}
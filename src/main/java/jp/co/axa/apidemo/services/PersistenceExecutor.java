@@ -0,0 +1,138 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.exceptions.PersistenceQueueFullException;
+import jp.co.axa.apidemo.util.VirtualThreads;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the database work of asynchronous employee requests on a bounded pool.
+ * The pool has as many threads as the connection pool has connections, so database concurrency matches
+ * connection capacity and no thread ever waits for a connection. Work beyond the bounded queue is
+ * rejected straight away rather than queued, so a slow database sheds load instead of piling it up.
+ * With spring.threads.virtual.enabled, each piece of work runs on its own virtual thread instead, and
+ * semaphores apply the same bounds: work waiting for a connection parks without holding a platform thread.
+ * Only available when employees.async.enabled is set.
+ */
+@Service
+@ConditionalOnProperty(name = "employees.async.enabled", havingValue = "true")
+public class PersistenceExecutor {
+
+    private final ExecutorService executor;
+
+    /**
+     * Bounds the work running or waiting to run, in virtual thread mode.
+     */
+    private final Semaphore admitted;
+
+    /**
+     * Bounds the work running, in virtual thread mode.
+     */
+    private final Semaphore running;
+
+    public PersistenceExecutor(@Value("${employees.async.threads:${spring.datasource.hikari.maximum-pool-size:10}}") int threads,
+                               @Value("${employees.async.queue-capacity:100}") int queueCapacity,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            this.executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            this.admitted = new Semaphore(threads + queueCapacity);
+            this.running = new Semaphore(threads);
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("persistence-");
+            threadFactory.setDaemon(true);
+            this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+            this.admitted = null;
+            this.running = null;
+        }
+    }
+
+    /**
+     * Queues database work.
+     * Cancelled work still holds its place in the queue until a thread takes it, so the queue is purged of it
+     * once before the work is rejected.
+     *
+     * @param task the work to run
+     * @return the future of the work, which can be cancelled to drop it if it has not started yet
+     * @throws PersistenceQueueFullException if too much work is already waiting
+     */
+    public Future<?> submit(Runnable task) {
+        if (admitted != null) {
+            return submitVirtual(task);
+        }
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            ((ThreadPoolExecutor) executor).purge();
+        }
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new PersistenceQueueFullException("Too many database requests in progress");
+        }
+    }
+
+    private Future<?> submitVirtual(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            throw new PersistenceQueueFullException("Too many database requests in progress");
+        }
+        AdmittedTask future = new AdmittedTask(task);
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            throw new PersistenceQueueFullException("Database requests are no longer accepted");
+        }
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Work admitted in virtual thread mode. It holds an admission permit until it completes or is cancelled,
+     * and a running permit while it runs. Work cancelled while waiting for a running permit is dropped.
+     */
+    private final class AdmittedTask extends FutureTask<Void> {
+
+        AdmittedTask(Runnable task) {
+            super(task, null);
+        }
+
+        @Override
+        public void run() {
+            try {
+                running.acquire();
+            } catch (InterruptedException e) {
+                cancel(false);
+                return;
+            }
+            try {
+                if (!isCancelled()) {
+                    super.run();
+                }
+            } finally {
+                running.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            admitted.release();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package jp.co.axa.apidemo.services;
+
+import jp.co.axa.apidemo.util.BloomFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the ids of revoked tokens until the tokens expire.
+ * The ids are held in an exact set fronted by a Bloom filter, so checking a token that was not revoked,
+ * by far the common case, costs a few hash probes and no lookup in the set.
+ * Each revocation is appended to a file, replayed on startup, so revocations survive restarts. Revocations
+ * of tokens that have expired since are dropped when the file is replayed and whenever the set outgrows
+ * the size the filter was built for.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger LOGGER = LogManager.getLogger(TokenRevocationService.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path file;
+
+    private final int expectedRevocations;
+
+    /**
+     * Expiration time in seconds since the epoch of each revoked token, by token id.
+     */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes revocations and compactions. A lock rather than a monitor, since file writes happen under it
+     * and a virtual thread blocking inside a monitor would pin its carrier thread.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile BloomFilter filter;
+
+    /**
+     * The number of revocations the current filter was sized for. Guarded by the write lock.
+     */
+    private int capacity;
+
+    /**
+     * @param file                the file revocations are appended to, or empty to keep them in memory only
+     * @param expectedRevocations the number of unexpired revocations the filter is sized for
+     */
+    public TokenRevocationService(@Value("${security.jwt.revocation-file:}") String file,
+                                  @Value("${security.jwt.expected-revocations:100000}") int expectedRevocations) {
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.expectedRevocations = expectedRevocations;
+        this.capacity = expectedRevocations;
+        this.filter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Replays the revocations of the file that have not expired yet and rewrites the file with only those.
+     */
+    @PostConstruct
+    public void load() throws IOException {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        long now = nowSeconds();
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            if (fields.length != 2) {
+                LOGGER.warn("Skipping malformed token revocation: " + line);
+                continue;
+            }
+            long expiration;
+            try {
+                expiration = Long.parseLong(fields[1]);
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Skipping malformed token revocation: " + line);
+                continue;
+            }
+            if (expiration > now) {
+                revoked.put(fields[0], expiration);
+            }
+        }
+        writeLock.lock();
+        try {
+            compact();
+        } finally {
+            writeLock.unlock();
+        }
+        LOGGER.info("Loaded " + revoked.size() + " token revocations, dropped " + (lines.size() - revoked.size()));
+    }
+
+    /**
+     * Checks whether a token has been revoked.
+     *
+     * @param tokenId the id of the token
+     * @return true if the token has been revoked
+     */
+    public boolean isRevoked(String tokenId) {
+        return filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Revokes a token until it expires. Revoking an expired token does nothing.
+     * Of concurrent revocations of the same token, exactly one returns true.
+     *
+     * @param tokenId    the id of the token
+     * @param expiration the expiration time of the token in seconds since the epoch
+     * @return false if the token had already been revoked, true otherwise
+     * @throws IllegalArgumentException if the token id contains whitespace
+     * @throws UncheckedIOException if the revocation cannot be written to the file
+     */
+    public boolean revoke(String tokenId, long expiration) {
+        if (tokenId.isEmpty() || tokenId.chars().anyMatch(Character::isWhitespace)) {
+            throw new IllegalArgumentException("Invalid token id");
+        }
+        if (expiration <= nowSeconds()) {
+            return true;
+        }
+        writeLock.lock();
+        try {
+            if (revoked.containsKey(tokenId)) {
+                return false;
+            }
+            if (file != null) {
+                try {
+                    Files.write(file, (tokenId + " " + expiration + "\n").getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not record the revocation of token " + tokenId, e);
+                }
+            }
+            revoked.put(tokenId, expiration);
+            filter.put(tokenId);
+            if (revoked.size() > capacity) {
+                compact();
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of revoked tokens that have not been dropped yet
+     */
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    /**
+     * Drops expired revocations, rebuilds the filter from the remaining ones and rewrites the file with them.
+     * The new filter is filled before it replaces the old one, so no revoked token is ever missed, and sized
+     * with room to spare so that a set of mostly unexpired revocations is not compacted on every revocation.
+     */
+    private void compact() {
+        long now = nowSeconds();
+        revoked.values().removeIf(expiration -> expiration <= now);
+        capacity = Math.max(expectedRevocations, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        if (file == null) {
+            return;
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> revocation : revoked.entrySet()) {
+                    writer.write(revocation.getKey() + " " + revocation.getValue() + "\n");
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("Could not compact the token revocation file, keeping it as is", e);
+        }
+    }
+
+    private static long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,113 @@
+package jp.co.axa.apidemo.services;
+
+import io.jsonwebtoken.JwtException;
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.dto.UserDetailsSnapshot;
+import jp.co.axa.apidemo.exceptions.InvalidTokenException;
+import jp.co.axa.apidemo.util.JwtClaims;
+import jp.co.axa.apidemo.util.JwtUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Issues, refreshes and revokes the tokens of authenticated users.
+ * Access tokens are short-lived; a refresh token exchanges for a new pair of tokens exactly once, after
+ * which its id is revoked. Presenting a refresh token that was already exchanged means it has leaked,
+ * so every token issued to its subject is revoked.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger LOGGER = LogManager.getLogger(TokenService.class);
+
+    private final JwtUtil jwtUtil;
+
+    private final TokenRevocationService tokenRevocationService;
+
+    private final TokenVersionService tokenVersionService;
+
+    private final CustomUserDetailsService userDetailsService;
+
+    public TokenService(JwtUtil jwtUtil, TokenRevocationService tokenRevocationService,
+                        TokenVersionService tokenVersionService, CustomUserDetailsService userDetailsService) {
+        this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.tokenVersionService = tokenVersionService;
+        this.userDetailsService = userDetailsService;
+    }
+
+    /**
+     * Issues an access token and a refresh token to an authenticated user.
+     *
+     * @param userDetails the authenticated user
+     * @return the tokens
+     */
+    public AuthenticationResponse issueTokens(UserDetails userDetails) {
+        return new AuthenticationResponse(jwtUtil.generateToken(userDetails), jwtUtil.generateRefreshToken(userDetails),
+                jwtUtil.getAccessTokenTtlSeconds());
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair of tokens and revokes it.
+     *
+     * @param refreshToken the refresh token
+     * @return the new tokens
+     * @throws InvalidTokenException if the token is not a valid refresh token, was already exchanged, or its
+     * user is disabled or has had their tokens revoked since
+     */
+    public AuthenticationResponse refresh(String refreshToken) {
+        JwtClaims claims = verify(refreshToken);
+        if (!JwtUtil.REFRESH_TOKEN_TYPE.equals(claims.getType())) {
+            throw new InvalidTokenException("Not a refresh token");
+        }
+        if (!tokenRevocationService.revoke(claims.getId(), claims.getExpirationSeconds())) {
+            LOGGER.warn("Refresh token of " + claims.getSubject() + " reused, revoking all of their tokens");
+            tokenVersionService.revokeTokens(claims.getSubject());
+            throw new InvalidTokenException("Refresh token already used");
+        }
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(claims.getSubject());
+        } catch (UsernameNotFoundException e) {
+            throw new InvalidTokenException("User not found");
+        }
+        if (!userDetails.isEnabled() || (userDetails instanceof UserDetailsSnapshot && claims.getTokenVersion() != null
+                && ((UserDetailsSnapshot) userDetails).getTokenVersion() != claims.getTokenVersion())) {
+            throw new InvalidTokenException("Refresh token revoked");
+        }
+        return issueTokens(userDetails);
+    }
+
+    /**
+     * Revokes an access or refresh token until it expires.
+     *
+     * @param token the token
+     * @throws InvalidTokenException if the token is not valid
+     */
+    public void revoke(String token) {
+        JwtClaims claims = verify(token);
+        tokenRevocationService.revoke(claims.getId(), claims.getExpirationSeconds());
+    }
+
+    /**
+     * Verifies a token and checks that it carries the id and expiration needed to revoke it.
+     */
+    private JwtClaims verify(String token) {
+        if (token == null) {
+            throw new InvalidTokenException("Missing token");
+        }
+        JwtClaims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid token");
+        }
+        if (claims.getId() == null || claims.getSubject() == null || claims.getExpirationSeconds() == null) {
+            throw new InvalidTokenException("Token cannot be revoked");
+        }
+        return claims;
+    }
+}
@@ -0,0 +1,92 @@
+package jp.co.axa.apidemo.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jp.co.axa.apidemo.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether a token carrying its own authorities is still accepted for its user.
+ * A token is current while its user is enabled and its version matches the user's token version.
+ * Both are cached for a short time, so disabling a user or revoking their tokens takes effect
+ * within that time without querying the database on every request.
+ */
+@Service
+public class TokenVersionService {
+
+    /**
+     * Cached version of users that are disabled or do not exist, which no token can match.
+     */
+    private static final int REVOKED = -1;
+
+    private static final int MAX_CACHED_USERS = 10_000;
+
+    private final UserRepository userRepository;
+
+    private final CustomUserDetailsService userDetailsService;
+
+    private final LoadingCache<String, Integer> tokenVersions;
+
+    public TokenVersionService(UserRepository userRepository, CustomUserDetailsService userDetailsService,
+                               @Value("${security.jwt.token-status-ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.userDetailsService = userDetailsService;
+        this.tokenVersions = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_USERS)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .build(this::loadTokenVersion);
+    }
+
+    /**
+     * Checks whether a token with the given version is still accepted for the user.
+     *
+     * @param username     the subject of the token
+     * @param tokenVersion the version carried by the token
+     * @return true if the user is enabled and the version is current, false otherwise
+     */
+    public boolean isTokenCurrent(String username, int tokenVersion) {
+        Integer currentVersion = tokenVersions.get(username);
+        return currentVersion != null && currentVersion != REVOKED && currentVersion == tokenVersion;
+    }
+
+    /**
+     * Revokes every token issued to the user so far.
+     * The cached status and user snapshot are dropped once the transaction commits, so they cannot be
+     * reloaded stale.
+     *
+     * @param username the username of the user
+     */
+    @Transactional
+    public void revokeTokens(String username) {
+        userRepository.incrementTokenVersion(username);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                invalidate(username);
+                userDetailsService.invalidate(username);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached status of a user so the next check reads it from the database.
+     *
+     * @param username the username of the user
+     */
+    public void invalidate(String username) {
+        tokenVersions.invalidate(username);
+    }
+
+    private Integer loadTokenVersion(String username) {
+        return userRepository.findTokenStatusByUsername(username)
+                .filter(status -> status.isEnabled())
+                .map(status -> status.getTokenVersion())
+                .orElse(REVOKED);
+    }
+}
@@ -0,0 +1,91 @@
+package jp.co.axa.apidemo.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size Bloom filter of strings, safe for concurrent use without locking.
+ * A value that was added is always reported as possibly present; a value that was not is reported as absent
+ * except for a small, configurable fraction of false positives. Values cannot be removed.
+ */
+public class BloomFilter {
+
+    private static final double LN_2 = Math.log(2);
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * Sizes the filter for the given number of values and false positive rate.
+     *
+     * @param expectedValues    the number of values the filter is expected to hold
+     * @param falsePositiveRate the rate of false positives once it holds that many values
+     */
+    public BloomFilter(int expectedValues, double falsePositiveRate) {
+        if (expectedValues < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected values must be positive and the rate between 0 and 1");
+        }
+        long bits = (long) Math.ceil(-expectedValues * Math.log(falsePositiveRate) / (LN_2 * LN_2));
+        int wordCount = (int) Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * Long.SIZE;
+        this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedValues * LN_2));
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        long step = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash + i * step) & Long.MAX_VALUE) % bitCount;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+            } while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    /**
+     * @param value the value to look for
+     * @return false if the value was never added, true if it probably was
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long step = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = ((hash + i * step) & Long.MAX_VALUE) % bitCount;
+            if ((words.get((int) (bit >>> 6)) & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the characters of the value, finished with a mixing step so that every
+     * bit of the result depends on every character.
+     */
+    private static long hash(String value) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The finalizer of MurmurHash3.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB93FE1A85EC3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
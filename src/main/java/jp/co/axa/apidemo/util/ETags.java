@@ -0,0 +1,84 @@
+package jp.co.axa.apidemo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds entity tags from versions and evaluates the If-None-Match and If-Match request headers against them.
+ */
+public final class ETags {
+
+    private static final String WILDCARD = "*";
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private ETags() {
+    }
+
+    /**
+     * Builds the strong entity tag of a version.
+     *
+     * @param version the version
+     * @return the quoted entity tag
+     */
+    public static String of(Object version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Checks an If-None-Match header against the current entity tag, using weak comparison.
+     *
+     * @param ifNoneMatch the value of the If-None-Match header, may be null
+     * @param etag        the current entity tag
+     * @return true if the client already has the current representation
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals(WILDCARD) || stripWeak(candidate).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an If-Match header matches any current representation.
+     *
+     * @param ifMatch the value of the If-Match header
+     * @return true if the header is the wildcard
+     */
+    public static boolean isWildcard(String ifMatch) {
+        return WILDCARD.equals(ifMatch.trim());
+    }
+
+    /**
+     * Reads the versions listed in an If-Match header.
+     * Weak tags and tags that are not versions are skipped, as they can never match under strong comparison.
+     *
+     * @param ifMatch the value of the If-Match header
+     * @return the versions the client accepts to overwrite
+     */
+    public static List<Long> strongVersions(String ifMatch) {
+        List<Long> versions = new ArrayList<>();
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.length() < 2 || !candidate.startsWith("\"") || !candidate.endsWith("\"")) {
+                continue;
+            }
+            try {
+                versions.add(Long.parseLong(candidate.substring(1, candidate.length() - 1)));
+            } catch (NumberFormatException e) {
+                // not one of our tags
+            }
+        }
+        return versions;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith(WEAK_PREFIX) ? etag.substring(WEAK_PREFIX.length()) : etag;
+    }
+}
@@ -0,0 +1,55 @@
+package jp.co.axa.apidemo.util;
+
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors used for keyset pagination of employees.
+ * A cursor wraps the id of the last employee of a page so clients never depend on its format.
+ */
+public final class EmployeeCursor {
+
+    private static final String PREFIX = "id:";
+
+    private EmployeeCursor() {
+    }
+
+    /**
+     * Encodes the id of the last employee of a page into an opaque cursor.
+     *
+     * @param lastId the id of the last employee returned
+     * @return the opaque cursor
+     */
+    public static String encode(Long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decodes an opaque cursor back into the id to seek after.
+     *
+     * @param cursor the cursor received from the client, may be null
+     * @return the id to seek after, or null if no cursor was given
+     * @throws InvalidRequestException if the cursor is malformed
+     */
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            long id = Long.parseLong(raw.substring(PREFIX.length()));
+            if (id < 0) {
+                throw new InvalidRequestException("Invalid cursor: " + cursor);
+            }
+            return id;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor: " + cursor);
+        }
+    }
+}
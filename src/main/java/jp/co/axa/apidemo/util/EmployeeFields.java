@@ -0,0 +1,64 @@
+package jp.co.axa.apidemo.util;
+
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses the sparse fieldsets clients request with the {@code fields} parameter, e.g. {@code fields=name,salary}.
+ * The id and the version of an employee are always selected, so every projection can be addressed, paged
+ * and used for a conditional update.
+ */
+public final class EmployeeFields {
+
+    public static final String ID = "id";
+
+    public static final String VERSION = "version";
+
+    /**
+     * The fields clients may request, in the order they are selected and written.
+     */
+    private static final List<String> SELECTABLE = Collections.unmodifiableList(
+            Arrays.asList(ID, "name", "salary", "department", VERSION));
+
+    private EmployeeFields() {
+    }
+
+    /**
+     * Parses a comma-separated list of fields.
+     *
+     * @param fields the value of the fields parameter
+     * @return the requested fields plus the id and the version, in their canonical order
+     * @throws InvalidRequestException if no field is given or a field is unknown
+     */
+    public static List<String> parse(String fields) {
+        Set<String> requested = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (!SELECTABLE.contains(field)) {
+                throw new InvalidRequestException("Unknown field: " + field + ", expected any of " + SELECTABLE);
+            }
+            requested.add(field);
+        }
+        if (requested.isEmpty()) {
+            throw new InvalidRequestException("Fields must not be empty");
+        }
+        requested.add(ID);
+        requested.add(VERSION);
+        List<String> selected = new ArrayList<>(requested.size());
+        for (String field : SELECTABLE) {
+            if (requested.contains(field)) {
+                selected.add(field);
+            }
+        }
+        return selected;
+    }
+}
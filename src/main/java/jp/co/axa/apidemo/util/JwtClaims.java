@@ -0,0 +1,98 @@
+package jp.co.axa.apidemo.util;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The claims carried by the tokens issued by {@link JwtUtil}. Instances are immutable.
+ */
+public final class JwtClaims {
+
+    private final String id;
+
+    private final String subject;
+
+    private final String type;
+
+    private final List<String> authorities;
+
+    private final Integer tokenVersion;
+
+    private final Long issuedAt;
+
+    private final Long expiration;
+
+    /**
+     * @param id           the unique id of the token, or null
+     * @param subject      the username the token was issued to
+     * @param type         the type of the token, null for an access token
+     * @param authorities  the names of the authorities granted to the subject, or null
+     * @param tokenVersion the token version of the subject when the token was issued, or null
+     * @param issuedAt     the issue time in seconds since the epoch, or null
+     * @param expiration   the expiration time in seconds since the epoch, or null
+     */
+    public JwtClaims(String id, String subject, String type, List<String> authorities, Integer tokenVersion,
+                     Long issuedAt, Long expiration) {
+        this.id = id;
+        this.subject = subject;
+        this.type = type;
+        this.authorities = authorities;
+        this.tokenVersion = tokenVersion;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    /**
+     * @return the unique id of the token, or null if the token was issued without one
+     */
+    public String getId() {
+        return id;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * @return the type of the token, such as {@link JwtUtil#REFRESH_TOKEN_TYPE}, or null for an access token
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the names of the authorities granted to the subject, or null if the token does not carry them
+     */
+    public List<String> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * @return the token version of the subject when the token was issued, or null if the token does not carry it
+     */
+    public Integer getTokenVersion() {
+        return tokenVersion;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt == null ? null : new Date(issuedAt * 1000);
+    }
+
+    public Date getExpiration() {
+        return expiration == null ? null : new Date(expiration * 1000);
+    }
+
+    /**
+     * @return the issue time in seconds since the epoch, or null if the token does not carry it
+     */
+    public Long getIssuedAtSeconds() {
+        return issuedAt;
+    }
+
+    /**
+     * @return the expiration time in seconds since the epoch, or null if the token does not expire
+     */
+    public Long getExpirationSeconds() {
+        return expiration;
+    }
+}
@@ -0,0 +1,681 @@
+package jp.co.axa.apidemo.util;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Issues and verifies HS256 JSON Web Tokens carrying the fixed claim set of {@link JwtClaims}.
+ * Tokens are byte for byte the ones jjwt builds for the same claims, and tokens built by jjwt are accepted.
+ * Verification reuses a {@link Mac} and scratch buffers per thread, decodes Base64URL straight into them
+ * and scans the claims without building a JSON tree, so the only objects it allocates are the claims.
+ * The signature is checked before the claims are read and compared in constant time.
+ */
+public final class JwtCodec {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final int SIGNATURE_LENGTH = 32;
+
+    /**
+     * Tokens come from an HTTP header, which the server limits to 8KB anyway.
+     */
+    private static final int MAX_TOKEN_LENGTH = 8192;
+
+    private static final int MAX_NESTING = 16;
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private static final String HEADER = BASE64_URL.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.US_ASCII));
+
+    private static final byte[] BASE64_URL_VALUES = new byte[128];
+
+    private static final int CLAIM_OTHER = 0;
+    private static final int CLAIM_SUB = 1;
+    private static final int CLAIM_AUTHORITIES = 2;
+    private static final int CLAIM_VER = 3;
+    private static final int CLAIM_IAT = 4;
+    private static final int CLAIM_EXP = 5;
+    private static final int CLAIM_NBF = 6;
+    private static final int CLAIM_ALG = 7;
+    private static final int CLAIM_JTI = 8;
+    private static final int CLAIM_TYP = 9;
+
+    private static final byte[][] CLAIM_NAMES = {
+            null,
+            ascii("sub"),
+            ascii(JwtUtil.AUTHORITIES_CLAIM),
+            ascii(JwtUtil.TOKEN_VERSION_CLAIM),
+            ascii("iat"),
+            ascii("exp"),
+            ascii("nbf"),
+            ascii("alg"),
+            ascii("jti"),
+            ascii(JwtUtil.TOKEN_TYPE_CLAIM)
+    };
+
+    private static final byte[] NULL_LITERAL = ascii("null");
+
+    static {
+        Arrays.fill(BASE64_URL_VALUES, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_URL_VALUES[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec key;
+
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * @param key the HMAC key
+     * @throws IllegalArgumentException if the key cannot be used with HmacSHA256
+     */
+    public JwtCodec(byte[] key) {
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        newMac(this.key);
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(newMac(this.key)));
+    }
+
+    /**
+     * Issues a token. Claims that are null are left out, as jjwt does.
+     *
+     * @param claims the claims of the token
+     * @return the signed token
+     */
+    public String encode(JwtClaims claims) {
+        StringBuilder payload = new StringBuilder(160).append('{');
+        appendString(payload, "jti", claims.getId());
+        appendString(payload, "sub", claims.getSubject());
+        appendString(payload, JwtUtil.TOKEN_TYPE_CLAIM, claims.getType());
+        if (claims.getAuthorities() != null) {
+            payload.append('"').append(JwtUtil.AUTHORITIES_CLAIM).append("\":[");
+            for (int i = 0; i < claims.getAuthorities().size(); i++) {
+                appendString(i == 0 ? payload : payload.append(','), claims.getAuthorities().get(i));
+            }
+            payload.append("],");
+        }
+        appendNumber(payload, JwtUtil.TOKEN_VERSION_CLAIM, claims.getTokenVersion());
+        appendNumber(payload, "iat", claims.getIssuedAtSeconds());
+        appendNumber(payload, "exp", claims.getExpirationSeconds());
+        if (payload.length() > 1) {
+            payload.setLength(payload.length() - 1);
+        }
+        payload.append('}');
+
+        String signingInput = HEADER + '.' + BASE64_URL.encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8));
+        Mac mac = scratch.get().mac;
+        byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+        return signingInput + '.' + BASE64_URL.encodeToString(signature);
+    }
+
+    /**
+     * Verifies a token and reads its claims.
+     *
+     * @param token the token
+     * @return the claims of the token
+     * @throws MalformedJwtException    if the token is not a well formed JWS
+     * @throws UnsupportedJwtException  if the token is not signed with HS256
+     * @throws SignatureException       if the signature does not match
+     * @throws ExpiredJwtException      if the token has expired
+     * @throws PrematureJwtException    if the token is not valid yet
+     */
+    public JwtClaims decode(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) {
+            throw new MalformedJwtException("JWT is missing or too long");
+        }
+        int headerEnd = token.indexOf('.');
+        int payloadEnd = headerEnd < 0 ? -1 : token.indexOf('.', headerEnd + 1);
+        if (payloadEnd < 0 || token.indexOf('.', payloadEnd + 1) >= 0) {
+            throw new MalformedJwtException("JWT must consist of exactly 3 parts");
+        }
+        Scratch buffers = scratch.get();
+        if (headerEnd != HEADER.length() || !token.regionMatches(0, HEADER, 0, headerEnd)) {
+            buffers.scanner.reset(buffers.decode(token, 0, headerEnd));
+            checkHeader(buffers.scanner);
+        }
+        buffers.verify(token, payloadEnd);
+
+        buffers.scanner.reset(buffers.decode(token, headerEnd + 1, payloadEnd));
+        return readClaims(buffers.scanner);
+    }
+
+    private static void checkHeader(Scanner scanner) {
+        boolean hs256 = false;
+        scanner.expect('{');
+        if (!scanner.consume('}')) {
+            do {
+                if (scanner.readName() == CLAIM_ALG) {
+                    hs256 = "HS256".equals(scanner.readString());
+                } else {
+                    scanner.skipValue(0);
+                }
+            } while (scanner.consume(','));
+            scanner.expect('}');
+        }
+        scanner.expectEnd();
+        if (!hs256) {
+            throw new UnsupportedJwtException("JWT must be signed with HS256");
+        }
+    }
+
+    private static JwtClaims readClaims(Scanner scanner) {
+        String id = null;
+        String subject = null;
+        String type = null;
+        List<String> authorities = null;
+        Long tokenVersion = null;
+        Long issuedAt = null;
+        Long expiration = null;
+        Long notBefore = null;
+        scanner.expect('{');
+        if (!scanner.consume('}')) {
+            do {
+                switch (scanner.readName()) {
+                    case CLAIM_JTI:
+                        id = scanner.readString();
+                        break;
+                    case CLAIM_SUB:
+                        subject = scanner.readString();
+                        break;
+                    case CLAIM_TYP:
+                        type = scanner.readString();
+                        break;
+                    case CLAIM_AUTHORITIES:
+                        authorities = scanner.readStringArray();
+                        break;
+                    case CLAIM_VER:
+                        tokenVersion = scanner.readLong();
+                        break;
+                    case CLAIM_IAT:
+                        issuedAt = scanner.readLong();
+                        break;
+                    case CLAIM_EXP:
+                        expiration = scanner.readLong();
+                        break;
+                    case CLAIM_NBF:
+                        notBefore = scanner.readLong();
+                        break;
+                    default:
+                        scanner.skipValue(0);
+                }
+            } while (scanner.consume(','));
+            scanner.expect('}');
+        }
+        scanner.expectEnd();
+        if (tokenVersion != null && tokenVersion.intValue() != tokenVersion) {
+            throw new MalformedJwtException("JWT token version is out of range");
+        }
+        long now = System.currentTimeMillis();
+        if (expiration != null && now > expiration * 1000) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + Instant.ofEpochSecond(expiration));
+        }
+        if (notBefore != null && now < notBefore * 1000) {
+            throw new PrematureJwtException(null, null, "JWT must not be accepted before " + Instant.ofEpochSecond(notBefore));
+        }
+        return new JwtClaims(id, subject, type, authorities, tokenVersion == null ? null : tokenVersion.intValue(),
+                issuedAt, expiration);
+    }
+
+    private static void appendString(StringBuilder json, String name, String value) {
+        if (value != null) {
+            appendString(json.append('"').append(name).append("\":"), value).append(',');
+        }
+    }
+
+    private static void appendNumber(StringBuilder json, String name, Number value) {
+        if (value != null) {
+            json.append('"').append(name).append("\":").append(value).append(',');
+        }
+    }
+
+    /**
+     * Appends a JSON string the way Jackson writes it.
+     */
+    private static StringBuilder appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\b':
+                    json.append("\\b");
+                    break;
+                case '\f':
+                    json.append("\\f");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04X", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"');
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Invalid " + ALGORITHM + " key", e);
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Buffers reused by every token verified on a thread. They grow to the longest token seen, which
+     * {@link #MAX_TOKEN_LENGTH} bounds.
+     */
+    private static final class Scratch {
+
+        private final Mac mac;
+
+        private final byte[] expectedSignature = new byte[SIGNATURE_LENGTH];
+
+        private final byte[] actualSignature = new byte[SIGNATURE_LENGTH];
+
+        private final Scanner scanner = new Scanner();
+
+        private byte[] signingInput = new byte[512];
+
+        private byte[] decoded = new byte[512];
+
+        Scratch(Mac mac) {
+            this.mac = mac;
+        }
+
+        void verify(String token, int signingInputLength) {
+            if (signingInput.length < signingInputLength) {
+                signingInput = new byte[Math.max(signingInputLength, signingInput.length * 2)];
+            }
+            for (int i = 0; i < signingInputLength; i++) {
+                char c = token.charAt(i);
+                if (c >= 0x80) {
+                    throw new MalformedJwtException("JWT must only contain ASCII characters");
+                }
+                signingInput[i] = (byte) c;
+            }
+            mac.update(signingInput, 0, signingInputLength);
+            try {
+                mac.doFinal(expectedSignature, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException(e);
+            }
+
+            int signatureStart = signingInputLength + 1;
+            if (token.length() - signatureStart != (SIGNATURE_LENGTH * 4 + 2) / 3) {
+                throw new SignatureException("JWT signature does not match");
+            }
+            decode(token, signatureStart, token.length(), actualSignature);
+            int difference = 0;
+            for (int i = 0; i < SIGNATURE_LENGTH; i++) {
+                difference |= expectedSignature[i] ^ actualSignature[i];
+            }
+            if (difference != 0) {
+                throw new SignatureException("JWT signature does not match");
+            }
+        }
+
+        /**
+         * Decodes a Base64URL segment of the token into {@link #decoded}.
+         *
+         * @return the number of bytes decoded
+         */
+        int decode(String token, int start, int end) {
+            int capacity = (end - start) * 3 / 4 + 1;
+            if (decoded.length < capacity) {
+                decoded = new byte[Math.max(capacity, decoded.length * 2)];
+            }
+            int length = decode(token, start, end, decoded);
+            scanner.buffer = decoded;
+            return length;
+        }
+
+        private static int decode(String token, int start, int end, byte[] target) {
+            int bits = 0;
+            int bitCount = 0;
+            int length = 0;
+            for (int i = start; i < end; i++) {
+                char c = token.charAt(i);
+                int value = c < 0x80 ? BASE64_URL_VALUES[c] : -1;
+                if (value < 0) {
+                    throw new MalformedJwtException("JWT contains an invalid Base64URL character");
+                }
+                bits = bits << 6 | value;
+                bitCount += 6;
+                if (bitCount >= 8) {
+                    bitCount -= 8;
+                    target[length++] = (byte) (bits >> bitCount);
+                }
+            }
+            if (bitCount >= 6) {
+                throw new MalformedJwtException("JWT contains a truncated Base64URL segment");
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Reads the JSON objects of a token header or claims from a decoded buffer.
+     * Values of the known claims are read directly; any other value is skipped without being materialized.
+     */
+    private static final class Scanner {
+
+        private byte[] buffer;
+
+        private int position;
+
+        private int end;
+
+        void reset(int length) {
+            this.position = 0;
+            this.end = length;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw malformed();
+            }
+        }
+
+        boolean consume(char c) {
+            skipWhitespace();
+            if (position < end && buffer[position] == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expectEnd() {
+            skipWhitespace();
+            if (position != end) {
+                throw malformed();
+            }
+        }
+
+        /**
+         * Reads a member name and the colon after it.
+         *
+         * @return the known claim it names, or {@link #CLAIM_OTHER}
+         */
+        int readName() {
+            skipWhitespace();
+            int start = position + 1;
+            int claim = CLAIM_OTHER;
+            if (!skipString()) {
+                String name = parseString(start);
+                for (int i = 1; i < CLAIM_NAMES.length; i++) {
+                    if (name.equals(new String(CLAIM_NAMES[i], StandardCharsets.US_ASCII))) {
+                        claim = i;
+                    }
+                }
+            } else {
+                int length = position - 1 - start;
+                for (int i = 1; i < CLAIM_NAMES.length; i++) {
+                    if (regionEquals(start, length, CLAIM_NAMES[i])) {
+                        claim = i;
+                    }
+                }
+            }
+            expect(':');
+            return claim;
+        }
+
+        String readString() {
+            skipWhitespace();
+            if (readNull()) {
+                return null;
+            }
+            int start = position + 1;
+            if (skipString()) {
+                return new String(buffer, start, position - 1 - start, StandardCharsets.UTF_8);
+            }
+            return parseString(start);
+        }
+
+        List<String> readStringArray() {
+            skipWhitespace();
+            if (readNull()) {
+                return null;
+            }
+            expect('[');
+            if (consume(']')) {
+                return Collections.emptyList();
+            }
+            List<String> values = new ArrayList<>(4);
+            do {
+                String value = readString();
+                if (value == null) {
+                    throw malformed();
+                }
+                values.add(value);
+            } while (consume(','));
+            expect(']');
+            return Collections.unmodifiableList(values);
+        }
+
+        Long readLong() {
+            skipWhitespace();
+            if (readNull()) {
+                return null;
+            }
+            boolean negative = position < end && buffer[position] == '-';
+            if (negative) {
+                position++;
+            }
+            int start = position;
+            long value = 0;
+            while (position < end && buffer[position] >= '0' && buffer[position] <= '9') {
+                if (position - start == 18) {
+                    throw malformed();
+                }
+                value = value * 10 + (buffer[position++] - '0');
+            }
+            if (position == start || position < end && (buffer[position] == '.' || buffer[position] == 'e'
+                    || buffer[position] == 'E')) {
+                throw malformed();
+            }
+            return negative ? -value : value;
+        }
+
+        void skipValue(int depth) {
+            if (depth > MAX_NESTING) {
+                throw malformed();
+            }
+            skipWhitespace();
+            if (position == end) {
+                throw malformed();
+            }
+            byte first = buffer[position];
+            if (first == '"') {
+                if (!skipString()) {
+                    parseString(position + 1);
+                }
+            } else if (first == '{' || first == '[') {
+                char close = first == '{' ? '}' : ']';
+                position++;
+                if (!consume(close)) {
+                    do {
+                        if (close == '}') {
+                            readName();
+                        }
+                        skipValue(depth + 1);
+                    } while (consume(','));
+                    expect(close);
+                }
+            } else {
+                int start = position;
+                while (position < end && (Character.isLetterOrDigit(buffer[position])
+                        || buffer[position] == '-' || buffer[position] == '+' || buffer[position] == '.')) {
+                    position++;
+                }
+                if (position == start) {
+                    throw malformed();
+                }
+            }
+        }
+
+        private boolean readNull() {
+            if (regionEquals(position, NULL_LITERAL.length, NULL_LITERAL)) {
+                position += NULL_LITERAL.length;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Moves past a string starting at the current position.
+         *
+         * @return true if the string has no escape sequence, false if it has one, in which case the
+         * position is left inside the string
+         */
+        private boolean skipString() {
+            if (position == end || buffer[position] != '"') {
+                throw malformed();
+            }
+            for (int i = position + 1; i < end; i++) {
+                if (buffer[i] == '"') {
+                    position = i + 1;
+                    return true;
+                }
+                if (buffer[i] == '\\') {
+                    return false;
+                }
+            }
+            throw malformed();
+        }
+
+        /**
+         * Parses a string holding escape sequences, from its first character to past its closing quote.
+         */
+        private String parseString(int start) {
+            StringBuilder value = new StringBuilder();
+            int run = start;
+            int i = start;
+            while (true) {
+                if (i >= end) {
+                    throw malformed();
+                }
+                byte b = buffer[i];
+                if (b == '"') {
+                    value.append(new String(buffer, run, i - run, StandardCharsets.UTF_8));
+                    position = i + 1;
+                    return value.toString();
+                }
+                if (b != '\\') {
+                    i++;
+                    continue;
+                }
+                value.append(new String(buffer, run, i - run, StandardCharsets.UTF_8));
+                if (i + 1 >= end) {
+                    throw malformed();
+                }
+                switch (buffer[i + 1]) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        value.append((char) buffer[i + 1]);
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (i + 6 > end) {
+                            throw malformed();
+                        }
+                        value.append((char) hex(i + 2));
+                        i += 4;
+                        break;
+                    default:
+                        throw malformed();
+                }
+                i += 2;
+                run = i;
+            }
+        }
+
+        private int hex(int start) {
+            int value = 0;
+            for (int i = start; i < start + 4; i++) {
+                int digit = Character.digit(buffer[i], 16);
+                if (digit < 0) {
+                    throw malformed();
+                }
+                value = value << 4 | digit;
+            }
+            return value;
+        }
+
+        private boolean regionEquals(int start, int length, byte[] expected) {
+            if (length != expected.length || start + length > end) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (buffer[start + i] != expected[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipWhitespace() {
+            while (position < end && (buffer[position] == ' ' || buffer[position] == '\t'
+                    || buffer[position] == '\n' || buffer[position] == '\r')) {
+                position++;
+            }
+        }
+
+        private static MalformedJwtException malformed() {
+            return new MalformedJwtException("JWT contains malformed JSON");
+        }
+    }
+}
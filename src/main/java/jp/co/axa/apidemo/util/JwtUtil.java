@@ -1,33 +1,141 @@
 package jp.co.axa.apidemo.util;
 
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.impl.TextCodec;
+import jp.co.axa.apidemo.dto.UserDetailsSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
-
-import io.jsonwebtoken.Claims;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class JwtUtil {
 
+    /**
+     * Claim holding the names of the authorities granted to the subject.
+     */
+    public static final String AUTHORITIES_CLAIM = "authorities";
+
+    /**
+     * Claim holding the token version of the subject at the time the token was issued.
+     */
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
+    /**
+     * Claim holding the type of the token. Access tokens do not carry it.
+     */
+    public static final String TOKEN_TYPE_CLAIM = "typ";
+
+    /**
+     * Type of the tokens that can only be exchanged for new tokens, never used to access the API.
+     */
+    public static final String REFRESH_TOKEN_TYPE = "refresh";
+
+    private static final int VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
     private String SECRET_KEY = "secret";
 
+    @Value("${security.jwt.access-token-ttl-seconds:900}")
+    private long accessTokenTtlSeconds = TimeUnit.MINUTES.toSeconds(15);
+
+    @Value("${security.jwt.refresh-token-ttl-seconds:36000}")
+    private long refreshTokenTtlSeconds = TimeUnit.HOURS.toSeconds(10);
+
+    /**
+     * Signs and verifies tokens. The secret is decoded the way jjwt decodes a Base64 key, so tokens jjwt
+     * issued stay valid.
+     */
+    private final JwtCodec codec = new JwtCodec(TextCodec.BASE64.decode(SECRET_KEY));
+
     /**
-     * Generates a JWT token for the given user details.
+     * Claims of tokens whose signature has already been verified, keyed by the SHA-256 digest of the token.
+     * Each entry expires together with its token, so a cached token is never accepted past its expiration.
+     */
+    private final Cache<ByteBuffer, JwtClaims> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(VERIFIED_TOKEN_CACHE_SIZE)
+            .expireAfter(new Expiry<ByteBuffer, JwtClaims>() {
+                @Override
+                public long expireAfterCreate(ByteBuffer key, JwtClaims claims, long currentTime) {
+                    long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+                }
+
+                @Override
+                public long expireAfterUpdate(ByteBuffer key, JwtClaims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+
+                @Override
+                public long expireAfterRead(ByteBuffer key, JwtClaims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    /**
+     * Generates a short-lived JWT access token for the given user details.
+     * The token carries a unique id, so that it can be revoked, the granted authorities and, for
+     * application users, their token version, so that it can be authenticated without loading the user.
      *
      * @param userDetails The user details.
      * @return The generated JWT token.
      */
     public String generateToken(UserDetails userDetails) {
-        return Jwts.builder()
-                .setSubject(userDetails.getUsername())
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10)) // 10 hours
-                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
-                .compact();
+        List<String> authorities = userDetails.getAuthorities() == null
+                ? Collections.emptyList()
+                : userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList());
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        return codec.encode(new JwtClaims(UUID.randomUUID().toString(), userDetails.getUsername(), null, authorities,
+                tokenVersion(userDetails), issuedAt, issuedAt + accessTokenTtlSeconds));
+    }
+
+    /**
+     * Generates a long-lived JWT refresh token for the given user details.
+     * The token carries a unique id and the token version of application users but no authorities,
+     * and is rejected by the API; it can only be exchanged once for a new pair of tokens.
+     *
+     * @param userDetails The user details.
+     * @return The generated JWT refresh token.
+     */
+    public String generateRefreshToken(UserDetails userDetails) {
+        long issuedAt = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        return codec.encode(new JwtClaims(UUID.randomUUID().toString(), userDetails.getUsername(), REFRESH_TOKEN_TYPE,
+                null, tokenVersion(userDetails), issuedAt, issuedAt + refreshTokenTtlSeconds));
+    }
+
+    /**
+     * @return The lifetime of access tokens in seconds.
+     */
+    public long getAccessTokenTtlSeconds() {
+        return accessTokenTtlSeconds;
+    }
+
+    private static Integer tokenVersion(UserDetails userDetails) {
+        return userDetails instanceof UserDetailsSnapshot ? ((UserDetailsSnapshot) userDetails).getTokenVersion() : null;
     }
 
     /**
@@ -37,7 +145,7 @@ public class JwtUtil {
      * @return The extracted username.
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return extractClaim(token, JwtClaims::getSubject);
     }
 
     /**
@@ -47,7 +155,7 @@ public class JwtUtil {
      * @return The extracted expiration date.
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return extractClaim(token, JwtClaims::getExpiration);
     }
 
     /**
@@ -58,29 +166,75 @@ public class JwtUtil {
      * @param <T>            The type of the claim to extract.
      * @return The extracted claim.
      */
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
+    public <T> T extractClaim(String token, Function<JwtClaims, T> claimsResolver) {
+        final JwtClaims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
     }
 
-/**
-     * Extracts all claims from the JWT token.
+    /**
+     * Extracts the granted authorities carried by the claims of a JWT token.
+     *
+     * @param claims The claims extracted from the JWT token.
+     * @return The granted authorities, or null if the token does not carry any.
+     */
+    public Collection<GrantedAuthority> extractAuthorities(JwtClaims claims) {
+        if (claims.getAuthorities() == null) {
+            return null;
+        }
+        return claims.getAuthorities().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Extracts the token version carried by the claims of a JWT token.
+     *
+     * @param claims The claims extracted from the JWT token.
+     * @return The token version, or null if the token does not carry one.
+     */
+    public Integer extractTokenVersion(JwtClaims claims) {
+        return claims.getTokenVersion();
+    }
+
+    /**
+     * Verifies the signature of the JWT token and extracts all of its claims.
+     * The token is parsed at most once while it is cached; later calls with the same token return
+     * the claims verified the first time. The returned claims must not be modified.
      *
      * @param token The JWT token.
      * @return The extracted claims.
+     * @throws io.jsonwebtoken.JwtException if the token is malformed, expired or its signature is invalid.
+     */
+    public JwtClaims extractAllClaims(String token) {
+        ByteBuffer digest = digest(token);
+        JwtClaims claims = verifiedTokens.getIfPresent(digest);
+        if (claims == null) {
+            claims = codec.decode(token);
+            if (claims.getExpiration() != null) {
+                verifiedTokens.put(digest, claims);
+            }
+        }
+        return claims;
+    }
+
+    /**
+     * Computes the SHA-256 digest of the JWT token, used as the key of the verified token cache.
+     *
+     * @param token The JWT token.
+     * @return The digest of the token.
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+    private ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
     }
 
     /**
-     * Checks if the JWT token is expired.
+     * Checks if the claims of a JWT token are expired.
      *
-     * @param token The JWT token to check for expiration.
+     * @param claims The claims of the JWT token to check for expiration.
      * @return True if the token is expired, false otherwise.
      */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private Boolean isTokenExpired(JwtClaims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     /**
@@ -91,7 +245,20 @@ public class JwtUtil {
      * @return True if the token is valid, false otherwise.
      */
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(extractAllClaims(token), userDetails);
+    }
+
+    /**
+     * Validates already verified claims of a JWT token for the given user details.
+     * Tokens of users that are disabled, locked or expired are rejected even though they have not expired.
+     *
+     * @param claims      The claims extracted from the JWT token.
+     * @param userDetails The user details.
+     * @return True if the token is valid, false otherwise.
+     */
+    public Boolean validateToken(JwtClaims claims, UserDetails userDetails) {
+        final String username = claims.getSubject();
+        return (username.equals(userDetails.getUsername()) && !isTokenExpired(claims)
+                && userDetails.isEnabled() && userDetails.isAccountNonLocked() && userDetails.isAccountNonExpired());
     }
-}
\ No newline at end of file
+}
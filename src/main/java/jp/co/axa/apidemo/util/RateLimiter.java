@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter keyed by client, implemented as the generic cell rate algorithm.
+ * The state of a bucket is a single timestamp, the theoretical arrival time of the next request, updated
+ * with a compare-and-set, so acquiring a permit takes no lock. A bucket left idle long enough to refill
+ * completely is indistinguishable from a new one, so buckets are evicted after that idle time, and the
+ * number of buckets is also capped so that churning keys cannot grow memory without bound.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+
+    private final long burstToleranceNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Cache<String, AtomicLong> buckets;
+
+    /**
+     * @param permitsPerSecond the sustained rate allowed per key
+     * @param burst            the number of permits a key may use at once after being idle
+     * @param maxKeys          the maximum number of buckets kept
+     */
+    public RateLimiter(double permitsPerSecond, int burst, long maxKeys) {
+        this(permitsPerSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    /**
+     * @param permitsPerSecond the sustained rate allowed per key
+     * @param burst            the number of permits a key may use at once after being idle
+     * @param maxKeys          the maximum number of buckets kept
+     * @param nanoClock        the source of {@link System#nanoTime()}-like timestamps
+     */
+    public RateLimiter(double permitsPerSecond, int burst, long maxKeys, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(burstToleranceNanos, TimeUnit.NANOSECONDS)
+                .ticker(nanoClock::getAsLong)
+                .build();
+    }
+
+    /**
+     * Takes a permit for a key if one is available.
+     *
+     * @param key the client the request comes from
+     * @return 0 if the permit was granted, otherwise the number of nanoseconds until one is available
+     */
+    public long tryAcquire(String key) {
+        AtomicLong bucket = buckets.get(key, ignored -> new AtomicLong(nanoClock.getAsLong()));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long theoreticalArrival = bucket.get();
+            long next = (theoreticalArrival - now < 0 ? now : theoreticalArrival) + emissionIntervalNanos;
+            long wait = next - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (bucket.compareAndSet(theoreticalArrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * @return the approximate number of buckets currently kept
+     */
+    public long size() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,54 @@
+package jp.co.axa.apidemo.util;
+
+import jp.co.axa.apidemo.exceptions.UploadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copies request bodies to temporary files, so they can be read off the network on the thread serving the
+ * request and processed later on another one.
+ */
+public final class TempFiles {
+
+    private TempFiles() {
+    }
+
+    /**
+     * Copies a stream to a new temporary file, up to its end.
+     * The file is deleted again if the copy fails or the stream is longer than allowed.
+     *
+     * @param in       the stream to copy
+     * @param prefix   the prefix of the file name
+     * @param suffix   the suffix of the file name
+     * @param maxBytes the maximum number of bytes to copy
+     * @return the file holding the content of the stream
+     * @throws UploadTooLargeException if the stream holds more than maxBytes
+     * @throws IOException if the stream cannot be read or the file written
+     */
+    public static Path spool(InputStream in, String prefix, String suffix, long maxBytes) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        boolean copied = false;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    throw new UploadTooLargeException("Upload exceeds the maximum of " + maxBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+            copied = true;
+        } finally {
+            if (!copied) {
+                Files.deleteIfExists(file);
+            }
+        }
+        return file;
+    }
+}
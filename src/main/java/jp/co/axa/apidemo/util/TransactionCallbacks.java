@@ -0,0 +1,32 @@
+package jp.co.axa.apidemo.util;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers in-memory side effects of a write until the surrounding transaction has committed.
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * Runs the callback once the current transaction commits, or right away when no transaction is active.
+     * The callback is dropped if the transaction rolls back.
+     *
+     * @param callback the callback to run
+     */
+    public static void afterCommit(Runnable callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                callback.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,51 @@
+package jp.co.axa.apidemo.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to the virtual threads of JDK 21 and later from code compiled for Java 8.
+ * The JDK methods are looked up reflectively once; on older JDKs {@link #isSupported()} is false.
+ */
+public final class VirtualThreads {
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findNewVirtualThreadPerTaskExecutor();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JDK supports virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return the executor
+     * @throws IllegalStateException if the running JDK does not support virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or later, running "
+                    + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a virtual thread executor", e);
+        }
+    }
+
+    private static Method findNewVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package jp.co.axa.apidemo.validators;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.exceptions.InvalidRequestException;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the changes of a JSON Merge Patch (RFC 7396) of an employee and validates each of them against the
+ * constraints of its field, leaving the fields absent from the patch unchecked.
+ */
+@Component
+public class EmployeePatchValidator {
+
+    /**
+     * Attributes that a merge patch may change, with the type their values are read as.
+     */
+    private static final Map<String, Class<?>> PATCHABLE_ATTRIBUTES;
+
+    static {
+        Map<String, Class<?>> attributes = new LinkedHashMap<>();
+        attributes.put("name", String.class);
+        attributes.put("salary", Integer.class);
+        attributes.put("department", String.class);
+        PATCHABLE_ATTRIBUTES = Collections.unmodifiableMap(attributes);
+    }
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    public EmployeePatchValidator(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Reads and validates the changes of a merge patch.
+     * A null value would remove the field, which the constraints of every patchable field reject.
+     * The id may be repeated in the patch but not changed.
+     *
+     * @param patch      the merge patch, an object holding the new values of the fields to change
+     * @param employeeId the id of the employee the patch applies to
+     * @return the new values, keyed by attribute name
+     * @throws InvalidRequestException if the patch is not an object, is empty, or holds an unknown or invalid field
+     */
+    public Map<String, Object> read(JsonNode patch, Long employeeId) {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidRequestException("Patch must be a JSON object");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = patch.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String name = field.getKey();
+            if (name.equals("id") && field.getValue().canConvertToLong() && field.getValue().asLong() == employeeId) {
+                continue;
+            }
+            Class<?> type = PATCHABLE_ATTRIBUTES.get(name);
+            if (type == null) {
+                errors.add(name + ": cannot be changed");
+                continue;
+            }
+            Object value;
+            try {
+                value = field.getValue().isNull() ? null : objectMapper.treeToValue(field.getValue(), type);
+            } catch (JsonProcessingException e) {
+                errors.add(name + ": " + e.getOriginalMessage());
+                continue;
+            }
+            for (ConstraintViolation<Employee> violation : validator.validateValue(Employee.class, name, value)) {
+                errors.add(name + ": " + violation.getMessage());
+            }
+            changes.put(name, value);
+        }
+        if (!errors.isEmpty()) {
+            Collections.sort(errors);
+            throw new InvalidRequestException(String.join(", ", errors));
+        }
+        if (changes.isEmpty()) {
+            throw new InvalidRequestException("Patch must change at least one field");
+        }
+        return changes;
+    }
+
+    /**
+     * Lists the attributes of an employee as changes, to apply a full update through the patch path.
+     *
+     * @param employee an employee that has already been validated
+     * @return the name, salary and department of the employee, keyed by attribute name
+     */
+    public static Map<String, Object> changesOf(Employee employee) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("name", employee.getName());
+        changes.put("salary", employee.getSalary());
+        changes.put("department", employee.getDepartment());
+        return changes;
+    }
+}
@@ -0,0 +1,112 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.util.EmployeeCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares encoding and decoding a page of employees as JSON, CBOR and Smile, with the mappers the message
+ * converters use. The size of each encoded page does not vary between iterations, so {@link #main} prints it
+ * once, before the benchmarks run. Run it like {@link JwtBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeFormatBenchmark {
+
+    private static final String[] DEPARTMENTS = {"Engineering", "Sales", "Human Resources", "Finance"};
+
+    private static final int[] PAGE_SIZES = {20, 100};
+
+    private static final String[] FORMATS = {"json", "cbor", "smile"};
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectMapper mapper;
+
+    private EmployeePage page;
+
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = mapper(format);
+        page = page(pageSize);
+        encoded = mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public EmployeePage decode() throws IOException {
+        return mapper.readValue(encoded, EmployeePage.class);
+    }
+
+    private static ObjectMapper mapper(String format) {
+        switch (format) {
+            case "cbor":
+                return Jackson2ObjectMapperBuilder.cbor().build();
+            case "smile":
+                return Jackson2ObjectMapperBuilder.smile().build();
+            default:
+                return Jackson2ObjectMapperBuilder.json().build();
+        }
+    }
+
+    private static EmployeePage page(int pageSize) {
+        List<Employee> employees = new ArrayList<>(pageSize);
+        for (int i = 1; i <= pageSize; i++) {
+            Employee employee = new Employee();
+            employee.setId(1000L + i);
+            employee.setName("Employee Number " + i);
+            employee.setSalary(40_000 + i * 37);
+            employee.setDepartment(DEPARTMENTS[i % DEPARTMENTS.length]);
+            employee.setVersion((long) i % 5);
+            employees.add(employee);
+        }
+        return new EmployeePage(employees, EmployeeCursor.encode(1000L + pageSize));
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        for (int pageSize : PAGE_SIZES) {
+            for (String format : FORMATS) {
+                int bytes = mapper(format).writeValueAsBytes(page(pageSize)).length;
+                System.out.printf("Page of %d employees as %s: %d bytes%n", pageSize, format, bytes);
+            }
+        }
+        new Runner(new OptionsBuilder()
+                .include(EmployeeFormatBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,67 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.impl.TextCodec;
+import jp.co.axa.apidemo.util.JwtClaims;
+import jp.co.axa.apidemo.util.JwtCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares verifying a token with {@link JwtCodec} against the jjwt parser it replaces.
+ * Run the main method from the IDE, or with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=jp.co.axa.apidemo.benchmarks.JwtBenchmark}.
+ * The gc profiler reports the bytes allocated per operation next to the time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRET_KEY = "secret";
+
+    private final JwtCodec codec = new JwtCodec(TextCodec.BASE64.decode(SECRET_KEY));
+
+    private final String token;
+
+    public JwtBenchmark() {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        token = codec.encode(new JwtClaims(UUID.randomUUID().toString(), "user", null,
+                Arrays.asList("ROLE_USER", "ROLE_ADMIN"), 1, now, now + TimeUnit.MINUTES.toSeconds(15)));
+    }
+
+    @Benchmark
+    public JwtClaims codec() {
+        return codec.decode(token);
+    }
+
+    @Benchmark
+    public Claims jjwt() {
+        return Jwts.parser().setSigningKey(SECRET_KEY).parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,62 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import jp.co.axa.apidemo.util.RateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost {@link RateLimiter} adds to a request, for a hot client shared by every thread
+ * and for a large population of clients that keeps the bucket map at its cap.
+ * Run it like {@link JwtBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final int CLIENTS = 1_000_000;
+
+    private final RateLimiter rateLimiter = new RateLimiter(1_000_000, 1_000, 100_000);
+
+    private final String[] clients = new String[CLIENTS];
+
+    public RateLimiterBenchmark() {
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = "client-" + i;
+        }
+    }
+
+    @Benchmark
+    public long sameClient() {
+        return rateLimiter.tryAcquire("user");
+    }
+
+    @Benchmark
+    public long churningClients() {
+        return rateLimiter.tryAcquire(clients[ThreadLocalRandom.current().nextInt(CLIENTS)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,191 @@
+package jp.co.axa.apidemo.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.management.UnixOperatingSystemMXBean;
+import jp.co.axa.apidemo.ApiDemoApplication;
+import jp.co.axa.apidemo.dto.AuthenticationRequest;
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.util.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the time to serve a wave of concurrent clients, each listing a page of employees over HTTP,
+ * with the application running on Tomcat's default pool of 200 platform threads and with
+ * spring.threads.virtual.enabled. Every request goes through the security filters and a database query.
+ * The clients themselves run on virtual threads, so the benchmark needs JDK 21 or later: compile with the
+ * build JDK and run the benchmark with a JDK 21 java, otherwise run it like {@link JwtBenchmark}.
+ * Each client holds a socket on both ends, so 10000 clients need an open file limit well above 20000; the
+ * trial fails up front when the limit of the JVM is too low for the number of clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    private static final int EMPLOYEES = 100;
+
+    /**
+     * Open files the JVM needs besides the sockets of the clients: jars, the database and the server socket.
+     */
+    private static final int FILE_HEADROOM = 1000;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Param({"1000", "10000"})
+    private int clients;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    private ConfigurableApplicationContext context;
+
+    private ExecutorService clientExecutor;
+
+    private URL employeesUrl;
+
+    private String authorization;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        checkOpenFileLimit();
+        context = new SpringApplicationBuilder(ApiDemoApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                        "--security.rate-limit.enabled=false",
+                        "--server.tomcat.max-connections=" + clients,
+                        "--server.tomcat.accept-count=" + clients,
+                        "--logging.level.jp.co.axa.apidemo=WARN");
+        List<Employee> employees = new ArrayList<>(EMPLOYEES);
+        for (int i = 0; i < EMPLOYEES; i++) {
+            Employee employee = new Employee();
+            employee.setName("Benchmark Employee");
+            employee.setSalary(1000 + i);
+            employee.setDepartment("Benchmark");
+            employees.add(employee);
+        }
+        context.getBean(EmployeeService.class).saveEmployees(employees);
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        employeesUrl = new URL(baseUrl + "/api/v1/employees");
+        authorization = "Bearer " + authenticate(new URL(baseUrl + "/authenticate"));
+        clientExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public void serveClients() throws InterruptedException {
+        CountDownLatch served = new CountDownLatch(clients);
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        for (int i = 0; i < clients; i++) {
+            clientExecutor.execute(() -> {
+                try {
+                    listEmployees();
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    failure.compareAndSet(null, e);
+                } finally {
+                    served.countDown();
+                }
+            });
+        }
+        served.await();
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " of " + clients + " requests failed", failure.get());
+        }
+    }
+
+    /**
+     * Fails the trial before starting the application when the clients would run out of file descriptors,
+     * which would otherwise surface as "Too many open files" halfway through an iteration.
+     */
+    private void checkOpenFileLimit() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (!(os instanceof UnixOperatingSystemMXBean)) {
+            return;
+        }
+        long limit = ((UnixOperatingSystemMXBean) os).getMaxFileDescriptorCount();
+        long needed = 2L * clients + FILE_HEADROOM;
+        if (limit < needed) {
+            throw new IllegalStateException(clients + " clients need an open file limit of at least " + needed
+                    + ", the limit is " + limit + "; raise it with ulimit -n before running the benchmark");
+        }
+    }
+
+    private void listEmployees() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) employeesUrl.openConnection();
+        connection.setRequestProperty(HttpHeaders.AUTHORIZATION, authorization);
+        if (connection.getResponseCode() != 200) {
+            throw new IOException("Unexpected status " + connection.getResponseCode());
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream body = connection.getInputStream()) {
+            while (body.read(buffer) != -1) {
+                // Read the whole page so the connection can be reused
+            }
+        }
+    }
+
+    private static String authenticate(URL authenticateUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) authenticateUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        try (OutputStream body = connection.getOutputStream()) {
+            objectMapper.writeValue(body, new AuthenticationRequest("user", "password"));
+        }
+        try (InputStream body = connection.getInputStream()) {
+            return objectMapper.readValue(body, AuthenticationResponse.class).getJwt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
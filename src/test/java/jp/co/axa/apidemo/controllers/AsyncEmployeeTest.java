@@ -0,0 +1,108 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.entities.Employee;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"employees.async.enabled=true", "employees.async.batch-max-bytes=1024"})
+@AutoConfigureMockMvc
+public class AsyncEmployeeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void servesEmployeesAsynchronously() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("John Doe");
+        employee.setSalary(1000);
+        employee.setDepartment("IT");
+
+        String response = performAsync(post("/api/v1/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, containsString("/api/v1/employees/")))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        Long employeeId = objectMapper.readValue(response, Employee.class).getId();
+
+        performAsync(get("/api/v1/employees/" + employeeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("John Doe")));
+        performAsync(patch("/api/v1/employees/" + employeeId)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"salary\": 1100 }"))
+                .andExpect(status().isNoContent());
+        performAsync(get("/api/v1/employees").param("namePrefix", "John"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].salary", is(1100)));
+        performAsync(delete("/api/v1/employees/" + employeeId))
+                .andExpect(status().isOk());
+        performAsync(get("/api/v1/employees/" + employeeId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void savesEmployeesInBulkFromSpooledBody() throws Exception {
+        String response = performAsync(post("/api/v1/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Bulk One\",\"salary\":1000,\"department\":\"IT\"},"
+                                + "{\"name\":\"Bulk Two\",\"salary\":1000,\"department\":\"IT\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(2)))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        for (JsonNode result : objectMapper.readTree(response).get("results")) {
+            performAsync(delete("/api/v1/employees/" + result.get("id").asLong()))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void rejectsBulkBodyOverTheLimit() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"name\":\"Bulk Employee\",\"salary\":1000,\"department\":\"IT\"}");
+        }
+        mockMvc.perform(post("/api/v1/employees/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.append("]").toString()))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    /**
+     * Performs a request whose handler completes asynchronously and dispatches its result.
+     */
+    private ResultActions performAsync(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
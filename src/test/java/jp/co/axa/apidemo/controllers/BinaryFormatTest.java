@@ -0,0 +1,124 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jp.co.axa.apidemo.config.BinaryFormatConfig;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BinaryFormatTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    private static final ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+
+    private static final ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void readsAndWritesCborAndSmile() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("Binary Doe");
+        employee.setSalary(1000);
+        employee.setDepartment("Encoding");
+
+        MvcResult created = mockMvc.perform(post("/api/v1/employees")
+                        .contentType(BinaryFormatConfig.APPLICATION_CBOR_VALUE)
+                        .accept(BinaryFormatConfig.APPLICATION_CBOR_VALUE)
+                        .content(cborMapper.writeValueAsBytes(employee)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentTypeCompatibleWith(BinaryFormatConfig.APPLICATION_CBOR_VALUE))
+                .andReturn();
+        Employee saved = cborMapper.readValue(created.getResponse().getContentAsByteArray(), Employee.class);
+        assertEquals("Binary Doe", saved.getName());
+
+        saved.setSalary(1100);
+        mockMvc.perform(put("/api/v1/employees/" + saved.getId())
+                        .contentType(BinaryFormatConfig.APPLICATION_SMILE_VALUE)
+                        .content(smileMapper.writeValueAsBytes(saved)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.salary", is(1100)));
+        mockMvc.perform(patch("/api/v1/employees/" + saved.getId())
+                        .contentType(BinaryFormatConfig.APPLICATION_CBOR_VALUE)
+                        .content(cborMapper.writeValueAsBytes(Collections.singletonMap("salary", 1200))))
+                .andExpect(status().isNoContent());
+        MvcResult read = mockMvc.perform(get("/api/v1/employees/" + saved.getId())
+                        .accept(BinaryFormatConfig.APPLICATION_CBOR_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(BinaryFormatConfig.APPLICATION_CBOR_VALUE))
+                .andReturn();
+        assertEquals(1200, cborMapper.readValue(read.getResponse().getContentAsByteArray(), Employee.class)
+                .getSalary().intValue());
+
+        MvcResult page = mockMvc.perform(get("/api/v1/employees")
+                        .param("department", "Encoding")
+                        .accept(BinaryFormatConfig.APPLICATION_SMILE_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(BinaryFormatConfig.APPLICATION_SMILE_VALUE))
+                .andExpect(header().string(HttpHeaders.VARY, is(HttpHeaders.ACCEPT)))
+                .andReturn();
+        List<Employee> items = smileMapper.readValue(page.getResponse().getContentAsByteArray(), EmployeePage.class)
+                .getItems();
+        assertEquals(1, items.size());
+        assertEquals(1200, items.get(0).getSalary().intValue());
+
+        mockMvc.perform(delete("/api/v1/employees/" + saved.getId()))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void exportsCborSequence() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("Sequence Doe");
+        employee.setSalary(1000);
+        employee.setDepartment("Encoding");
+        Long employeeId = employeeService.saveEmployee(employee).getId();
+
+        MvcResult export = mockMvc.perform(get("/api/v1/employees/export")
+                        .accept(BinaryFormatConfig.APPLICATION_CBOR_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(export))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(BinaryFormatConfig.APPLICATION_CBOR_VALUE))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        try (MappingIterator<Employee> employees = cborMapper.readerFor(Employee.class).readValues(body)) {
+            List<Employee> exported = employees.readAll();
+            assertTrue(exported.stream().anyMatch(exportedEmployee -> exportedEmployee.getId().equals(employeeId)));
+        } finally {
+            employeeService.deleteEmployee(employeeId);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class EmployeeCacheConsistencyTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void readDuringWriteIsNotServedAfterCommit() {
+        Long employeeId = saveEmployee("Cache Doe");
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                Employee employee = copyOf(employeeService.getEmployee(employeeId));
+                employee.setName("Cache Roe");
+                employeeService.updateEmployee(employee, null);
+                assertEquals("Cache Doe", readOnAnotherThread(employeeId));
+                return null;
+            });
+            assertEquals("Cache Roe", employeeService.getEmployee(employeeId).getName());
+        } finally {
+            employeeService.deleteEmployee(employeeId);
+        }
+    }
+
+    @Test
+    public void rolledBackWriteIsNeverServed() {
+        Long employeeId = saveEmployee("Rollback Doe");
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                Employee employee = copyOf(employeeService.getEmployee(employeeId));
+                employee.setName("Rollback Roe");
+                employeeService.updateEmployee(employee, null);
+                assertEquals("Rollback Doe", readOnAnotherThread(employeeId));
+                status.setRollbackOnly();
+                return null;
+            });
+            assertEquals("Rollback Doe", employeeService.getEmployee(employeeId).getName());
+        } finally {
+            employeeService.deleteEmployee(employeeId);
+        }
+    }
+
+    @Test
+    public void jsonReadDuringWriteIsNotServedAfterCommit() throws Exception {
+        Long employeeId = saveEmployee("Json Doe");
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                Employee employee = copyOf(employeeService.getEmployee(employeeId));
+                employee.setName("Json Roe");
+                employeeService.updateEmployee(employee, null);
+                CompletableFuture.runAsync(() -> expectName(employeeId, "Json Doe")).join();
+                return null;
+            });
+            expectName(employeeId, "Json Roe");
+        } finally {
+            employeeService.deleteEmployee(employeeId);
+        }
+    }
+
+    private Long saveEmployee(String name) {
+        Employee employee = new Employee();
+        employee.setName(name);
+        employee.setSalary(1000);
+        employee.setDepartment("Consistency");
+        return employeeService.saveEmployee(employee).getId();
+    }
+
+    private String readOnAnotherThread(Long employeeId) {
+        return CompletableFuture.supplyAsync(() -> employeeService.getEmployee(employeeId).getName()).join();
+    }
+
+    private void expectName(Long employeeId, String name) {
+        try {
+            mockMvc.perform(get("/api/v1/employees/" + employeeId)
+                            .with(user("user").authorities(new SimpleGrantedAuthority("ROLE_USER"))))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name", is(name)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Employee copyOf(Employee employee) {
+        Employee copy = new Employee();
+        copy.setId(employee.getId());
+        copy.setName(employee.getName());
+        copy.setSalary(employee.getSalary());
+        copy.setDepartment(employee.getDepartment());
+        return copy;
+    }
+}
@@ -1,19 +1,28 @@
 package jp.co.axa.apidemo.controllers;
 
+import jp.co.axa.apidemo.config.CacheConfig;
 import jp.co.axa.apidemo.dto.AuthenticationRequest;
 import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.dto.RefreshTokenRequest;
+import jp.co.axa.apidemo.dto.RevokeTokenRequest;
 import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -25,7 +34,14 @@ public class EndToEndEmployeeTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EmployeeJsonCache employeeJsonCache;
+
     private static String jwtToken;
+    private static String refreshToken;
     private static Employee createdEmployee;
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -34,9 +50,12 @@ public class EndToEndEmployeeTest {
     @Order(1)
     public void authenticateUser() throws Exception {
         AuthenticationRequest authenticationRequest = new AuthenticationRequest("user", "password");
-        String response = mockMvc.perform(post("/authenticate")
+        MvcResult result = mockMvc.perform(post("/authenticate")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(authenticationRequest)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andReturn()
                 .getResponse()
@@ -44,6 +63,19 @@ public class EndToEndEmployeeTest {
 
         AuthenticationResponse authenticationResponse = objectMapper.readValue(response, AuthenticationResponse.class);
         jwtToken = authenticationResponse.getJwt();
+        refreshToken = authenticationResponse.getRefreshToken();
+    }
+
+    @Test
+    @Order(1)
+    public void authenticateUser_incorrectPassword() throws Exception {
+        MvcResult result = mockMvc.perform(post("/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthenticationRequest("user", "wrong"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -73,6 +105,15 @@ public class EndToEndEmployeeTest {
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name", is(createdEmployee.getName())));
+
+        Employee cached = cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(createdEmployee.getId(), Employee.class);
+        Assertions.assertEquals(createdEmployee.getName(), cached.getName());
+        Assertions.assertEquals(0L, employeeJsonCache.get(createdEmployee.getId()).getVersion());
+
+        mockMvc.perform(get("/api/v1/employees/" + createdEmployee.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isNotModified());
     }
 
     @Test
@@ -81,26 +122,244 @@ public class EndToEndEmployeeTest {
         mockMvc.perform(get("/api/v1/employees")
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].name", is(createdEmployee.getName())));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", is(createdEmployee.getName())));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("department", "IT")
+                        .param("minSalary", "1000")
+                        .param("namePrefix", "John")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("namePrefix", "J%")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(0)));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("ids", createdEmployee.getId() + "," + (createdEmployee.getId() + 1000))
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", is(createdEmployee.getName())))
+                .andExpect(jsonPath("$.missingIds", hasSize(1)));
     }
+
     @Test
     @Order(5)
+    public void exportEmployees() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/employees/export")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(1, lines.length);
+        Assertions.assertEquals(createdEmployee.getName(), objectMapper.readValue(lines[0], Employee.class).getName());
+    }
+
+    @Test
+    @Order(6)
     public void updateEmployee() throws Exception {
         createdEmployee.setName("Jane Doe");
         mockMvc.perform(put("/api/v1/employees/" + createdEmployee.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
                         .header("Authorization", "Bearer " + jwtToken)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(createdEmployee)))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
                 .andExpect(jsonPath("$.name", is(createdEmployee.getName())));
+
+        mockMvc.perform(put("/api/v1/employees/" + createdEmployee.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createdEmployee)))
+                .andExpect(status().isPreconditionFailed());
+
+        mockMvc.perform(patch("/api/v1/employees/" + createdEmployee.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"salary\": 1500 }"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+
+        mockMvc.perform(get("/api/v1/employees/" + createdEmployee.getId())
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is(createdEmployee.getName())))
+                .andExpect(jsonPath("$.salary", is(1500)))
+                .andExpect(jsonPath("$.version", is(2)));
     }
 
     @Test
-    @Order(6)
+    @Order(7)
     public void deleteEmployee() throws Exception {
         mockMvc.perform(delete("/api/v1/employees/" + createdEmployee.getId())
                         .header("Authorization", "Bearer " + jwtToken))
                 .andExpect(status().isOk());
+
+        Assertions.assertNull(cacheManager.getCache(CacheConfig.EMPLOYEE_CACHE).get(createdEmployee.getId()));
+        Assertions.assertNull(employeeJsonCache.get(createdEmployee.getId()));
+    }
+
+    @Test
+    @Order(8)
+    public void saveEmployeesInBulk() throws Exception {
+        mockMvc.perform(post("/api/v1/employees/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{ \"name\": \"Alice\", \"salary\": 1000, \"department\": \"IT\" },"
+                                + " { \"name\": \"\", \"salary\": 1000, \"department\": \"IT\" },"
+                                + " { \"name\": \"Bob\", \"salary\": 2000, \"department\": \"HR\" }]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(2)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.results[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.results[1].status", is("INVALID")))
+                .andExpect(jsonPath("$.results[2].status", is("CREATED")));
+    }
+
+    @Test
+    @Order(9)
+    public void saveEmployeesInBulk_notAnArray() throws Exception {
+        mockMvc.perform(post("/api/v1/employees/batch")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"name\": \"Alice\", \"salary\": 1000, \"department\": \"IT\" }"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(10)
+    public void getDepartmentStats() throws Exception {
+        mockMvc.perform(get("/api/v1/departments/stats")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].department", is("HR")))
+                .andExpect(jsonPath("$[0].headcount", is(1)))
+                .andExpect(jsonPath("$[0].totalSalary", is(2000)))
+                .andExpect(jsonPath("$[1].department", is("IT")))
+                .andExpect(jsonPath("$[1].headcount", is(1)))
+                .andExpect(jsonPath("$[1].minSalary", is(1000)))
+                .andExpect(jsonPath("$[1].averageSalary", is(1000.0)));
+    }
+
+    @Test
+    @Order(11)
+    public void importEmployeesFromCsv() throws Exception {
+        MockHttpServletResponse accepted = mockMvc.perform(post("/api/v1/employees/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType("text/csv")
+                        .content("name,salary,department\n"
+                                + "Carol,3000,IT\n"
+                                + "Dave,lots,IT\n"
+                                + "Erin,4000,HR\n"))
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse();
+
+        String jobId = objectMapper.readTree(accepted.getContentAsString()).get("jobId").asText();
+        String location = accepted.getHeader(HttpHeaders.LOCATION);
+        assertEquals("http://localhost/api/v1/employees/import/" + jobId, location);
+        String state = "RUNNING";
+        for (int attempt = 0; state.equals("RUNNING") && attempt < 500; attempt++) {
+            Thread.sleep(10);
+            String job = mockMvc.perform(get(location)
+                            .header("Authorization", "Bearer " + jwtToken))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            state = objectMapper.readTree(job).get("state").asText();
+        }
+        mockMvc.perform(get(location)
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state", is("COMPLETED")))
+                .andExpect(jsonPath("$.rowsRead", is(3)))
+                .andExpect(jsonPath("$.rowsImported", is(2)))
+                .andExpect(jsonPath("$.rowsInvalid", is(1)))
+                .andExpect(jsonPath("$.errors", hasSize(1)));
+        mockMvc.perform(get("/api/v1/employees").param("namePrefix", "Carol")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)));
+    }
+
+    @Test
+    @Order(12)
+    public void importEmployeesFromCsv_missingColumn() throws Exception {
+        mockMvc.perform(post("/api/v1/employees/import")
+                        .header("Authorization", "Bearer " + jwtToken)
+                        .contentType("text/csv")
+                        .content("name,department\nCarol,IT\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @Order(13)
+    public void refreshToken_usableOnce() throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+
+        String response = mockMvc.perform(post("/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        AuthenticationResponse refreshed = objectMapper.readValue(response, AuthenticationResponse.class);
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + refreshed.getJwt()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken))))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(post("/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshed.getJwt()))))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + refreshed.getJwt()))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @Order(14)
+    public void revokeToken() throws Exception {
+        authenticateUser();
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/authenticate/revoke")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RevokeTokenRequest(jwtToken))))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwtToken))
+                .andExpect(status().isUnauthorized());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.dto.AuthenticationRequest;
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "security.rate-limit.requests-per-second=0.01",
+        "security.rate-limit.burst=1"
+})
+@AutoConfigureMockMvc
+public class RateLimitTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void rejectedRequestIsAnsweredByTheFilter() throws Exception {
+        String authorization = "Bearer " + authenticate();
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/employees")
+                        .header(HttpHeaders.AUTHORIZATION, authorization))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "100"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.status", is(429)))
+                .andExpect(jsonPath("$.error", is("Too Many Requests")));
+    }
+
+    private String authenticate() throws Exception {
+        MvcResult result = mockMvc.perform(post("/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthenticationRequest("user", "password"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(response, AuthenticationResponse.class).getJwt();
+    }
+}
@@ -0,0 +1,96 @@
+package jp.co.axa.apidemo.controllers;
+
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class SparseFieldsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void returnsOnlyRequestedFieldsWithoutLoadingEntities() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("Sparse Doe");
+        employee.setSalary(1000);
+        employee.setDepartment("Projection");
+        Long employeeId = employeeService.saveEmployee(employee).getId();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long entitiesLoaded = statistics.getEntityLoadCount();
+
+        try {
+            mockMvc.perform(get("/api/v1/employees")
+                            .param("department", "Projection")
+                            .param("fields", "name"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andExpect(jsonPath("$.items", hasSize(1)))
+                    .andExpect(jsonPath("$.items[0].id", is(employeeId.intValue())))
+                    .andExpect(jsonPath("$.items[0].name", is("Sparse Doe")))
+                    .andExpect(jsonPath("$.items[0].version", is(0)))
+                    .andExpect(jsonPath("$.items[0].salary").doesNotExist());
+            mockMvc.perform(get("/api/v1/employees/" + employeeId)
+                            .param("fields", "salary,department"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                    .andExpect(jsonPath("$.salary", is(1000)))
+                    .andExpect(jsonPath("$.department", is("Projection")))
+                    .andExpect(jsonPath("$.name").doesNotExist());
+            mockMvc.perform(get("/api/v1/employees/" + employeeId)
+                            .param("fields", "salary")
+                            .header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(get("/api/v1/employees")
+                            .param("ids", employeeId + ",999999")
+                            .param("fields", "name"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].name", is("Sparse Doe")))
+                    .andExpect(jsonPath("$.missingIds", contains(999999)));
+            mockMvc.perform(post("/api/v1/employees/lookup")
+                            .param("fields", "department")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("{ \"ids\": [" + employeeId + "] }"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.items[0].department", is("Projection")));
+
+            assertEquals(entitiesLoaded, statistics.getEntityLoadCount());
+        } finally {
+            employeeService.deleteEmployee(employeeId);
+        }
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void rejectsUnknownFields() throws Exception {
+        mockMvc.perform(get("/api/v1/employees").param("fields", "name,lastModified"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/employees").param("fields", " , "))
+                .andExpect(status().isBadRequest());
+    }
+}
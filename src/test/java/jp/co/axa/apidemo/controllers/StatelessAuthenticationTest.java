@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.dto.AuthenticationRequest;
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "security.jwt.stateless-authorities=true")
+@AutoConfigureMockMvc
+public class StatelessAuthenticationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @SpyBean
+    private CustomUserDetailsService userDetailsService;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void authenticatesFromClaimsUntilRevoked() throws Exception {
+        String jwt = authenticate();
+        reset(userDetailsService);
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isOk());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+
+        tokenVersionService.revokeTokens("user");
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + authenticate()))
+                .andExpect(status().isOk());
+    }
+
+    private String authenticate() throws Exception {
+        MvcResult result = mockMvc.perform(post("/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthenticationRequest("user", "password"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(response, AuthenticationResponse.class).getJwt();
+    }
+}
@@ -0,0 +1,164 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.impl.TextCodec;
+import jp.co.axa.apidemo.dto.AuthenticationRequest;
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.dto.RefreshTokenRequest;
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import jp.co.axa.apidemo.util.JwtClaims;
+import jp.co.axa.apidemo.util.JwtCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that access tokens stop working once their user's tokens are revoked or their user is disabled, with
+ * a user of their own so that the tokens of the shared test user stay valid, and that expired or forged
+ * tokens are answered with 401.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class TokenRejectionTest {
+
+    private static final long USER_ID = 1001L;
+
+    private static final String SECRET_KEY = "secret";
+
+    private static final String USERNAME = "token-rejection-user";
+
+    /**
+     * BCrypt hash of "password".
+     */
+    private static final String PASSWORD_HASH = "$2a$04$N7JXgEmKL2gncKe.8EcH/eCxgE061PBmAP9b/SlXNsmsXvR8Pju8u";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    public void createUser() {
+        jdbcTemplate.update("INSERT INTO USERS(id, username, password, enabled, token_version) VALUES(?, ?, ?, true, 0)",
+                USER_ID, USERNAME, PASSWORD_HASH);
+        jdbcTemplate.update("INSERT INTO USER_ROLES(user_id, role_id) VALUES(?, 1)", USER_ID);
+    }
+
+    @AfterEach
+    public void deleteUser() {
+        userDetailsService.invalidate(USERNAME);
+        tokenVersionService.invalidate(USERNAME);
+        jdbcTemplate.update("DELETE FROM USER_ROLES WHERE user_id = ?", USER_ID);
+        jdbcTemplate.update("DELETE FROM USERS WHERE id = ?", USER_ID);
+    }
+
+    @Test
+    public void refreshTokenReuseRejectsIssuedAccessTokens() throws Exception {
+        AuthenticationResponse authenticated = authenticate();
+        AuthenticationResponse refreshed = refresh(authenticated.getRefreshToken());
+        expectStatus(authenticated.getJwt(), 200);
+        expectStatus(refreshed.getJwt(), 200);
+
+        mockMvc.perform(post("/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(authenticated.getRefreshToken()))))
+                .andExpect(status().isUnauthorized());
+
+        expectStatus(authenticated.getJwt(), 401);
+        expectStatus(refreshed.getJwt(), 401);
+        expectStatus(authenticate().getJwt(), 200);
+    }
+
+    @Test
+    public void disabledUserIsRejected() throws Exception {
+        String jwt = authenticate().getJwt();
+        expectStatus(jwt, 200);
+
+        jdbcTemplate.update("UPDATE USERS SET enabled = false WHERE id = ?", USER_ID);
+        userDetailsService.invalidate(USERNAME);
+        tokenVersionService.invalidate(USERNAME);
+
+        expectStatus(jwt, 401);
+    }
+
+    @Test
+    public void expiredTokenIsRejected() throws Exception {
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        String jwt = new JwtCodec(TextCodec.BASE64.decode(SECRET_KEY)).encode(new JwtClaims(
+                UUID.randomUUID().toString(), USERNAME, null, null, 0, now - 120, now - 60));
+
+        expectStatus(jwt, 401);
+    }
+
+    @Test
+    public void tamperedTokenIsRejected() throws Exception {
+        String jwt = authenticate().getJwt();
+        String payload = jwt.substring(jwt.indexOf('.') + 1, jwt.lastIndexOf('.'));
+        String forgedPayload = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8)
+                        .replace(USERNAME, "user")
+                        .getBytes(StandardCharsets.UTF_8));
+
+        expectStatus(jwt.replace(payload, forgedPayload), 401);
+        expectStatus("not.a.token", 401);
+    }
+
+    private void expectStatus(String jwt, int status) throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .header("Authorization", "Bearer " + jwt))
+                .andExpect(status().is(status));
+    }
+
+    private AuthenticationResponse authenticate() throws Exception {
+        MvcResult result = mockMvc.perform(post("/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new AuthenticationRequest(USERNAME, "password"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(response, AuthenticationResponse.class);
+    }
+
+    private AuthenticationResponse refresh(String refreshToken) throws Exception {
+        String response = mockMvc.perform(post("/authenticate/refresh")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new RefreshTokenRequest(refreshToken))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(response, AuthenticationResponse.class);
+    }
+}
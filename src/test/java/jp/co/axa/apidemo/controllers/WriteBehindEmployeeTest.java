@@ -0,0 +1,95 @@
+package jp.co.axa.apidemo.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.dto.WriteTicket;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "employees.write-behind.enabled=true")
+@AutoConfigureMockMvc
+public class WriteBehindEmployeeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void writesCoalescedUpdatesBehind() throws Exception {
+        Employee employee = new Employee();
+        employee.setName("John Doe");
+        employee.setSalary(1000);
+        employee.setDepartment("IT");
+        Long employeeId = employeeService.saveEmployee(employee).getId();
+
+        mockMvc.perform(patch("/api/v1/write-behind/employees/" + employeeId)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"salary\": 1100 }"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.durable", is(false)));
+        String response = mockMvc.perform(patch("/api/v1/write-behind/employees/" + employeeId)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"name\": \"Jane Doe\" }"))
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long ticket = objectMapper.readValue(response, WriteTicket.class).getTicket();
+
+        mockMvc.perform(post("/api/v1/write-behind/flush")
+                        .param("ticket", String.valueOf(ticket)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.durable", is(true)))
+                .andExpect(jsonPath("$.failed", is(false)));
+
+        mockMvc.perform(get("/api/v1/employees/" + employeeId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Jane Doe")))
+                .andExpect(jsonPath("$.salary", is(1100)));
+
+        mockMvc.perform(patch("/api/v1/write-behind/employees/" + employeeId)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"salary\": -1 }"))
+                .andExpect(status().isBadRequest());
+
+        employeeService.deleteEmployee(employeeId);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void reportsDroppedWritesAsFailed() throws Exception {
+        String response = mockMvc.perform(patch("/api/v1/write-behind/employees/" + Integer.MAX_VALUE)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"salary\": 1100 }"))
+                .andExpect(status().isAccepted())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        long ticket = objectMapper.readValue(response, WriteTicket.class).getTicket();
+
+        mockMvc.perform(post("/api/v1/write-behind/flush")
+                        .param("ticket", String.valueOf(ticket)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.durable", is(false)))
+                .andExpect(jsonPath("$.failed", is(true)));
+
+        mockMvc.perform(get("/api/v1/write-behind/tickets/" + ticket))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.durable", is(false)))
+                .andExpect(jsonPath("$.failed", is(true)));
+    }
+}
@@ -1,8 +1,15 @@
 package jp.co.axa.apidemo.unit.controllers;
 
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
 import jp.co.axa.apidemo.entities.Employee;
 import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.EmployeeVersionMismatchException;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
 import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.util.EmployeeCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -10,16 +17,24 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @SpringBootTest
@@ -32,6 +47,9 @@ public class EmployeeControllerTest {
     @MockBean
     private EmployeeService employeeService;
 
+    @Autowired
+    private EmployeeJsonCache employeeJsonCache;
+
     private Employee employee;
 
     @BeforeEach
@@ -41,22 +59,179 @@ public class EmployeeControllerTest {
         employee.setName("John Doe");
         employee.setSalary(1000);
         employee.setDepartment("IT");
+        employee.setVersion(3L);
+        employee.setLastModified(Instant.ofEpochSecond(1_600_000_000L));
         Mockito.reset(employeeService);
+        employeeJsonCache.invalidate(1L);
     }
 
     @Test
     @WithMockUser(username = "user", authorities = {"ROLE_USER"})
     public void getEmployees() throws Exception {
-        when(employeeService.retrieveEmployees()).thenReturn(Arrays.asList(employee));
+        when(employeeService.retrieveEmployees(new EmployeeFilter(), null, 20)).thenReturn(new EmployeePage(Arrays.asList(employee), null));
 
         mockMvc.perform(get("/api/v1/employees")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].name", is("John Doe")));
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].name", is("John Doe")))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+
+        verify(employeeService, times(1)).retrieveEmployees(new EmployeeFilter(), null, 20);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_withCursor() throws Exception {
+        String nextCursor = EmployeeCursor.encode(2L);
+        when(employeeService.retrieveEmployees(new EmployeeFilter(), 1L, 1)).thenReturn(new EmployeePage(Arrays.asList(employee), nextCursor));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("after", EmployeeCursor.encode(1L))
+                        .param("limit", "1")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.nextCursor", is(nextCursor)));
+
+        verify(employeeService, times(1)).retrieveEmployees(new EmployeeFilter(), 1L, 1);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_invalidCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("after", "not-a-cursor")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(employeeService, times(0)).retrieveEmployees(any(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_invalidLimit() throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("limit", "0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(employeeService, times(0)).retrieveEmployees(any(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_withFilter() throws Exception {
+        EmployeeFilter filter = new EmployeeFilter("IT", 500, 1500, "John");
+        when(employeeService.retrieveEmployees(filter, null, 20)).thenReturn(new EmployeePage(Arrays.asList(employee), null));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("department", "IT")
+                        .param("minSalary", "500")
+                        .param("maxSalary", "1500")
+                        .param("namePrefix", "John")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)));
+
+        verify(employeeService, times(1)).retrieveEmployees(filter, null, 20);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_emptySalaryRange() throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("minSalary", "2000")
+                        .param("maxSalary", "1000")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(employeeService, times(0)).retrieveEmployees(any(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployeesByIds() throws Exception {
+        when(employeeService.getEmployees(Arrays.asList(1L, 2L)))
+                .thenReturn(new EmployeeLookupResponse(Arrays.asList(employee), Arrays.asList(2L)));
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("ids", "1,2")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.items[0].id", is(1)))
+                .andExpect(jsonPath("$.missingIds", hasSize(1)))
+                .andExpect(jsonPath("$.missingIds[0]", is(2)));
+
+        verify(employeeService, times(0)).retrieveEmployees(any(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployeesByIds_invalidId() throws Exception {
+        mockMvc.perform(get("/api/v1/employees")
+                        .param("ids", "1,0")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        verify(employeeService, times(0)).getEmployees(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void lookupEmployees() throws Exception {
+        when(employeeService.getEmployees(Arrays.asList(1L)))
+                .thenReturn(new EmployeeLookupResponse(Arrays.asList(employee), Arrays.asList()));
 
-        verify(employeeService, times(1)).retrieveEmployees();
+        mockMvc.perform(post("/api/v1/employees/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(1)))
+                .andExpect(jsonPath("$.missingIds", hasSize(0)));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void lookupEmployees_invalidId() throws Exception {
+        mockMvc.perform(post("/api/v1/employees/lookup")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ids\": [1, -5]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(employeeService, times(0)).getEmployees(any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @SuppressWarnings("unchecked")
+    public void exportEmployees() throws Exception {
+        Employee other = new Employee();
+        other.setId(2L);
+        other.setName("Jane Doe");
+        other.setSalary(2000);
+        other.setDepartment("HR");
+        doAnswer(invocation -> {
+            Consumer<Employee> consumer = invocation.getArgument(0);
+            consumer.accept(employee);
+            consumer.accept(other);
+            return null;
+        }).when(employeeService).exportEmployees(any(Consumer.class));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/employees/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"id\":1,\"name\":\"John Doe\",\"salary\":1000,\"department\":\"IT\",\"version\":3}\n"
+                                + "{\"id\":2,\"name\":\"Jane Doe\",\"salary\":2000,\"department\":\"HR\",\"version\":null}\n"));
+
+        verify(employeeService, times(1)).exportEmployees(any(Consumer.class));
     }
 
     @Test
@@ -68,9 +243,90 @@ public class EmployeeControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.name", is("John Doe")));
+                .andExpect(jsonPath("$.name", is("John Doe")))
+                .andExpect(jsonPath("$.version", is(3)))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Sun, 13 Sep 2020 12:26:40 GMT"));
+
+        verify(employeeService, times(1)).getEmployee(1L);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployee_cachedJson() throws Exception {
+        when(employeeService.getEmployee(1L)).thenReturn(employee);
+
+        String first = mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(first))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().string(HttpHeaders.LAST_MODIFIED, "Sun, 13 Sep 2020 12:26:40 GMT"));
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified());
 
         verify(employeeService, times(1)).getEmployee(1L);
+        verify(employeeService, times(0)).getEmployeeVersion(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployee_writeDuringReadIsNotCached() throws Exception {
+        when(employeeService.getEmployee(1L)).thenAnswer(invocation -> {
+            employeeJsonCache.invalidate(1L);
+            return employee;
+        });
+
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("John Doe")));
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L))
+                .andExpect(status().isOk());
+
+        verify(employeeService, times(2)).getEmployee(1L);
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployee_notModified() throws Exception {
+        when(employeeService.getEmployeeVersion(1L)).thenReturn(version(3L));
+
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+
+        verify(employeeService, times(0)).getEmployee(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployee_modified() throws Exception {
+        when(employeeService.getEmployeeVersion(1L)).thenReturn(version(3L));
+        when(employeeService.getEmployee(1L)).thenReturn(employee);
+
+        mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("John Doe")));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void getEmployees_notModified() throws Exception {
+        when(employeeService.getCollectionVersion()).thenReturn("1-5");
+
+        mockMvc.perform(get("/api/v1/employees")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"1-5\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-5\""));
+
+        verify(employeeService, times(0)).retrieveEmployees(any(), any(), anyInt());
     }
 
 
@@ -110,53 +366,153 @@ public class EmployeeControllerTest {
     @Test
     @WithMockUser(username = "user", authorities = {"ROLE_USER"})
     public void deleteEmployee() throws Exception {
-        when(employeeService.getEmployee(1L)).thenReturn(employee);
-
         mockMvc.perform(delete("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
         verify(employeeService, times(1)).deleteEmployee(1L);
+        verify(employeeService, times(0)).getEmployee(anyLong());
     }
 
 
     @Test
     @WithMockUser(username = "user", authorities = {"ROLE_USER"})
     public void deleteEmployee_notFound() throws Exception {
-        when(employeeService.getEmployee(1L)).thenThrow(new EmployeeNotFoundException("Employee not found"));
+        doThrow(new EmployeeNotFoundException("Employee not found"))
+                .when(employeeService).deleteEmployee(1L);
 
         mockMvc.perform(delete("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
 
-        verify(employeeService, times(1)).getEmployee(1L);
+        verify(employeeService, times(1)).deleteEmployee(1L);
     }
 
     @Test
     @WithMockUser(username = "user", authorities = {"ROLE_USER"})
     public void updateEmployee() throws Exception {
-        when(employeeService.getEmployee(1L)).thenReturn(employee);
+        when(employeeService.updateEmployee(any(Employee.class), isNull())).thenAnswer(invocation -> invocation.getArgument(0));
 
         mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", is("Jane Doe")));
+
+        verify(employeeService, times(1)).updateEmployee(any(Employee.class), any());
+        verify(employeeService, times(0)).getEmployee(anyLong());
+    }
 
-        verify(employeeService, times(1)).updateEmployee(any(Employee.class));
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void updateEmployee_ifMatch() throws Exception {
+        when(employeeService.updateEmployee(any(Employee.class), eq(3L))).thenAnswer(invocation -> {
+            Employee updated = invocation.getArgument(0);
+            updated.setVersion(4L);
+            return updated;
+        });
+
+        mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void updateEmployee_preconditionFailed() throws Exception {
+        doThrow(new EmployeeVersionMismatchException("Employee with id 1 is at version 4, not 3"))
+                .when(employeeService).updateEmployee(any(Employee.class), eq(3L));
+
+        mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void updateEmployee_weakIfMatch() throws Exception {
+        mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(employeeService, times(0)).updateEmployee(any(Employee.class), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @SuppressWarnings("unchecked")
+    public void patchEmployee() throws Exception {
+        when(employeeService.patchEmployee(eq(1L), any(Map.class), isNull())).thenReturn(4L);
+
+        mockMvc.perform(patch("/api/v1/employees/{employeeId}", 1L)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"id\": 1, \"salary\": 2500 }"))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+        verify(employeeService, times(1)).patchEmployee(1L, Collections.singletonMap("salary", 2500), null);
+        verify(employeeService, times(0)).getEmployee(anyLong());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void patchEmployee_ifMatch() throws Exception {
+        doThrow(new EmployeeVersionMismatchException("Employee with id 1 is at version 4, not 3"))
+                .when(employeeService).patchEmployee(1L, Collections.singletonMap("name", "Jane Doe"), 3L);
+
+        mockMvc.perform(patch("/api/v1/employees/{employeeId}", 1L)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"name\": \"Jane Doe\" }"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    public void patchEmployee_invalidFields() throws Exception {
+        for (String patch : Arrays.asList("[]", "{}", "{ \"salary\": -5 }", "{ \"salary\": \"abc\" }",
+                "{ \"name\": null }", "{ \"id\": 2 }", "{ \"version\": 7 }")) {
+            mockMvc.perform(patch("/api/v1/employees/{employeeId}", 1L)
+                            .contentType("application/merge-patch+json")
+                            .content(patch))
+                    .andExpect(status().isBadRequest());
+        }
+
+        verify(employeeService, times(0)).patchEmployee(anyLong(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = {"ROLE_USER"})
+    @SuppressWarnings("unchecked")
+    public void patchEmployee_notFound() throws Exception {
+        doThrow(new EmployeeNotFoundException("Employee not found"))
+                .when(employeeService).patchEmployee(eq(1L), any(Map.class), isNull());
+
+        mockMvc.perform(patch("/api/v1/employees/{employeeId}", 1L)
+                        .contentType("application/merge-patch+json")
+                        .content("{ \"department\": \"HR\" }"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
     @WithMockUser(username = "user", authorities = {"ROLE_USER"})
     public void updateEmployee_notFound() throws Exception {
         doThrow(new EmployeeNotFoundException("Employee not found"))
-                .when(employeeService).updateEmployee(any(Employee.class));
+                .when(employeeService).updateEmployee(any(Employee.class), isNull());
 
         mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
                 .andExpect(status().isNotFound());
 
-        verify(employeeService, times(1)).updateEmployee(any(Employee.class));
+        verify(employeeService, times(1)).updateEmployee(any(Employee.class), any());
     }
 
     @Test
@@ -180,7 +536,7 @@ public class EmployeeControllerTest {
                         .content("{ \"id\": 1, \"salary\": 2000, \"department\": \"HR\" }"))
                 .andExpect(status().isBadRequest());
 
-        verify(employeeService, times(0)).updateEmployee(any(Employee.class));
+        verify(employeeService, times(0)).updateEmployee(any(Employee.class), any());
     }
 
     @Test
@@ -196,7 +552,7 @@ public class EmployeeControllerTest {
     public void getEmployees_unauthenticated() throws Exception {
         mockMvc.perform(get("/api/v1/employees")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isForbidden());
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
@@ -204,14 +560,14 @@ public class EmployeeControllerTest {
         mockMvc.perform(post("/api/v1/employees")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"name\": \"John Doe\", \"salary\": 1000, \"department\": \"IT\" }"))
-                .andExpect(status().isForbidden());
+                .andExpect(status().isUnauthorized());
     }
 
     @Test
     public void getEmployee_unauthenticated() throws Exception {
         mockMvc.perform(get("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isForbidden());
+                .andExpect(status().isUnauthorized());
 
         verify(employeeService, times(0)).getEmployee(anyLong());
     }
@@ -221,17 +577,31 @@ public class EmployeeControllerTest {
         mockMvc.perform(put("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{ \"id\": 1, \"name\": \"Jane Doe\", \"salary\": 2000, \"department\": \"HR\" }"))
-                .andExpect(status().isForbidden());
+                .andExpect(status().isUnauthorized());
 
-        verify(employeeService, times(0)).updateEmployee(any(Employee.class));
+        verify(employeeService, times(0)).updateEmployee(any(Employee.class), any());
     }
 
     @Test
     public void deleteEmployee_unauthenticated() throws Exception {
         mockMvc.perform(delete("/api/v1/employees/{employeeId}", 1L)
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isForbidden());
+                .andExpect(status().isUnauthorized());
 
         verify(employeeService, times(0)).deleteEmployee(anyLong());
     }
-}
\ No newline at end of file
+
+    private static EmployeeVersion version(Long version) {
+        return new EmployeeVersion() {
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Instant getLastModified() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package jp.co.axa.apidemo.unit.filters;
+
+import jp.co.axa.apidemo.filters.RateLimitFilter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitFilterTest {
+
+    private final RateLimitFilter filter = new RateLimitFilter(true, 1, 2, 1, 1, 100);
+
+    @AfterEach
+    public void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testLimitedPerPrincipal() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user", null, Collections.emptyList()));
+
+        assertEquals(200, perform("/api/v1/employees", "10.0.0.1").getStatus());
+        assertEquals(200, perform("/api/v1/employees", "10.0.0.2").getStatus());
+        MockHttpServletResponse rejected = perform("/api/v1/employees", "10.0.0.3");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(rejected.getErrorMessage());
+        assertEquals("{\"status\":429,\"error\":\"Too Many Requests\",\"message\":\"Too many requests\"}",
+                rejected.getContentAsString());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("other", null, Collections.emptyList()));
+        assertEquals(200, perform("/api/v1/employees", "10.0.0.3").getStatus());
+    }
+
+    @Test
+    public void testLoginsLimitedPerAddress() throws Exception {
+        assertEquals(200, perform("/authenticate", "10.0.0.1").getStatus());
+        assertEquals(429, perform("/authenticate", "10.0.0.1").getStatus());
+        assertEquals(200, perform("/authenticate", "10.0.0.2").getStatus());
+        assertEquals(200, perform("/api/v1/employees", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        RateLimitFilter disabled = new RateLimitFilter(false, 1, 1, 1, 1, 100);
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            disabled.doFilter(request("/authenticate", "10.0.0.1"), response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+    }
+
+    private MockHttpServletResponse perform(String uri, String remoteAddress) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(uri, remoteAddress), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri, String remoteAddress) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setRemoteAddr(remoteAddress);
+        return request;
+    }
+}
@@ -0,0 +1,83 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.exceptions.AuthenticationQueueFullException;
+import jp.co.axa.apidemo.services.AuthenticationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AuthenticationServiceTest {
+
+    @Mock
+    AuthenticationManager authenticationManager;
+
+    AuthenticationService authenticationService;
+
+    private final UserDetails user = new User("user", "password", Collections.emptyList());
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        authenticationService = new AuthenticationService(authenticationManager, 1, 1);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        authenticationService.shutdown();
+    }
+
+    @Test
+    public void testAuthenticate_returnsPrincipal() throws Exception {
+        when(authenticationManager.authenticate(any()))
+                .thenReturn(new UsernamePasswordAuthenticationToken(user, null, Collections.emptyList()));
+
+        assertSame(user, authenticationService.authenticate("user", "password").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAuthenticate_badCredentials() {
+        when(authenticationManager.authenticate(any())).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> authenticationService.authenticate("user", "wrong").get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof BadCredentialsException);
+    }
+
+    @Test
+    public void testAuthenticate_rejectedWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(authenticationManager.authenticate(any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return new UsernamePasswordAuthenticationToken(user, null, Collections.emptyList());
+        });
+
+        CompletableFuture<UserDetails> running = authenticationService.authenticate("user", "password");
+        started.await(5, TimeUnit.SECONDS);
+        CompletableFuture<UserDetails> queued = authenticationService.authenticate("user", "password");
+        assertThrows(AuthenticationQueueFullException.class, () -> authenticationService.authenticate("user", "password"));
+
+        release.countDown();
+        assertSame(user, running.get(5, TimeUnit.SECONDS));
+        assertSame(user, queued.get(5, TimeUnit.SECONDS));
+        verify(authenticationManager, times(2)).authenticate(any());
+    }
+}
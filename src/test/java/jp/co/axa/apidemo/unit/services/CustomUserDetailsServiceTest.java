@@ -0,0 +1,79 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.dto.UserDetailsSnapshot;
+import jp.co.axa.apidemo.entities.User;
+import jp.co.axa.apidemo.repositories.UserRepository;
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CustomUserDetailsServiceTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    CustomUserDetailsService userDetailsService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        userDetailsService = new CustomUserDetailsService(userRepository, 300);
+    }
+
+    @Test
+    public void testLoadUserByUsername_cachedSnapshot() {
+        User user = user("user");
+        when(userRepository.findByUsername("user")).thenReturn(user);
+
+        UserDetails first = userDetailsService.loadUserByUsername("user");
+        UserDetails second = userDetailsService.loadUserByUsername("user");
+
+        assertTrue(first instanceof UserDetailsSnapshot);
+        assertEquals("user", first.getUsername());
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUsername("user");
+    }
+
+    @Test
+    public void testLoadUserByUsername_unknownUserNotCached() {
+        User user = user("user");
+        when(userRepository.findByUsername("user")).thenReturn(null, user);
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("user"));
+        assertEquals("user", userDetailsService.loadUserByUsername("user").getUsername());
+    }
+
+    @Test
+    public void testInvalidate() {
+        User userEntity = user("user");
+        User otherEntity = user("other");
+        when(userRepository.findByUsername("user")).thenReturn(userEntity);
+        when(userRepository.findByUsername("other")).thenReturn(otherEntity);
+        UserDetails user = userDetailsService.loadUserByUsername("user");
+        UserDetails other = userDetailsService.loadUserByUsername("other");
+
+        userDetailsService.invalidate("user");
+        assertNotSame(user, userDetailsService.loadUserByUsername("user"));
+        assertSame(other, userDetailsService.loadUserByUsername("other"));
+
+        userDetailsService.invalidateAll();
+        assertNotSame(other, userDetailsService.loadUserByUsername("other"));
+        verify(userRepository, times(2)).findByUsername("user");
+        verify(userRepository, times(2)).findByUsername("other");
+    }
+
+    private static User user(String username) {
+        User user = mock(User.class);
+        when(user.getUsername()).thenReturn(username);
+        when(user.getPassword()).thenReturn("password");
+        when(user.isEnabled()).thenReturn(true);
+        return user;
+    }
+}
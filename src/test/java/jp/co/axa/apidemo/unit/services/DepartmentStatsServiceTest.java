@@ -0,0 +1,102 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.dto.DepartmentSalaryCount;
+import jp.co.axa.apidemo.dto.DepartmentStats;
+import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.DepartmentStatsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class DepartmentStatsServiceTest {
+
+    @Mock
+    EmployeeRepository employeeRepository;
+
+    DepartmentStatsService departmentStatsService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        departmentStatsService = new DepartmentStatsService(employeeRepository);
+    }
+
+    @Test
+    public void testRebuild() {
+        when(employeeRepository.countByDepartmentAndSalary()).thenReturn(Arrays.asList(
+                count("IT", 1000, 2), count("IT", 3000, 1), count("HR", 500, 1)));
+        departmentStatsService.rebuild();
+
+        List<DepartmentStats> stats = departmentStatsService.getDepartmentStats();
+        assertEquals(2, stats.size());
+        DepartmentStats it = stats.get(1);
+        assertEquals("IT", it.getDepartment());
+        assertEquals(3, it.getHeadcount());
+        assertEquals(5000, it.getTotalSalary());
+        assertEquals(1000, it.getMinSalary());
+        assertEquals(3000, it.getMaxSalary());
+        assertEquals(5000 / 3.0, it.getAverageSalary(), 1e-9);
+    }
+
+    @Test
+    public void testRecordChanges() {
+        departmentStatsService.recordAdded("IT", 1000);
+        departmentStatsService.recordAdded("IT", 3000);
+        departmentStatsService.recordRemoved("IT", 3000);
+        departmentStatsService.recordAdded("IT", 2000);
+
+        DepartmentStats it = departmentStatsService.getDepartmentStats().get(0);
+        assertEquals(2, it.getHeadcount());
+        assertEquals(3000, it.getTotalSalary());
+        assertEquals(1000, it.getMinSalary());
+        assertEquals(2000, it.getMaxSalary());
+    }
+
+    @Test
+    public void testRecordChanges_lastEmployeeRemoved() {
+        departmentStatsService.recordAdded("IT", 1000);
+        departmentStatsService.recordRemoved("IT", 1000);
+        assertTrue(departmentStatsService.getDepartmentStats().isEmpty());
+    }
+
+    @Test
+    public void testRecordChanges_removalBeforeAddition() {
+        departmentStatsService.recordAdded("IT", 1000);
+        departmentStatsService.recordRemoved("IT", 2000);
+        departmentStatsService.recordAdded("IT", 3000);
+        departmentStatsService.recordRemoved("IT", 1000);
+        departmentStatsService.recordAdded("IT", 2000);
+
+        DepartmentStats it = departmentStatsService.getDepartmentStats().get(0);
+        assertEquals(1, it.getHeadcount());
+        assertEquals(3000, it.getMinSalary());
+        assertEquals(3000, it.getMaxSalary());
+    }
+
+    private static DepartmentSalaryCount count(String department, Integer salary, long headcount) {
+        return new DepartmentSalaryCount() {
+            @Override
+            public String getDepartment() {
+                return department;
+            }
+
+            @Override
+            public Integer getSalary() {
+                return salary;
+            }
+
+            @Override
+            public long getHeadcount() {
+                return headcount;
+            }
+        };
+    }
+}
@@ -0,0 +1,133 @@
+package jp.co.axa.apidemo.unit.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jp.co.axa.apidemo.dto.EmployeeBatchResponse;
+import jp.co.axa.apidemo.dto.EmployeeBatchResult;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeBatchService;
+import jp.co.axa.apidemo.services.EmployeeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.validation.Validation;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class EmployeeBatchServiceTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    EmployeeService employeeService;
+
+    EmployeeBatchService employeeBatchService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        employeeBatchService = new EmployeeBatchService(employeeService,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2, 5);
+        AtomicLong ids = new AtomicLong();
+        when(employeeService.saveEmployees(anyList())).thenAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            employees.forEach(employee -> employee.setId(ids.incrementAndGet()));
+            return employees;
+        });
+    }
+
+    @Test
+    public void testSaveEmployees_chunked() throws IOException {
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read("["
+                + employee("Alice") + "," + employee("Bob") + "," + employee("Carol") + "]"));
+
+        assertEquals(3, response.getCreated());
+        assertEquals(0, response.getFailed());
+        assertNull(response.getError());
+        assertEquals(Long.valueOf(3L), response.getResults().get(2).getId());
+        verify(employeeService, times(2)).saveEmployees(anyList());
+    }
+
+    @Test
+    public void testSaveEmployees_invalidItems() throws IOException {
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read("["
+                + employee("Alice") + ","
+                + "{ \"name\": \"Bob\", \"salary\": \"lots\", \"department\": \"IT\" },"
+                + "{ \"name\": \"C4rol\", \"salary\": 1000, \"department\": \"IT\" },"
+                + employee("Dave") + "]"));
+
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getFailed());
+        List<EmployeeBatchResult> results = response.getResults();
+        assertEquals(EmployeeBatchResult.Status.CREATED, results.get(0).getStatus());
+        assertEquals(EmployeeBatchResult.Status.INVALID, results.get(1).getStatus());
+        assertEquals(EmployeeBatchResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals("name: Name can only contain alphabetic characters and spaces", results.get(2).getErrors().get(0));
+        assertEquals(EmployeeBatchResult.Status.CREATED, results.get(3).getStatus());
+    }
+
+    @Test
+    public void testSaveEmployees_failedChunk() throws IOException {
+        reset(employeeService);
+        when(employeeService.saveEmployees(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read("[" + employee("Alice") + "]"));
+
+        assertEquals(0, response.getCreated());
+        assertEquals(1, response.getFailed());
+        assertEquals(EmployeeBatchResult.Status.FAILED, response.getResults().get(0).getStatus());
+    }
+
+    @Test
+    public void testSaveEmployees_tooManyItems() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 6; i++) {
+            json.append(i == 0 ? "" : ",").append(employee("Alice"));
+        }
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read(json.append("]").toString()));
+
+        assertEquals(5, response.getCreated());
+        assertNotNull(response.getError());
+    }
+
+    @Test
+    public void testSaveEmployees_malformedJson() throws IOException {
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read("[" + employee("Alice") + ", {"));
+
+        assertEquals(1, response.getCreated());
+        assertNotNull(response.getError());
+    }
+
+    @Test
+    public void testSaveEmployees_cancelled() throws IOException {
+        AtomicInteger checks = new AtomicInteger();
+        EmployeeBatchResponse response = employeeBatchService.saveEmployees(read("["
+                + employee("Alice") + "," + employee("Bob") + "," + employee("Carol") + "]"),
+                () -> checks.incrementAndGet() > 2);
+
+        assertEquals(2, response.getCreated());
+        assertEquals(2, response.getResults().size());
+        assertNotNull(response.getError());
+        verify(employeeService, times(1)).saveEmployees(anyList());
+    }
+
+    private static String employee(String name) {
+        return "{ \"name\": \"" + name + "\", \"salary\": 1000, \"department\": \"IT\" }";
+    }
+
+    private static MappingIterator<Employee> read(String json) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(json);
+        parser.nextToken();
+        parser.clearCurrentToken();
+        return objectMapper.readerFor(Employee.class).readValues(parser);
+    }
+}
@@ -0,0 +1,60 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.config.CacheConfig;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeCacheTest {
+
+    EmployeeCache employeeCache;
+
+    @BeforeEach
+    public void init() {
+        employeeCache = new EmployeeCache(new ConcurrentMapCacheManager(CacheConfig.EMPLOYEE_CACHE));
+    }
+
+    @Test
+    public void testPutAndEvict() {
+        Employee employee = employeeWithId(1L);
+        employeeCache.put(employeeCache.stamp(1L), employee);
+        assertSame(employee, employeeCache.get(1L));
+        employeeCache.evict(1L);
+        assertNull(employeeCache.get(1L));
+    }
+
+    @Test
+    public void testPut_rejectedAfterConcurrentWrite() {
+        long stamp = employeeCache.stamp(1L);
+        employeeCache.evict(1L);
+        employeeCache.put(stamp, employeeWithId(1L));
+        assertNull(employeeCache.get(1L));
+
+        employeeCache.put(employeeCache.stamp(1L), employeeWithId(1L));
+        assertNotNull(employeeCache.get(1L));
+    }
+
+    @Test
+    public void testPut_caffeineCache() {
+        employeeCache = new EmployeeCache(new CaffeineCacheManager(CacheConfig.EMPLOYEE_CACHE));
+        long stamp = employeeCache.stamp(1L);
+        employeeCache.evict(1L);
+        employeeCache.put(stamp, employeeWithId(1L));
+        assertNull(employeeCache.get(1L));
+
+        Employee employee = employeeWithId(1L);
+        employeeCache.put(employeeCache.stamp(1L), employee);
+        assertSame(employee, employeeCache.get(1L));
+    }
+
+    private static Employee employeeWithId(Long id) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        return employee;
+    }
+}
@@ -0,0 +1,188 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.dto.EmployeeImportStatus;
+import jp.co.axa.apidemo.entities.Employee;
+import jp.co.axa.apidemo.services.EmployeeImportService;
+import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.exceptions.ImportQueueFullException;
+import jp.co.axa.apidemo.exceptions.UploadTooLargeException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+public class EmployeeImportServiceTest {
+
+    @Mock
+    EmployeeService employeeService;
+
+    EmployeeImportService employeeImportService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        employeeImportService = new EmployeeImportService(employeeService,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2, 10, 1, 1, 1024);
+        AtomicLong ids = new AtomicLong();
+        when(employeeService.saveEmployees(anyList())).thenAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            employees.forEach(employee -> employee.setId(ids.incrementAndGet()));
+            return employees;
+        });
+    }
+
+    @AfterEach
+    public void shutdown() {
+        employeeImportService.shutdown();
+    }
+
+    @Test
+    public void testImportEmployees_chunked() throws Exception {
+        EmployeeImportStatus status = awaitFinished(employeeImportService.importEmployees(csv("department,name,salary\n"
+                + "IT,Alice,1000\n"
+                + "HR, Bob ,2000\n"
+                + "IT,Carol,3000\n")));
+
+        assertEquals(EmployeeImportStatus.State.COMPLETED, status.getState());
+        assertEquals(3, status.getRowsRead());
+        assertEquals(3, status.getRowsImported());
+        assertEquals(0, status.getRowsInvalid());
+        assertNotNull(status.getFinishedAt());
+        verify(employeeService, times(2)).saveEmployees(anyList());
+        assertEquals(status.getRowsImported(), employeeImportService.getStatus(status.getJobId()).getRowsImported());
+    }
+
+    @Test
+    public void testImportEmployees_invalidRows() throws Exception {
+        EmployeeImportStatus status = awaitFinished(employeeImportService.importEmployees(csv("id,name,salary,department\n"
+                + "7,Alice,1000,IT\n"
+                + ",Bob,lots,IT\n"
+                + ",C4rol,1000,IT\n"
+                + ",Dave,1000,IT,extra\n"
+                + ",Erin,1000,HR\n")));
+
+        assertEquals(EmployeeImportStatus.State.COMPLETED, status.getState());
+        assertEquals(5, status.getRowsRead());
+        assertEquals(2, status.getRowsImported());
+        assertEquals(3, status.getRowsInvalid());
+        assertEquals("Row 3: name: Name can only contain alphabetic characters and spaces", status.getErrors().get(1));
+        assertTrue(status.getErrors().get(0).startsWith("Row 2: "));
+        assertTrue(status.getErrors().get(2).startsWith("Row 4: "));
+    }
+
+    @Test
+    public void testImportEmployees_failedChunk() throws Exception {
+        reset(employeeService);
+        when(employeeService.saveEmployees(anyList())).thenThrow(new IllegalStateException("database down"));
+
+        EmployeeImportStatus status = awaitFinished(employeeImportService.importEmployees(csv("name,salary,department\n"
+                + "Alice,1000,IT\n"
+                + "Bob,2000,HR\n"
+                + "Carol,3000,IT\n")));
+
+        assertEquals(0, status.getRowsImported());
+        assertEquals(3, status.getRowsFailed());
+        assertEquals(2, status.getErrors().size());
+    }
+
+    @Test
+    public void testImportEmployees_invalidHeader() {
+        assertThrows(IllegalArgumentException.class,
+                () -> employeeImportService.importEmployees(csv("name,salary\nAlice,1000\n")));
+        assertThrows(IllegalArgumentException.class,
+                () -> employeeImportService.importEmployees(csv("name,salary,department,age\nAlice,1000,IT,30\n")));
+        assertTrue(employeeImportService.getStatuses().isEmpty());
+        verifyZeroInteractions(employeeService);
+    }
+
+    @Test
+    public void testImportEmployees_queueFull() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        reset(employeeService);
+        when(employeeService.saveEmployees(anyList())).thenAnswer(invocation -> {
+            saving.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        String file = "name,salary,department\nAlice,1000,IT\n";
+
+        EmployeeImportStatus running = employeeImportService.importEmployees(csv(file));
+        assertEquals(EmployeeImportStatus.State.RUNNING, running.getState());
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        EmployeeImportStatus queued = employeeImportService.importEmployees(csv(file));
+        assertThrows(ImportQueueFullException.class, () -> employeeImportService.importEmployees(csv(file)));
+        assertEquals(2, employeeImportService.getStatuses().size());
+
+        release.countDown();
+        assertEquals(1, awaitFinished(running).getRowsImported());
+        assertEquals(1, awaitFinished(queued).getRowsImported());
+    }
+
+    @Test
+    public void testImportEmployees_tooLarge() {
+        StringBuilder file = new StringBuilder("name,salary,department\n");
+        while (file.length() <= 1024) {
+            file.append("Alice,1000,IT\n");
+        }
+
+        assertThrows(UploadTooLargeException.class, () -> employeeImportService.importEmployees(csv(file.toString())));
+        assertTrue(employeeImportService.getStatuses().isEmpty());
+        verifyZeroInteractions(employeeService);
+    }
+
+    @Test
+    public void testImportEmployees_runningJobIsNotEvicted() throws Exception {
+        employeeImportService.shutdown();
+        employeeImportService = new EmployeeImportService(employeeService,
+                Validation.buildDefaultValidatorFactory().getValidator(), 2, 1, 2, 1, 1024);
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        reset(employeeService);
+        when(employeeService.saveEmployees(anyList())).thenAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            if (employees.get(0).getName().equals("Alice")) {
+                saving.countDown();
+                release.await();
+            }
+            return employees;
+        });
+
+        EmployeeImportStatus running = employeeImportService.importEmployees(csv("name,salary,department\nAlice,1000,IT\n"));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 3; i++) {
+            EmployeeImportStatus finished = awaitFinished(employeeImportService.importEmployees(csv("name,salary,department\nBob,1000,IT\n")));
+            assertEquals(EmployeeImportStatus.State.COMPLETED, finished.getState());
+        }
+
+        assertEquals(EmployeeImportStatus.State.RUNNING, employeeImportService.getStatus(running.getJobId()).getState());
+        release.countDown();
+        assertEquals(1, awaitFinished(running).getRowsImported());
+    }
+
+    private EmployeeImportStatus awaitFinished(EmployeeImportStatus status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (status.getState() == EmployeeImportStatus.State.RUNNING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = employeeImportService.getStatus(status.getJobId());
+        }
+        return status;
+    }
+
+    private static ByteArrayInputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
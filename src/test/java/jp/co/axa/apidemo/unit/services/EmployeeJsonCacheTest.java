@@ -0,0 +1,70 @@
+package jp.co.axa.apidemo.unit.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeJsonCacheTest {
+
+    SimpleMeterRegistry registry;
+
+    EmployeeJsonCache employeeJsonCache;
+
+    @BeforeEach
+    public void init() {
+        registry = new SimpleMeterRegistry();
+        employeeJsonCache = new EmployeeJsonCache(registry, 1024);
+    }
+
+    @Test
+    public void testPutAndGet() {
+        byte[] json = "{\"id\":1}".getBytes();
+        Instant lastModified = Instant.ofEpochSecond(1_600_000_000L);
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, 3L, lastModified, json);
+
+        EmployeeJsonCache.CachedEmployee cached = employeeJsonCache.get(1L);
+        assertSame(json, cached.getJson());
+        assertEquals(3L, cached.getVersion());
+        assertEquals(lastModified, cached.getLastModified());
+        assertNull(employeeJsonCache.get(2L));
+
+        assertEquals(json.length, registry.get("employees.json-cache.bytes.saved").counter().count());
+        assertEquals(0.5, registry.get("employees.json-cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    public void testInvalidate() {
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, 3L, null, new byte[8]);
+        employeeJsonCache.invalidate(1L);
+        assertNull(employeeJsonCache.get(1L));
+    }
+
+    @Test
+    public void testPut_rejectedAfterConcurrentWrite() {
+        long stamp = employeeJsonCache.stamp(1L);
+        employeeJsonCache.invalidate(1L);
+        employeeJsonCache.put(stamp, 1L, 3L, null, new byte[8]);
+        assertNull(employeeJsonCache.get(1L));
+
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, 4L, null, new byte[8]);
+        assertEquals(4L, employeeJsonCache.get(1L).getVersion());
+    }
+
+    @Test
+    public void testPut_keepsNewerVersion() {
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, 4L, null, new byte[8]);
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, 3L, null, new byte[8]);
+        assertEquals(4L, employeeJsonCache.get(1L).getVersion());
+    }
+
+    @Test
+    public void testPut_withoutVersion() {
+        employeeJsonCache.put(employeeJsonCache.stamp(1L), 1L, null, null, new byte[8]);
+        assertNull(employeeJsonCache.get(1L));
+    }
+}
@@ -1,15 +1,36 @@
 package jp.co.axa.apidemo.unit.services;
 
+import jp.co.axa.apidemo.dto.EmployeeFilter;
+import jp.co.axa.apidemo.dto.EmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.EmployeePage;
+import jp.co.axa.apidemo.dto.EmployeeState;
+import jp.co.axa.apidemo.dto.EmployeeVersion;
+import jp.co.axa.apidemo.dto.SparseEmployeeLookupResponse;
+import jp.co.axa.apidemo.dto.SparseEmployeePage;
 import jp.co.axa.apidemo.entities.Employee;
 import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.EmployeeVersionMismatchException;
 import jp.co.axa.apidemo.repositories.EmployeeRepository;
+import jp.co.axa.apidemo.services.DepartmentStatsService;
+import jp.co.axa.apidemo.services.EmployeeCache;
+import jp.co.axa.apidemo.services.EmployeeJsonCache;
 import jp.co.axa.apidemo.services.EmployeeServiceImpl;
+import jp.co.axa.apidemo.util.EmployeeCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -25,6 +46,18 @@ public class EmployeeServiceImplTest {
     @Mock
     EmployeeRepository employeeRepository;
 
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    DepartmentStatsService departmentStatsService;
+
+    @Mock
+    EmployeeCache employeeCache;
+
+    @Mock
+    EmployeeJsonCache employeeJsonCache;
+
     @BeforeEach
     public void init() {
         MockitoAnnotations.initMocks(this);
@@ -32,9 +65,55 @@ public class EmployeeServiceImplTest {
 
     @Test
     public void testRetrieveEmployees() {
-        when(employeeRepository.findAll()).thenReturn(Arrays.asList(new Employee(), new Employee()));
-        assert(employeeService.retrieveEmployees().size() == 2);
-        verify(employeeRepository, times(1)).findAll();
+        when(employeeRepository.findPage(new EmployeeFilter(), 0L, 3))
+                .thenReturn(Arrays.asList(employeeWithId(1L), employeeWithId(2L)));
+        EmployeePage page = employeeService.retrieveEmployees(new EmployeeFilter(), null, 2);
+        assert(page.getItems().size() == 2);
+        assert(page.getNextCursor() == null);
+        verify(employeeRepository, times(1)).findPage(new EmployeeFilter(), 0L, 3);
+    }
+
+    @Test
+    public void testRetrieveEmployees_hasNextPage() {
+        when(employeeRepository.findPage(new EmployeeFilter(), 5L, 3))
+                .thenReturn(Arrays.asList(employeeWithId(6L), employeeWithId(7L), employeeWithId(8L)));
+        EmployeePage page = employeeService.retrieveEmployees(new EmployeeFilter(), 5L, 2);
+        assert(page.getItems().size() == 2);
+        assert(page.getNextCursor().equals(EmployeeCursor.encode(7L)));
+    }
+
+    @Test
+    public void testRetrieveEmployees_limitIsCapped() {
+        int max = EmployeeServiceImpl.MAX_PAGE_SIZE;
+        employeeService.retrieveEmployees(new EmployeeFilter(), null, max * 10);
+        verify(employeeRepository, times(1)).findPage(new EmployeeFilter(), 0L, max + 1);
+    }
+
+    @Test
+    public void testRetrieveEmployees_passesFilter() {
+        EmployeeFilter filter = new EmployeeFilter("IT", 1000, 5000, "Jo");
+        when(employeeRepository.findPage(filter, 0L, 3)).thenReturn(Arrays.asList(employeeWithId(1L)));
+        EmployeePage page = employeeService.retrieveEmployees(filter, null, 2);
+        assert(page.getItems().size() == 1);
+        verify(employeeRepository, times(1)).findPage(filter, 0L, 3);
+    }
+
+    private static Employee employeeWithId(Long id) {
+        Employee employee = new Employee();
+        employee.setId(id);
+        return employee;
+    }
+
+    @Test
+    public void testExportEmployees() {
+        Employee first = employeeWithId(1L);
+        Employee second = employeeWithId(2L);
+        when(employeeRepository.streamAll()).thenReturn(Stream.of(first, second));
+        List<Employee> exported = new ArrayList<>();
+        employeeService.exportEmployees(exported::add);
+        assert(exported.equals(Arrays.asList(first, second)));
+        verify(entityManager, times(1)).detach(first);
+        verify(entityManager, times(1)).detach(second);
     }
 
     @Test
@@ -42,8 +121,18 @@ public class EmployeeServiceImplTest {
         Employee employee = new Employee();
         employee.setId(1L);
         when(employeeRepository.findById(1L)).thenReturn(Optional.of(employee));
+        when(employeeCache.stamp(1L)).thenReturn(7L);
         assert(employeeService.getEmployee(1L).getId().equals(1L));
         verify(employeeRepository, times(1)).findById(1L);
+        verify(employeeCache, times(1)).put(7L, employee);
+    }
+
+    @Test
+    public void testGetEmployee_cached() {
+        Employee employee = employeeWithId(1L);
+        when(employeeCache.get(1L)).thenReturn(employee);
+        assert(employeeService.getEmployee(1L) == employee);
+        verify(employeeRepository, never()).findById(any());
     }
 
     @Test
@@ -57,51 +146,262 @@ public class EmployeeServiceImplTest {
         verify(employeeRepository, times(1)).findById(1L);
     }
 
+    @Test
+    public void testGetEmployees() {
+        when(employeeRepository.findAllById(Arrays.asList(3L, 1L, 2L)))
+                .thenReturn(Arrays.asList(employeeWithId(1L), employeeWithId(3L)));
+        EmployeeLookupResponse response = employeeService.getEmployees(Arrays.asList(3L, 1L, 3L, 2L));
+        assert(response.getItems().size() == 2);
+        assert(response.getItems().get(0).getId() == 3L);
+        assert(response.getItems().get(1).getId() == 1L);
+        assert(response.getMissingIds().equals(Arrays.asList(2L)));
+        verify(employeeRepository, times(1)).findAllById(anyIterable());
+    }
+
+    @Test
+    public void testRetrieveEmployeeFields_hasNextPage() {
+        List<String> fields = Arrays.asList("id", "name", "version");
+        when(employeeRepository.findPageFields(new EmployeeFilter(), 0L, 3, fields))
+                .thenReturn(Arrays.asList(fieldsWithId(1L), fieldsWithId(2L), fieldsWithId(3L)));
+        SparseEmployeePage page = employeeService.retrieveEmployeeFields(new EmployeeFilter(), null, 2, fields);
+        assert(page.getItems().size() == 2);
+        assert(page.getNextCursor().equals(EmployeeCursor.encode(2L)));
+        verify(employeeRepository, never()).findPage(any(), anyLong(), anyInt());
+    }
+
+    @Test
+    public void testGetEmployeeFields_notFound() {
+        List<String> fields = Arrays.asList("id", "name", "version");
+        when(employeeRepository.findFieldsByIds(Collections.singletonList(1L), fields)).thenReturn(Collections.emptyList());
+        assertThrows(EmployeeNotFoundException.class, () -> employeeService.getEmployeeFields(1L, fields));
+        verify(employeeRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testLookupEmployeeFields() {
+        List<String> fields = Arrays.asList("id", "version");
+        when(employeeRepository.findFieldsByIds(Arrays.asList(3L, 1L, 2L), fields))
+                .thenReturn(Arrays.asList(fieldsWithId(1L), fieldsWithId(3L)));
+        SparseEmployeeLookupResponse response = employeeService.lookupEmployeeFields(Arrays.asList(3L, 1L, 3L, 2L), fields);
+        assert(response.getItems().size() == 2);
+        assert(response.getItems().get(0).get("id").equals(3L));
+        assert(response.getItems().get(1).get("id").equals(1L));
+        assert(response.getMissingIds().equals(Arrays.asList(2L)));
+    }
+
+    @Test
+    public void testGetEmployees_chunked() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= EmployeeServiceImpl.IN_CLAUSE_CHUNK_SIZE + 1; id++) {
+            ids.add(id);
+        }
+        EmployeeLookupResponse response = employeeService.getEmployees(ids);
+        assert(response.getMissingIds().size() == ids.size());
+        verify(employeeRepository, times(2)).findAllById(anyIterable());
+    }
+
     @Test
     public void testSaveEmployee() {
         Employee employee = new Employee();
+        employee.setDepartment("IT");
+        employee.setSalary(1000);
+        when(employeeRepository.save(employee)).thenReturn(employee);
         employeeService.saveEmployee(employee);
         verify(employeeRepository, times(1)).save(employee);
+        verify(employeeRepository, times(0)).findStateForUpdateById(anyLong());
+        verify(departmentStatsService, times(1)).recordAdded("IT", 1000);
+    }
+
+    @Test
+    public void testSaveEmployee_existingEmployee() {
+        Employee employee = employeeWithId(1L);
+        employee.setDepartment("IT");
+        employee.setSalary(2000);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("HR", 1000, 3L)));
+        when(employeeRepository.save(employee)).thenReturn(employee);
+        employeeService.saveEmployee(employee);
+        assert(employee.getVersion() == 3L);
+        verify(departmentStatsService, times(1)).recordRemoved("HR", 1000);
+        verify(departmentStatsService, times(1)).recordAdded("IT", 2000);
+    }
+
+    @Test
+    public void testSaveEmployee_unknownIdIsCreated() {
+        Employee employee = employeeWithId(99L);
+        employee.setDepartment("IT");
+        employee.setSalary(2000);
+        when(employeeRepository.findStateForUpdateById(99L)).thenReturn(Optional.empty());
+        when(employeeRepository.save(employee)).thenReturn(employee);
+        employeeService.saveEmployee(employee);
+        assert(employee.getId() == null);
+        assert(employee.getVersion() == null);
+        verify(departmentStatsService, times(0)).recordRemoved(anyString(), anyInt());
+        verify(departmentStatsService, times(1)).recordAdded("IT", 2000);
     }
 
     @Test
     public void testDeleteEmployee() {
-        when(employeeRepository.existsById(1L)).thenReturn(true);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("IT", 1000, 3L)));
+        when(employeeRepository.deleteEmployeeById(1L)).thenReturn(1);
         employeeService.deleteEmployee(1L);
-        verify(employeeRepository, times(1)).deleteById(1L);
+        verify(employeeRepository, times(1)).deleteEmployeeById(1L);
+        verify(employeeRepository, times(0)).existsById(anyLong());
+        verify(departmentStatsService, times(1)).recordRemoved("IT", 1000);
+        verify(employeeCache, times(1)).evict(1L);
+        verify(employeeJsonCache, times(1)).invalidate(1L);
     }
 
     @Test
     public void testDeleteEmployee_notFound() {
-        when(employeeRepository.existsById(1L)).thenReturn(false);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.empty());
         try {
             employeeService.deleteEmployee(1L);
+            assert(false);
         } catch (EmployeeNotFoundException e) {
             assert(e.getMessage().equals("Employee with id 1 was not found"));
         }
-        verify(employeeRepository, times(1)).existsById(1L);
+        verify(employeeRepository, times(0)).deleteEmployeeById(1L);
+        verifyZeroInteractions(departmentStatsService, employeeJsonCache);
     }
 
     @Test
     public void testUpdateEmployee() {
         Employee employee = new Employee();
         employee.setId(1L);
-        when(employeeRepository.existsById(1L)).thenReturn(true);
-        employeeService.updateEmployee(employee);
-        verify(employeeRepository, times(1)).save(employee);
+        employee.setDepartment("IT");
+        employee.setSalary(2000);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("HR", 1000, 3L)));
+        when(employeeRepository.updateEmployee(employee)).thenReturn(1);
+        assert(employeeService.updateEmployee(employee, null) == employee);
+        verify(employeeRepository, times(1)).updateEmployee(employee);
+        verify(employeeRepository, times(0)).save(any(Employee.class));
+        verify(departmentStatsService, times(1)).recordRemoved("HR", 1000);
+        verify(departmentStatsService, times(1)).recordAdded("IT", 2000);
+        assert(employee.getVersion() == 4L);
+        assert(employee.getLastModified() != null);
+        verify(employeeCache, times(1)).evict(1L);
+        verify(employeeJsonCache, times(1)).invalidate(1L);
+    }
+
+    @Test
+    public void testUpdateEmployee_expectedVersion() {
+        Employee employee = employeeWithId(1L);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("HR", 1000, 3L)));
+        when(employeeRepository.updateEmployee(employee)).thenReturn(1);
+        employeeService.updateEmployee(employee, 3L);
+        verify(employeeRepository, times(1)).updateEmployee(employee);
+    }
+
+    @Test
+    public void testUpdateEmployee_notUpdated() {
+        Employee employee = employeeWithId(1L);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("HR", 1000, 3L)));
+        when(employeeRepository.updateEmployee(employee)).thenReturn(0);
+        try {
+            employeeService.updateEmployee(employee, null);
+            assert(false);
+        } catch (EmployeeNotFoundException e) {
+            assert(e.getMessage().equals("Employee with id 1 was not found"));
+        }
+        verifyZeroInteractions(departmentStatsService, employeeCache, employeeJsonCache);
+    }
+
+    @Test
+    public void testUpdateEmployee_versionMismatch() {
+        Employee employee = employeeWithId(1L);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("HR", 1000, 3L)));
+        try {
+            employeeService.updateEmployee(employee, 2L);
+            assert(false);
+        } catch (EmployeeVersionMismatchException e) {
+            assert(e.getMessage().equals("Employee with id 1 is at version 3, not 2"));
+        }
+        verify(employeeRepository, times(0)).updateEmployee(employee);
+        verifyZeroInteractions(departmentStatsService);
+    }
+
+    @Test
+    public void testSaveEmployees_withId() {
+        Employee employee = new Employee();
+        employee.setId(1L);
+        employee.setName("John Doe");
+        try {
+            employeeService.saveEmployees(Collections.singletonList(employee));
+            assert(false);
+        } catch (IllegalArgumentException e) {
+            assert(e.getMessage().equals("New employees must not have an id, got: 1"));
+        }
+        verifyZeroInteractions(employeeRepository, departmentStatsService, employeeCache, employeeJsonCache);
+    }
+
+    @Test
+    public void testGetCollectionVersion_changesOnWrite() {
+        String before = employeeService.getCollectionVersion();
+        assert(employeeService.getCollectionVersion().equals(before));
+        employeeService.saveEmployees(new ArrayList<>());
+        assert(!employeeService.getCollectionVersion().equals(before));
+    }
+
+    @Test
+    public void testPatchEmployee_withoutRead() {
+        Map<String, Object> changes = Collections.singletonMap("name", "Jane Doe");
+        when(employeeRepository.patchEmployee(eq(1L), eq(changes), eq(3L), any())).thenReturn(1);
+        assert(employeeService.patchEmployee(1L, changes, 3L) == 4L);
+        verify(employeeRepository, times(0)).findStateForUpdateById(anyLong());
+        verifyZeroInteractions(departmentStatsService);
+        verify(employeeJsonCache, times(1)).invalidate(1L);
+    }
+
+    @Test
+    public void testPatchEmployee_versionMismatch() {
+        Map<String, Object> changes = Collections.singletonMap("name", "Jane Doe");
+        when(employeeRepository.patchEmployee(eq(1L), eq(changes), eq(3L), any())).thenReturn(0);
+        when(employeeRepository.findVersionById(1L)).thenReturn(Optional.of(version(5L)));
+        try {
+            employeeService.patchEmployee(1L, changes, 3L);
+            assert(false);
+        } catch (EmployeeVersionMismatchException e) {
+            assert(e.getMessage().equals("Employee with id 1 is at version 5, not 3"));
+        }
+        verifyZeroInteractions(employeeJsonCache);
+    }
+
+    @Test
+    public void testPatchEmployee_notFound() {
+        Map<String, Object> changes = Collections.singletonMap("name", "Jane Doe");
+        when(employeeRepository.patchEmployee(eq(1L), eq(changes), isNull(), any())).thenReturn(0);
+        when(employeeRepository.findVersionById(1L)).thenReturn(Optional.empty());
+        try {
+            employeeService.patchEmployee(1L, changes, null);
+            assert(false);
+        } catch (EmployeeNotFoundException e) {
+            assert(e.getMessage().equals("Employee with id 1 was not found"));
+        }
+    }
+
+    @Test
+    public void testPatchEmployee_salary() {
+        Map<String, Object> changes = Collections.singletonMap("salary", 2000);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.of(state("IT", 1000, 3L)));
+        assert(employeeService.patchEmployee(1L, changes, null) == 4L);
+        verify(employeeRepository, times(1)).patchEmployee(eq(1L), eq(changes), isNull(), any());
+        verify(departmentStatsService, times(1)).recordRemoved("IT", 1000);
+        verify(departmentStatsService, times(1)).recordAdded("IT", 2000);
+        verify(employeeJsonCache, times(1)).invalidate(1L);
     }
 
     @Test
     public void testUpdateEmployee_notFound() {
         Employee employee = new Employee();
         employee.setId(1L);
-        when(employeeRepository.existsById(1L)).thenReturn(false);
+        when(employeeRepository.findStateForUpdateById(1L)).thenReturn(Optional.empty());
         try {
-            employeeService.updateEmployee(employee);
+            employeeService.updateEmployee(employee, null);
+            assert(false);
         } catch (EmployeeNotFoundException e) {
             assert(e.getMessage().equals("Employee with id 1 was not found"));
         }
-        verify(employeeRepository, times(1)).existsById(1L);
+        verify(employeeRepository, times(0)).updateEmployee(employee);
     }
 
     @Test
@@ -117,23 +417,61 @@ public class EmployeeServiceImplTest {
     @Test
     public void testUpdateEmployee_nullEmployee() {
         try {
-            employeeService.updateEmployee(null);
+            employeeService.updateEmployee(null, null);
         } catch (NullPointerException e) {
             assert(e.getMessage().equals("Employee must not be null"));
         }
-        verify(employeeRepository, times(0)).existsById(anyLong());
-        verify(employeeRepository, times(0)).save(any(Employee.class));
+        verify(employeeRepository, times(0)).updateEmployee(any(Employee.class));
     }
 
     @Test
     public void testUpdateEmployee_nullId() {
         Employee employee = new Employee();
         try {
-            employeeService.updateEmployee(employee);
+            employeeService.updateEmployee(employee, null);
         } catch (NullPointerException e) {
             assert(e.getMessage().equals("Employee id must not be null"));
         }
-        verify(employeeRepository, times(0)).existsById(anyLong());
-        verify(employeeRepository, times(0)).save(any(Employee.class));
+        verify(employeeRepository, times(0)).updateEmployee(any(Employee.class));
+    }
+
+    private static EmployeeState state(String department, Integer salary, Long version) {
+        return new EmployeeState() {
+            @Override
+            public String getDepartment() {
+                return department;
+            }
+
+            @Override
+            public Integer getSalary() {
+                return salary;
+            }
+
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static Map<String, Object> fieldsWithId(Long id) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", id);
+        fields.put("version", 0L);
+        return fields;
+    }
+
+    private static EmployeeVersion version(Long version) {
+        return new EmployeeVersion() {
+            @Override
+            public Long getVersion() {
+                return version;
+            }
+
+            @Override
+            public Instant getLastModified() {
+                return null;
+            }
+        };
     }
 }
@@ -0,0 +1,124 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.exceptions.EmployeeNotFoundException;
+import jp.co.axa.apidemo.exceptions.WriteQueueFullException;
+import jp.co.axa.apidemo.services.EmployeeService;
+import jp.co.axa.apidemo.services.EmployeeWriteBehindService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class EmployeeWriteBehindServiceTest {
+
+    @Mock
+    EmployeeService employeeService;
+
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    EmployeeWriteBehindService writeBehindService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        writeBehindService = new EmployeeWriteBehindService(employeeService, transactionManager, 2, 10);
+    }
+
+    @AfterEach
+    public void stop() throws InterruptedException {
+        writeBehindService.stop();
+    }
+
+    @Test
+    public void testSubmit_coalescesQueuedChanges() throws InterruptedException {
+        long first = writeBehindService.submit(1L, Collections.singletonMap("salary", 1000));
+        long second = writeBehindService.submit(1L, Collections.singletonMap("name", "Jane Doe"));
+        long third = writeBehindService.submit(1L, Collections.singletonMap("salary", 2000));
+        assertTrue(first < second && second < third);
+        assertFalse(writeBehindService.isDurable(first));
+
+        writeBehindService.start();
+        assertTrue(writeBehindService.awaitSettled(third, 5, TimeUnit.SECONDS));
+        assertTrue(writeBehindService.isDurable(third));
+        assertFalse(writeBehindService.isFailed(third));
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("salary", 2000);
+        expected.put("name", "Jane Doe");
+        verify(employeeService, times(1)).patchEmployee(1L, expected, null);
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void testSubmit_queueFull() {
+        writeBehindService.submit(1L, Collections.singletonMap("salary", 1000));
+        writeBehindService.submit(2L, Collections.singletonMap("salary", 1000));
+        assertThrows(WriteQueueFullException.class,
+                () -> writeBehindService.submit(3L, Collections.singletonMap("salary", 1000)));
+        writeBehindService.submit(1L, Collections.singletonMap("salary", 2000));
+    }
+
+    @Test
+    public void testWrite_failedBatchIsRetriedOneByOne() throws InterruptedException {
+        when(employeeService.patchEmployee(eq(2L), any(), isNull())).thenThrow(new IllegalStateException("boom"));
+        long first = writeBehindService.submit(1L, Collections.singletonMap("salary", 1000));
+        long last = writeBehindService.submit(2L, Collections.singletonMap("salary", 1000));
+
+        writeBehindService.start();
+        assertTrue(writeBehindService.awaitSettled(last, 5, TimeUnit.SECONDS));
+        assertTrue(writeBehindService.isDurable(first));
+        assertFalse(writeBehindService.isDurable(last));
+        assertTrue(writeBehindService.isFailed(last));
+
+        verify(employeeService, times(2)).patchEmployee(eq(1L), any(), isNull());
+        verify(transactionManager, times(2)).rollback(any());
+        assertEquals(1, writeBehindService.getFailedWrites());
+    }
+
+    @Test
+    public void testWrite_missingEmployeeIsDropped() throws InterruptedException {
+        when(employeeService.patchEmployee(eq(1L), any(), isNull())).thenThrow(new EmployeeNotFoundException("missing"));
+        long first = writeBehindService.submit(1L, Collections.singletonMap("salary", 1000));
+        long second = writeBehindService.submit(1L, Collections.singletonMap("salary", 2000));
+        long other = writeBehindService.submit(2L, Collections.singletonMap("salary", 1000));
+
+        writeBehindService.start();
+        assertTrue(writeBehindService.awaitSettled(other, 5, TimeUnit.SECONDS));
+        assertTrue(writeBehindService.isFailed(first));
+        assertTrue(writeBehindService.isFailed(second));
+        assertFalse(writeBehindService.isDurable(second));
+        assertFalse(writeBehindService.isFailed(other));
+        assertTrue(writeBehindService.isDurable(other));
+        assertEquals(1, writeBehindService.getFailedWrites());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    public void testWrite_droppedWriteFailsOnlyItsOwnTickets() throws InterruptedException {
+        when(employeeService.patchEmployee(eq(1L), any(), isNull())).thenThrow(new EmployeeNotFoundException("missing"));
+        long first = writeBehindService.submit(1L, Collections.singletonMap("salary", 1000));
+        long other = writeBehindService.submit(2L, Collections.singletonMap("salary", 1000));
+        long last = writeBehindService.submit(1L, Collections.singletonMap("salary", 2000));
+        assertTrue(first < other && other < last);
+
+        writeBehindService.start();
+        assertTrue(writeBehindService.awaitSettled(last, 5, TimeUnit.SECONDS));
+        assertTrue(writeBehindService.isFailed(first));
+        assertTrue(writeBehindService.isFailed(last));
+        assertFalse(writeBehindService.isFailed(other));
+        assertTrue(writeBehindService.isDurable(other));
+    }
+}
@@ -0,0 +1,105 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.exceptions.PersistenceQueueFullException;
+import jp.co.axa.apidemo.services.PersistenceExecutor;
+import jp.co.axa.apidemo.util.VirtualThreads;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class PersistenceExecutorTest {
+
+    PersistenceExecutor persistenceExecutor;
+
+    @BeforeEach
+    public void init() {
+        persistenceExecutor = new PersistenceExecutor(1, 1, false);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        persistenceExecutor.shutdown();
+    }
+
+    @Test
+    public void testSubmit_rejectedWhenSaturated() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = persistenceExecutor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<?> queued = persistenceExecutor.submit(() -> { });
+
+        assertThrows(PersistenceQueueFullException.class, () -> persistenceExecutor.submit(() -> { }));
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSubmit_cancelledWorkIsDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> running = persistenceExecutor.submit(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicBoolean ran = new AtomicBoolean();
+        Future<?> queued = persistenceExecutor.submit(() -> ran.set(true));
+
+        queued.cancel(false);
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        persistenceExecutor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testSubmit_virtualThreadsBoundedLikeThePool() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "Virtual threads require JDK 21 or later");
+        PersistenceExecutor virtualExecutor = new PersistenceExecutor(1, 1, true);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> running = virtualExecutor.submit(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            AtomicBoolean ran = new AtomicBoolean();
+            Future<?> waiting = virtualExecutor.submit(() -> ran.set(true));
+
+            assertThrows(PersistenceQueueFullException.class, () -> virtualExecutor.submit(() -> { }));
+            assertFalse(ran.get());
+
+            waiting.cancel(false);
+            virtualExecutor.submit(() -> { });
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+            assertFalse(ran.get());
+        } finally {
+            virtualExecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.services.TokenRevocationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenRevocationServiceTest {
+
+    @TempDir
+    Path directory;
+
+    Path file;
+
+    long now;
+
+    @BeforeEach
+    public void init() {
+        file = directory.resolve("revoked-tokens.log");
+        now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    @Test
+    public void testRevoke() throws Exception {
+        TokenRevocationService service = new TokenRevocationService("", 100);
+
+        assertFalse(service.isRevoked("a"));
+        assertTrue(service.revoke("a", now + 60));
+        assertFalse(service.revoke("a", now + 60));
+        assertTrue(service.isRevoked("a"));
+        assertFalse(service.isRevoked("b"));
+
+        assertTrue(service.revoke("expired", now - 1));
+        assertFalse(service.isRevoked("expired"));
+        assertThrows(IllegalArgumentException.class, () -> service.revoke("a b", now + 60));
+    }
+
+    @Test
+    public void testLoad_survivesRestart() throws Exception {
+        TokenRevocationService service = new TokenRevocationService(file.toString(), 100);
+        service.load();
+        service.revoke("a", now + 60);
+        service.revoke("b", now + 60);
+
+        TokenRevocationService restarted = new TokenRevocationService(file.toString(), 100);
+        restarted.load();
+        assertTrue(restarted.isRevoked("a"));
+        assertTrue(restarted.isRevoked("b"));
+        assertEquals(2, restarted.getRevokedCount());
+    }
+
+    @Test
+    public void testLoad_dropsExpiredAndMalformed() throws Exception {
+        Files.write(file, Arrays.asList("a " + (now + 60), "b " + (now - 60), "garbage", "c x"), StandardCharsets.UTF_8);
+
+        TokenRevocationService service = new TokenRevocationService(file.toString(), 100);
+        service.load();
+
+        assertTrue(service.isRevoked("a"));
+        assertFalse(service.isRevoked("b"));
+        assertEquals(1, service.getRevokedCount());
+        assertEquals(Collections.singletonList("a " + (now + 60)), Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRevoke_compactsBeyondExpectedCount() throws Exception {
+        TokenRevocationService service = new TokenRevocationService(file.toString(), 10);
+        for (int i = 0; i < 50; i++) {
+            service.revoke("token-" + i, now + 60);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(service.isRevoked("token-" + i));
+        }
+        assertEquals(50, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+    }
+}
@@ -0,0 +1,85 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.dto.AuthenticationResponse;
+import jp.co.axa.apidemo.exceptions.InvalidTokenException;
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenRevocationService;
+import jp.co.axa.apidemo.services.TokenService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import jp.co.axa.apidemo.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TokenServiceTest {
+
+    @Mock
+    TokenVersionService tokenVersionService;
+
+    @Mock
+    CustomUserDetailsService userDetailsService;
+
+    JwtUtil jwtUtil = new JwtUtil();
+
+    TokenRevocationService tokenRevocationService;
+
+    TokenService tokenService;
+
+    private final UserDetails user = new User("user", "password", Collections.emptyList());
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        tokenRevocationService = new TokenRevocationService("", 100);
+        tokenService = new TokenService(jwtUtil, tokenRevocationService, tokenVersionService, userDetailsService);
+        when(userDetailsService.loadUserByUsername("user")).thenReturn(user);
+    }
+
+    @Test
+    public void testRefresh_issuesNewTokensAndRevokesOldOne() {
+        AuthenticationResponse issued = tokenService.issueTokens(user);
+
+        AuthenticationResponse refreshed = tokenService.refresh(issued.getRefreshToken());
+
+        assertNotEquals(issued.getRefreshToken(), refreshed.getRefreshToken());
+        assertEquals("user", jwtUtil.extractUsername(refreshed.getJwt()));
+        assertTrue(tokenRevocationService.isRevoked(jwtUtil.extractAllClaims(issued.getRefreshToken()).getId()));
+        verifyZeroInteractions(tokenVersionService);
+    }
+
+    @Test
+    public void testRefresh_reuseRevokesAllTokensOfUser() {
+        String refreshToken = tokenService.issueTokens(user).getRefreshToken();
+        tokenService.refresh(refreshToken);
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(refreshToken));
+        verify(tokenVersionService).revokeTokens("user");
+    }
+
+    @Test
+    public void testRefresh_rejectsAccessTokensAndGarbage() {
+        String accessToken = tokenService.issueTokens(user).getJwt();
+
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(accessToken));
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh("not.a.token"));
+        assertThrows(InvalidTokenException.class, () -> tokenService.refresh(null));
+        assertFalse(tokenRevocationService.isRevoked(jwtUtil.extractAllClaims(accessToken).getId()));
+    }
+
+    @Test
+    public void testRevoke() {
+        String accessToken = tokenService.issueTokens(user).getJwt();
+
+        tokenService.revoke(accessToken);
+
+        assertTrue(tokenRevocationService.isRevoked(jwtUtil.extractAllClaims(accessToken).getId()));
+    }
+}
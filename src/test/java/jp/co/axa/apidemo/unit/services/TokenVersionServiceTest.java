@@ -0,0 +1,77 @@
+package jp.co.axa.apidemo.unit.services;
+
+import jp.co.axa.apidemo.dto.UserTokenStatus;
+import jp.co.axa.apidemo.repositories.UserRepository;
+import jp.co.axa.apidemo.services.CustomUserDetailsService;
+import jp.co.axa.apidemo.services.TokenVersionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class TokenVersionServiceTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @Mock
+    CustomUserDetailsService userDetailsService;
+
+    TokenVersionService tokenVersionService;
+
+    @BeforeEach
+    public void init() {
+        MockitoAnnotations.initMocks(this);
+        tokenVersionService = new TokenVersionService(userRepository, userDetailsService, 30);
+    }
+
+    @Test
+    public void testIsTokenCurrent() {
+        when(userRepository.findTokenStatusByUsername("user")).thenReturn(Optional.of(status(true, 2)));
+        assertTrue(tokenVersionService.isTokenCurrent("user", 2));
+        assertFalse(tokenVersionService.isTokenCurrent("user", 1));
+        verify(userRepository, times(1)).findTokenStatusByUsername("user");
+    }
+
+    @Test
+    public void testIsTokenCurrent_disabledUser() {
+        when(userRepository.findTokenStatusByUsername("user")).thenReturn(Optional.of(status(false, 0)));
+        assertFalse(tokenVersionService.isTokenCurrent("user", 0));
+    }
+
+    @Test
+    public void testIsTokenCurrent_unknownUser() {
+        when(userRepository.findTokenStatusByUsername("user")).thenReturn(Optional.empty());
+        assertFalse(tokenVersionService.isTokenCurrent("user", 0));
+    }
+
+    @Test
+    public void testInvalidate() {
+        when(userRepository.findTokenStatusByUsername("user"))
+                .thenReturn(Optional.of(status(true, 0)), Optional.of(status(true, 1)));
+        assertTrue(tokenVersionService.isTokenCurrent("user", 0));
+        tokenVersionService.invalidate("user");
+        assertFalse(tokenVersionService.isTokenCurrent("user", 0));
+        assertTrue(tokenVersionService.isTokenCurrent("user", 1));
+    }
+
+    private static UserTokenStatus status(boolean enabled, int tokenVersion) {
+        return new UserTokenStatus() {
+            @Override
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            @Override
+            public int getTokenVersion() {
+                return tokenVersion;
+            }
+        };
+    }
+}
@@ -0,0 +1,45 @@
+package jp.co.axa.apidemo.unit.util;
+
+import jp.co.axa.apidemo.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void testMightContain_noFalseNegatives() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        String[] values = new String[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UUID.randomUUID().toString();
+            filter.put(values[i]);
+        }
+        for (String value : values) {
+            assertTrue(filter.mightContain(value));
+        }
+    }
+
+    @Test
+    public void testMightContain_falsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID().toString());
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "False positives: " + falsePositives);
+    }
+
+    @Test
+    public void testConstructor_invalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(10, 1));
+    }
+}
@@ -0,0 +1,115 @@
+package jp.co.axa.apidemo.unit.util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SignatureException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.impl.TextCodec;
+import jp.co.axa.apidemo.util.JwtClaims;
+import jp.co.axa.apidemo.util.JwtCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtCodecTest {
+
+    private static final String SECRET_KEY = "secret";
+
+    private final JwtCodec codec = new JwtCodec(TextCodec.BASE64.decode(SECRET_KEY));
+
+    private final long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+    @Test
+    public void testEncode_sameAsJjwt() {
+        String jjwtToken = Jwts.builder()
+                .setId("id-1")
+                .setSubject("us\"eré")
+                .claim("typ", "refresh")
+                .claim("authorities", Arrays.asList("ROLE_USER", "ROLE_ADMIN"))
+                .claim("ver", 3)
+                .setIssuedAt(new Date(now * 1000))
+                .setExpiration(new Date((now + 60) * 1000))
+                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .compact();
+
+        assertEquals(jjwtToken, codec.encode(new JwtClaims("id-1", "us\"eré", "refresh",
+                Arrays.asList("ROLE_USER", "ROLE_ADMIN"), 3, now, now + 60)));
+    }
+
+    @Test
+    public void testEncode_nullClaimsLeftOut() {
+        String jjwtToken = Jwts.builder()
+                .setSubject("user")
+                .claim("authorities", Collections.emptyList())
+                .claim("ver", null)
+                .setIssuedAt(new Date(now * 1000))
+                .setExpiration(new Date((now + 60) * 1000))
+                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .compact();
+
+        assertEquals(jjwtToken, codec.encode(new JwtClaims(null, "user", null, Collections.emptyList(), null, now, now + 60)));
+    }
+
+    @Test
+    public void testDecode_readableByJjwt() {
+        Claims claims = Jwts.parser().setSigningKey(SECRET_KEY)
+                .parseClaimsJws(codec.encode(new JwtClaims("id-7", "user", null, Collections.singletonList("ROLE_USER"), 7, now, now + 60)))
+                .getBody();
+
+        assertEquals("id-7", claims.getId());
+        assertEquals("user", claims.getSubject());
+        assertEquals(Integer.valueOf(7), claims.get("ver", Integer.class));
+    }
+
+    @Test
+    public void testDecode_jjwtToken() {
+        String token = Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setId("id-2")
+                .setSubject("us\\er\n")
+                .claim("typ", "refresh")
+                .claim("authorities", Collections.singletonList("ROLE_USER"))
+                .claim("extra", Collections.singletonMap("nested", Arrays.asList(1, "two", null, true)))
+                .claim("ver", 2)
+                .setIssuedAt(new Date(now * 1000))
+                .setExpiration(new Date((now + 60) * 1000))
+                .signWith(SignatureAlgorithm.HS256, SECRET_KEY)
+                .compact();
+
+        JwtClaims claims = codec.decode(token);
+
+        assertEquals("id-2", claims.getId());
+        assertEquals("us\\er\n", claims.getSubject());
+        assertEquals("refresh", claims.getType());
+        assertEquals(Collections.singletonList("ROLE_USER"), claims.getAuthorities());
+        assertEquals(Integer.valueOf(2), claims.getTokenVersion());
+        assertEquals(new Date(now * 1000), claims.getIssuedAt());
+        assertEquals(new Date((now + 60) * 1000), claims.getExpiration());
+    }
+
+    @Test
+    public void testDecode_rejected() {
+        String token = codec.encode(new JwtClaims(null, "user", null, null, null, now, now + 60));
+        String[] parts = token.split("\\.");
+
+        assertThrows(SignatureException.class, () -> new JwtCodec("other".getBytes(StandardCharsets.US_ASCII)).decode(token));
+        assertThrows(SignatureException.class, () -> codec.decode(parts[0] + "." + parts[1] + "." + parts[2].substring(1)));
+        assertThrows(MalformedJwtException.class, () -> codec.decode(parts[0] + "." + parts[1]));
+        assertThrows(MalformedJwtException.class, () -> codec.decode(token + "."));
+        assertThrows(ExpiredJwtException.class, () -> codec.decode(codec.encode(new JwtClaims(null, "user", null, null, null, now - 120, now - 60))));
+
+        String unsigned = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.US_ASCII));
+        assertThrows(UnsupportedJwtException.class, () -> codec.decode(unsigned + "." + parts[1] + "." + parts[2]));
+    }
+}
@@ -0,0 +1,91 @@
+package jp.co.axa.apidemo.unit.util;
+
+import io.jsonwebtoken.SignatureException;
+import jp.co.axa.apidemo.util.JwtClaims;
+import jp.co.axa.apidemo.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JwtUtilTest {
+
+    private JwtUtil jwtUtil;
+
+    private UserDetails userDetails;
+
+    @BeforeEach
+    public void init() {
+        jwtUtil = new JwtUtil();
+        userDetails = new User("user", "password", Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+
+    @Test
+    public void testExtractAllClaims() {
+        String token = jwtUtil.generateToken(userDetails);
+        JwtClaims claims = jwtUtil.extractAllClaims(token);
+        assertEquals("user", claims.getSubject());
+        assertNotNull(claims.getExpiration());
+    }
+
+    @Test
+    public void testGenerateToken_uniqueIdsAndShortLived() {
+        JwtClaims first = jwtUtil.extractAllClaims(jwtUtil.generateToken(userDetails));
+        JwtClaims second = jwtUtil.extractAllClaims(jwtUtil.generateToken(userDetails));
+        assertNotNull(first.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertNull(first.getType());
+        assertEquals(jwtUtil.getAccessTokenTtlSeconds(),
+                first.getExpirationSeconds() - first.getIssuedAtSeconds());
+    }
+
+    @Test
+    public void testGenerateRefreshToken() {
+        JwtClaims claims = jwtUtil.extractAllClaims(jwtUtil.generateRefreshToken(userDetails));
+        assertEquals(JwtUtil.REFRESH_TOKEN_TYPE, claims.getType());
+        assertEquals("user", claims.getSubject());
+        assertNotNull(claims.getId());
+        assertNull(claims.getAuthorities());
+        assertTrue(claims.getExpirationSeconds() - claims.getIssuedAtSeconds() > jwtUtil.getAccessTokenTtlSeconds());
+    }
+
+    @Test
+    public void testExtractAllClaims_verifiedOnce() {
+        String token = jwtUtil.generateToken(userDetails);
+        assertSame(jwtUtil.extractAllClaims(token), jwtUtil.extractAllClaims(token));
+    }
+
+    @Test
+    public void testExtractAllClaims_invalidSignature() {
+        String token = jwtUtil.generateToken(userDetails);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        assertThrows(SignatureException.class, () -> jwtUtil.extractAllClaims(tampered));
+    }
+
+    @Test
+    public void testExtractAuthorities() {
+        JwtClaims claims = jwtUtil.extractAllClaims(jwtUtil.generateToken(userDetails));
+        Collection<GrantedAuthority> authorities = jwtUtil.extractAuthorities(claims);
+        assertEquals(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")), authorities);
+        assertNull(jwtUtil.extractTokenVersion(claims));
+    }
+
+    @Test
+    public void testValidateToken() {
+        String token = jwtUtil.generateToken(userDetails);
+        JwtClaims claims = jwtUtil.extractAllClaims(token);
+        assertTrue(jwtUtil.validateToken(claims, userDetails));
+        assertFalse(jwtUtil.validateToken(claims, new User("other", "password", Collections.emptyList())));
+        assertFalse(jwtUtil.validateToken(claims, new User("user", "password", false, true, true, true,
+                Collections.emptyList())));
+        assertFalse(jwtUtil.validateToken(claims, new User("user", "password", true, true, true, false,
+                Collections.emptyList())));
+    }
+}
@@ -0,0 +1,52 @@
+package jp.co.axa.apidemo.unit.util;
+
+import jp.co.axa.apidemo.util.RateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.DAYS.toNanos(1));
+
+    private final RateLimiter rateLimiter = new RateLimiter(10, 3, 100, now::get);
+
+    @Test
+    public void testTryAcquire_burstThenRate() {
+        assertEquals(0, rateLimiter.tryAcquire("alice"));
+        assertEquals(0, rateLimiter.tryAcquire("alice"));
+        assertEquals(0, rateLimiter.tryAcquire("alice"));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), rateLimiter.tryAcquire("alice"));
+        assertEquals(0, rateLimiter.tryAcquire("bob"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(0, rateLimiter.tryAcquire("alice"));
+        assertTrue(rateLimiter.tryAcquire("alice") > 0);
+    }
+
+    @Test
+    public void testTryAcquire_refillsWhenIdle() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("alice"));
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, rateLimiter.tryAcquire("alice"));
+        }
+        assertTrue(rateLimiter.tryAcquire("alice") > 0);
+    }
+
+    @Test
+    public void testSize_boundedAndIdleBucketsEvicted() {
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.tryAcquire("client-" + i);
+        }
+        assertTrue(rateLimiter.size() <= 100);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, rateLimiter.size());
+    }
+}